@@ -0,0 +1,76 @@
+package com.ajlopez.blockchain.encoding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RLPBenchmark {
+    @Param({ "1", "32", "1024" })
+    private int length;
+
+    @Param({ "2", "16", "256" })
+    private int elementCount;
+
+    private byte[] value;
+    private byte[] encodedValue;
+    private byte[][] elements;
+    private byte[] encodedList;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        this.value = new byte[this.length];
+        random.nextBytes(this.value);
+        this.encodedValue = RLP.encode(this.value);
+
+        this.elements = new byte[this.elementCount][];
+
+        for (int k = 0; k < this.elementCount; k++) {
+            byte[] element = new byte[this.length];
+            random.nextBytes(element);
+            this.elements[k] = RLP.encode(element);
+        }
+
+        this.encodedList = RLP.encodeList(this.elements);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return RLP.encode(this.value);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return RLP.decode(this.encodedValue);
+    }
+
+    @Benchmark
+    public byte[] encodeList() {
+        return RLP.encodeList(this.elements);
+    }
+
+    @Benchmark
+    public void decodeList(Blackhole blackhole) {
+        for (byte[] element : RLP.decodeList(this.encodedList))
+            blackhole.consume(RLP.decode(element));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ajlopez.blockchain.execution;
+
+import com.ajlopez.blockchain.core.Account;
+import com.ajlopez.blockchain.core.Transaction;
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.Coin;
+import com.ajlopez.blockchain.core.types.Difficulty;
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.store.AccountStore;
+import com.ajlopez.blockchain.store.AccountStoreProvider;
+import com.ajlopez.blockchain.store.HashMapStore;
+import com.ajlopez.blockchain.store.TrieStore;
+import com.ajlopez.blockchain.vms.eth.BlockData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionExecutorBenchmark {
+    @Param({ "10", "100", "1000" })
+    private int txCount;
+
+    private AccountStoreProvider accountStoreProvider;
+    private Hash initialStateRoot;
+    private List<Transaction> transactions;
+    private BlockData blockData;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+
+        this.accountStoreProvider = new AccountStoreProvider(new TrieStore(new HashMapStore()));
+
+        AccountStore accountStore = this.accountStoreProvider.retrieve(Trie.EMPTY_TRIE_HASH);
+        Address sender = createAddress(random);
+
+        accountStore.putAccount(sender, new Account(Coin.fromUnsignedLong(1000000000L), 0, null, null));
+        accountStore.save();
+
+        this.initialStateRoot = accountStore.getRootHash();
+        this.transactions = createTransactions(random, sender, this.txCount);
+        this.blockData = new BlockData(1, 0, createAddress(random), Difficulty.ONE);
+    }
+
+    @Benchmark
+    public List<TransactionResult> executeTransactions() throws IOException {
+        AccountStore accountStore = this.accountStoreProvider.retrieve(this.initialStateRoot);
+        TransactionExecutor transactionExecutor = new TransactionExecutor(new TopExecutionContext(accountStore, null, null));
+
+        List<TransactionResult> results = transactionExecutor.executeTransactions(this.transactions, this.blockData);
+
+        if (results.size() != this.txCount)
+            throw new IllegalStateException("transactions not executed");
+
+        return results;
+    }
+
+    private static List<Transaction> createTransactions(Random random, Address sender, int ntransactions) {
+        List<Transaction> transactions = new ArrayList<>(ntransactions);
+
+        for (int k = 0; k < ntransactions; k++)
+            transactions.add(new Transaction(sender, createAddress(random), Coin.fromUnsignedLong(1 + random.nextInt(1000)), k, null, 6000000, Coin.ZERO));
+
+        return transactions;
+    }
+
+    private static Address createAddress(Random random) {
+        byte[] bytes = new byte[Address.ADDRESS_BYTES];
+        random.nextBytes(bytes);
+
+        return new Address(bytes);
+    }
+}
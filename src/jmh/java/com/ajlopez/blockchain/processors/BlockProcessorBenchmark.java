@@ -0,0 +1,133 @@
+package com.ajlopez.blockchain.processors;
+
+import com.ajlopez.blockchain.bc.BlockChain;
+import com.ajlopez.blockchain.bc.BlockValidator;
+import com.ajlopez.blockchain.bc.GenesisGenerator;
+import com.ajlopez.blockchain.core.Account;
+import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.Transaction;
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.Coin;
+import com.ajlopez.blockchain.core.types.Difficulty;
+import com.ajlopez.blockchain.execution.BlockExecutor;
+import com.ajlopez.blockchain.execution.TopExecutionContext;
+import com.ajlopez.blockchain.execution.TransactionExecutor;
+import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.store.AccountStore;
+import com.ajlopez.blockchain.store.AccountStoreProvider;
+import com.ajlopez.blockchain.store.MemoryStores;
+import com.ajlopez.blockchain.store.Stores;
+import com.ajlopez.blockchain.vms.eth.BlockData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockProcessorBenchmark {
+    @Param({ "10" })
+    private int blockCount;
+
+    @Param({ "10", "100" })
+    private int txCount;
+
+    private Stores stores;
+    private Block genesis;
+    private List<Block> blocks;
+    private BlockProcessor blockProcessor;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+
+        this.stores = new MemoryStores();
+
+        AccountStoreProvider accountStoreProvider = new AccountStoreProvider(this.stores.getAccountTrieStore());
+        AccountStore accountStore = accountStoreProvider.retrieve(Trie.EMPTY_TRIE_HASH);
+        Address sender = createAddress(random);
+        Address coinbase = createAddress(random);
+
+        accountStore.putAccount(sender, new Account(Coin.fromUnsignedLong(1000000000L), 0, null, null));
+        accountStore.save();
+
+        this.genesis = GenesisGenerator.generateGenesis(accountStore);
+        this.blocks = new ArrayList<>(this.blockCount);
+
+        Block parent = this.genesis;
+
+        for (int k = 0; k < this.blockCount; k++) {
+            List<Transaction> transactions = createTransactions(random, sender, k * this.txCount, this.txCount);
+            Block block = createBlock(accountStoreProvider, parent, coinbase, transactions);
+
+            this.blocks.add(block);
+            parent = block;
+        }
+    }
+
+    // the state tries are shared, each invocation imports the blocks into a new chain
+    @Setup(Level.Invocation)
+    public void setupBlockChain() throws IOException {
+        BlockChain blockChain = new BlockChain(new MemoryStores());
+        blockChain.connectBlock(this.genesis);
+
+        BlockValidator blockValidator = new BlockValidator(new BlockExecutor(new AccountStoreProvider(this.stores.getAccountTrieStore()), null, null));
+
+        this.blockProcessor = new BlockProcessor(blockChain, new OrphanBlocks(), blockValidator, new TransactionPool());
+    }
+
+    @Benchmark
+    public Block processBlocks() throws IOException {
+        for (Block block : this.blocks)
+            if (this.blockProcessor.processBlock(block).isEmpty())
+                throw new IllegalStateException("block not connected");
+
+        return this.blockProcessor.getBestBlock();
+    }
+
+    private static Block createBlock(AccountStoreProvider accountStoreProvider, Block parent, Address coinbase, List<Transaction> transactions) throws IOException {
+        long number = parent.getNumber() + 1;
+        long timestamp = parent.getTimestamp() + 10;
+
+        AccountStore accountStore = accountStoreProvider.retrieve(parent.getStateRootHash());
+        TransactionExecutor transactionExecutor = new TransactionExecutor(new TopExecutionContext(accountStore, null, null));
+
+        transactionExecutor.executeTransactions(transactions, new BlockData(number, timestamp, coinbase, Difficulty.ONE));
+
+        return new Block(number, parent.getHash(), null, transactions, accountStore.getRootHash(), timestamp, coinbase, Difficulty.ONE);
+    }
+
+    private static List<Transaction> createTransactions(Random random, Address sender, long nonce, int ntransactions) {
+        List<Transaction> transactions = new ArrayList<>(ntransactions);
+
+        for (int k = 0; k < ntransactions; k++)
+            transactions.add(new Transaction(sender, createAddress(random), Coin.fromUnsignedLong(1 + random.nextInt(1000)), nonce + k, null, 6000000, Coin.ZERO));
+
+        return transactions;
+    }
+
+    private static Address createAddress(Random random) {
+        byte[] bytes = new byte[Address.ADDRESS_BYTES];
+        random.nextBytes(bytes);
+
+        return new Address(bytes);
+    }
+}
@@ -0,0 +1,86 @@
+package com.ajlopez.blockchain.state;
+
+import com.ajlopez.blockchain.core.types.Hash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieBenchmark {
+    @Param({ "100", "1000", "10000" })
+    private int keyCount;
+
+    private byte[][] keys;
+    private byte[][] values;
+    private Trie trie;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+
+        this.keys = new byte[this.keyCount][];
+        this.values = new byte[this.keyCount][];
+
+        for (int k = 0; k < this.keyCount; k++) {
+            this.keys[k] = new byte[32];
+            this.values[k] = new byte[42];
+            random.nextBytes(this.keys[k]);
+            random.nextBytes(this.values[k]);
+        }
+
+        this.trie = this.putKeys();
+        this.trie.getHash();
+    }
+
+    @Benchmark
+    public Trie put() throws IOException {
+        return this.putKeys();
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) throws IOException {
+        for (int k = 0; k < this.keyCount; k++)
+            blackhole.consume(this.trie.get(this.keys[k]));
+    }
+
+    @Benchmark
+    public Hash putAndGetHash() throws IOException {
+        return this.putKeys().getHash();
+    }
+
+    // updates one value in a hashed trie, so only the changed path is hashed again
+    @Benchmark
+    public Hash updateAndGetHash() throws IOException {
+        int n = this.next++ % this.keyCount;
+
+        return this.trie.put(this.keys[n], this.values[(n + 1) % this.keyCount]).getHash();
+    }
+
+    private Trie putKeys() throws IOException {
+        Trie result = new Trie();
+
+        for (int k = 0; k < this.keyCount; k++)
+            result = result.put(this.keys[k], this.values[k]);
+
+        return result;
+    }
+}
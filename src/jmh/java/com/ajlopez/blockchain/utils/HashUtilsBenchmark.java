@@ -0,0 +1,61 @@
+package com.ajlopez.blockchain.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongycastle.jce.provider.BouncyCastleProvider;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashUtilsBenchmark {
+    @Param({ "32", "256", "1024" })
+    private int length;
+
+    private byte[] input;
+    private byte[] output;
+
+    @Setup
+    public void setup() {
+        this.input = new byte[this.length];
+        this.output = new byte[HashUtils.HASH_BYTES];
+
+        new Random(42).nextBytes(this.input);
+    }
+
+    // the previous implementation, a provider lookup and a new digest for each hash
+    @Benchmark
+    public byte[] providerDigest() throws NoSuchProviderException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("KECCAK-256", BouncyCastleProvider.PROVIDER_NAME);
+        digest.update(this.input);
+        return digest.digest();
+    }
+
+    @Benchmark
+    public byte[] keccak256() {
+        return HashUtils.keccak256(this.input);
+    }
+
+    @Benchmark
+    public byte[] keccak256IntoBuffer() {
+        HashUtils.keccak256(this.input, 0, this.input.length, this.output, 0);
+        return this.output;
+    }
+}
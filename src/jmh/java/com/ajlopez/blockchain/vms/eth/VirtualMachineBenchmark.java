@@ -0,0 +1,104 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.Coin;
+import com.ajlopez.blockchain.core.types.Difficulty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VirtualMachineBenchmark {
+    private static final int LOOP_START = 3;
+
+    @Param({ "arithmetic", "memory", "storage" })
+    private String program;
+
+    @Param({ "256" })
+    private int iterations;
+
+    private byte[] bytecodes;
+    private ProgramEnvironment programEnvironment;
+
+    @Setup
+    public void setup() {
+        this.bytecodes = loop(this.iterations, getBody(this.program));
+
+        Address address = new Address(new byte[Address.ADDRESS_BYTES]);
+        MessageData messageData = new MessageData(address, address, address, Coin.ZERO, 10000000, Coin.ZERO, null, false);
+        BlockData blockData = new BlockData(1, 0, address, Difficulty.ONE);
+
+        this.programEnvironment = new ProgramEnvironment(messageData, blockData, null);
+    }
+
+    @Benchmark
+    public ExecutionResult execute() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(this.programEnvironment, new MapStorage());
+
+        ExecutionResult executionResult = virtualMachine.execute(this.bytecodes);
+
+        if (!executionResult.wasSuccesful())
+            throw new IllegalStateException("program failed");
+
+        return executionResult;
+    }
+
+    // each body takes the loop counter on top of the stack and leaves it there
+    private static byte[] getBody(String program) {
+        switch (program) {
+            case "arithmetic":
+                return new byte[] { OpCodes.DUP1, OpCodes.DUP1, OpCodes.MUL, OpCodes.DUP2, OpCodes.ADD, OpCodes.POP };
+
+            case "memory":
+                return new byte[] {
+                        OpCodes.DUP1, OpCodes.DUP1, OpCodes.PUSH1, 32, OpCodes.MUL, OpCodes.MSTORE,
+                        OpCodes.DUP1, OpCodes.PUSH1, 32, OpCodes.MUL, OpCodes.MLOAD, OpCodes.POP
+                };
+
+            case "storage":
+                return new byte[] { OpCodes.DUP1, OpCodes.DUP1, OpCodes.SSTORE, OpCodes.DUP1, OpCodes.SLOAD, OpCodes.POP };
+
+            default:
+                throw new IllegalArgumentException("unknown program");
+        }
+    }
+
+    // counter = n; do { body; counter-- } while (counter != 0)
+    private static byte[] loop(int n, byte[] body) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        output.write(OpCodes.PUSH2);
+        output.write(n >> 8);
+        output.write(n);
+        output.write(OpCodes.JUMPDEST);
+        output.write(body, 0, body.length);
+        output.write(OpCodes.PUSH1);
+        output.write(1);
+        output.write(OpCodes.SWAP1);
+        output.write(OpCodes.SUB);
+        output.write(OpCodes.DUP1);
+        output.write(OpCodes.PUSH1);
+        output.write(LOOP_START);
+        output.write(OpCodes.JUMPI);
+        output.write(OpCodes.STOP);
+
+        return output.toByteArray();
+    }
+}
@@ -1,6 +1,7 @@
 package com.ajlopez.blockchain;
 
 import com.ajlopez.blockchain.bc.BlockChain;
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.config.NetworkConfiguration;
 import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.net.peers.Peer;
@@ -25,12 +26,16 @@ public class NodeRunner {
     private final TcpPeerServer tcpPeerServer;
 
     public NodeRunner(BlockChain blockChain, boolean miner, int port, List<String> peers, Address coinbase, NetworkConfiguration networkConfiguration, Stores stores) {
+        this(blockChain, miner, port, peers, coinbase, networkConfiguration, new ExecutionConfiguration(), stores);
+    }
+
+    public NodeRunner(BlockChain blockChain, boolean miner, int port, List<String> peers, Address coinbase, NetworkConfiguration networkConfiguration, ExecutionConfiguration executionConfiguration, Stores stores) {
         this.miner = miner;
         this.port = port;
         this.peers = peers;
         this.network = networkConfiguration.getNetworkNumber();
 
-        this.nodeProcessor = new NodeProcessor(networkConfiguration, Peer.createRandomPeer(), blockChain, stores, coinbase);
+        this.nodeProcessor = new NodeProcessor(networkConfiguration, Peer.createRandomPeer(), blockChain, stores, coinbase, executionConfiguration);
         this.tcpPeerServer = port > 0 ? new TcpPeerServer(networkConfiguration.getNetworkNumber() ,this.port, this.nodeProcessor) : null;
     }
 
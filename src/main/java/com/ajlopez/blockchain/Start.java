@@ -3,11 +3,15 @@ package com.ajlopez.blockchain;
 import com.ajlopez.blockchain.bc.BlockChain;
 import com.ajlopez.blockchain.bc.GenesisGenerator;
 import com.ajlopez.blockchain.config.ArgumentsProcessor;
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.config.NetworkConfiguration;
 import com.ajlopez.blockchain.core.Block;
 import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.processors.PruneProcessor;
 import com.ajlopez.blockchain.processors.TransactionPool;
 import com.ajlopez.blockchain.processors.TransactionProcessor;
+import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.store.DiskStores;
 import com.ajlopez.blockchain.store.MemoryStores;
 import com.ajlopez.blockchain.store.Stores;
 import com.ajlopez.blockchain.utils.HexUtils;
@@ -20,15 +24,19 @@ import java.util.List;
  */
 public class Start {
     public static void main(String[] args) throws IOException {
-        Stores stores = new MemoryStores();
+        ArgumentsProcessor argsproc = processArguments(args);
+
+        String dataDirectory = argsproc.getString("datadir");
+        Stores stores = dataDirectory.isEmpty() ? new MemoryStores() : new DiskStores(dataDirectory);
         BlockChain blockChain = new BlockChain(stores);
         TransactionPool transactionPool = new TransactionPool();
         // TODO processor only uses pool?
         TransactionProcessor transactionProcessor = new TransactionProcessor(transactionPool);
-        Block genesis = GenesisGenerator.generateGenesis();
-        blockChain.connectBlock(genesis);
 
-        ArgumentsProcessor argsproc = processArguments(args);
+        if (!blockChain.loadBestBlock()) {
+            Block genesis = GenesisGenerator.generateGenesis();
+            blockChain.connectBlock(genesis);
+        }
 
         blockChain.onBlock(Start::printBlock);
 
@@ -39,10 +47,26 @@ public class Start {
         List<String> peers = argsproc.getStringList("peers");
 
         NetworkConfiguration networkConfiguration = new NetworkConfiguration((short)1);
-        NodeRunner runner = new NodeRunner(blockChain, isMiner, port, peers, coinbase, networkConfiguration, stores);
+        ExecutionConfiguration executionConfiguration = new ExecutionConfiguration(argsproc.getBoolean("blockgas"), argsproc.getInteger("compilethreshold"), argsproc.getInteger("hashthreshold"), argsproc.getInteger("parallelexec"));
+        NodeRunner runner = new NodeRunner(blockChain, isMiner, port, peers, coinbase, networkConfiguration, executionConfiguration, stores);
+
+        int pruneBlocks = argsproc.getInteger("prune");
+        PruneProcessor pruneProcessor = pruneBlocks > 0 ? new PruneProcessor(blockChain, stores, pruneBlocks) : null;
+
+        if (pruneProcessor != null) {
+            pruneProcessor.onError(ex -> System.err.println(String.format("Error pruning states: %s", ex.getMessage())));
+            pruneProcessor.start();
+        }
 
         runner.start();
-        Runtime.getRuntime().addShutdownHook(new Thread(runner::stop));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            runner.stop();
+
+            if (pruneProcessor != null)
+                pruneProcessor.stop();
+
+            closeStores(stores);
+        }));
 
         boolean rpc = argsproc.getBoolean("rpc");
 
@@ -67,11 +91,33 @@ public class Start {
         processor.defineBoolean("m", "miner", false);
         processor.defineString("k", "coinbase", "");
 
+        processor.defineString("d", "datadir", "");
+        processor.defineInteger("pr", "prune", 0);
+        processor.defineInteger("ht", "hashthreshold", Trie.DEFAULT_PARALLEL_HASH_THRESHOLD);
+
+        processor.defineBoolean("bg", "blockgas", false);
+        processor.defineInteger("ct", "compilethreshold", 0);
+        processor.defineInteger("pe", "parallelexec", 0);
+
         processor.processArguments(args);
 
         return processor;
     }
 
+    private static void closeStores(Stores stores) {
+        if (!(stores instanceof DiskStores))
+            return;
+
+        try {
+            ((DiskStores)stores).close();
+        }
+        catch (IOException ex) {
+            // the write-ahead log checkpoint may be missing, the exit status reports it
+            System.err.println(String.format("Error closing stores: %s", ex.getMessage()));
+            Runtime.getRuntime().halt(1);
+        }
+    }
+
     public static void printBlock(Block block) {
         System.out.println(String.format("Connecting block %d %s", block.getNumber(), block.getHash()));
     }
@@ -1,6 +1,8 @@
 package com.ajlopez.blockchain.bc;
 
 import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.BlockHeader;
+import com.ajlopez.blockchain.core.types.BlockHash;
 import com.ajlopez.blockchain.core.types.Difficulty;
 import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.store.Stores;
@@ -33,6 +35,41 @@ public class BlockChain implements BlockProvider {
         return this.bestBlock;
     }
 
+    public boolean loadBestBlock() throws IOException {
+        if (!this.hasBlockOnChain(0))
+            return false;
+
+        long onChain = 0;
+        long notOnChain = 1;
+
+        while (this.hasBlockOnChain(notOnChain)) {
+            onChain = notOnChain;
+            notOnChain *= 2;
+        }
+
+        while (notOnChain - onChain > 1) {
+            long middle = onChain + (notOnChain - onChain) / 2;
+
+            if (this.hasBlockOnChain(middle))
+                onChain = middle;
+            else
+                notOnChain = middle;
+        }
+
+        BlockInformation blockInformation = this.blocksInformationStore.get(onChain).getBlockOnChainInformation();
+
+        this.bestBlock = this.blocksByHash.getBlock(blockInformation.getBlockHash());
+        this.bestTotalDifficulty = blockInformation.getTotalDifficulty();
+
+        return true;
+    }
+
+    private boolean hasBlockOnChain(long number) throws IOException {
+        BlocksInformation blocksInformation = this.blocksInformationStore.get(number);
+
+        return blocksInformation != null && blocksInformation.getBlockOnChainInformation() != null;
+    }
+
     public long getBestBlockNumber() {
         if (this.bestBlock == null)
             return NO_BEST_BLOCK_NUMBER;
@@ -85,11 +122,15 @@ public class BlockChain implements BlockProvider {
     }
 
     @Override
-    public Block getBlockByHash(Hash hash) {
+    public Block getBlockByHash(Hash hash) throws IOException {
         return this.blocksByHash.getBlock(hash);
     }
 
-    public boolean isChainedBlock(Hash hash) {
+    public BlockHeader getBlockHeaderByHash(Hash hash) throws IOException {
+        return this.blocksByHash.getBlockHeader(hash);
+    }
+
+    public boolean isChainedBlock(Hash hash) throws IOException {
         return this.blocksByHash.containsBlock(hash);
     }
 
@@ -108,7 +149,11 @@ public class BlockChain implements BlockProvider {
         return this.blocksByHash.getBlock(blockInformation.getBlockHash());
     }
 
-    private boolean isOrphan(Block block) {
+    private BlockHash getBlockOnChainHash(long number) throws IOException {
+        return this.blocksInformationStore.get(number).getBlockOnChainInformation().getBlockHash();
+    }
+
+    private boolean isOrphan(Block block) throws IOException {
         if (block.getNumber() == 0)
             return false;
 
@@ -136,11 +181,13 @@ public class BlockChain implements BlockProvider {
         this.bestBlock = block;
         this.bestTotalDifficulty = totalDifficulty;
 
-        while (block.getNumber() > 0 && !this.getBlockByNumber(block.getNumber() - 1).getHash().equals(block.getParentHash())) {
-            block = this.blocksByHash.getBlock(block.getParentHash());
-            BlocksInformation blocksInformation = this.blocksInformationStore.get(block.getNumber());
-            blocksInformation.setBlockOnChain(block.getHash());
-            this.blocksInformationStore.put(block.getNumber(), blocksInformation);
+        BlockHeader header = block.getHeader();
+
+        while (header.getNumber() > 0 && !this.getBlockOnChainHash(header.getNumber() - 1).equals(header.getParentHash())) {
+            header = this.blocksByHash.getBlockHeader(header.getParentHash());
+            BlocksInformation blocksInformation = this.blocksInformationStore.get(header.getNumber());
+            blocksInformation.setBlockOnChain(header.getHash());
+            this.blocksInformationStore.put(header.getNumber(), blocksInformation);
         }
 
         long n = this.bestBlock.getNumber() + 1;
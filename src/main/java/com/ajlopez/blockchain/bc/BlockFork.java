@@ -1,8 +1,10 @@
 package com.ajlopez.blockchain.bc;
 
 import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.BlockHeader;
 import com.ajlopez.blockchain.core.Transaction;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,42 +42,49 @@ public class BlockFork {
         return result;
     }
 
-    public static BlockFork fromBlocks(BlockChain blockChain, Block oldBestBlock, Block newBestBlock) {
+    public static BlockFork fromBlocks(BlockChain blockChain, Block oldBestBlock, Block newBestBlock) throws IOException {
         List<Block> oldBlocks = new ArrayList<>();
         List<Block> newBlocks = new ArrayList<>();
 
-        Block oldBlock = oldBestBlock;
-        Block newBlock = newBestBlock;
+        BlockHeader oldHeader = oldBestBlock == null ? null : oldBestBlock.getHeader();
+        BlockHeader newHeader = newBestBlock == null ? null : newBestBlock.getHeader();
 
-        while (!sameBlock(oldBlock, newBlock)) {
-            if (isPreviousBlock(newBlock, oldBlock)) {
-                oldBlocks.add(oldBlock);
-                oldBlock = blockChain.getBlockByHash(oldBlock.getParentHash());
+        while (!sameHeader(oldHeader, newHeader)) {
+            if (isPreviousHeader(newHeader, oldHeader)) {
+                oldBlocks.add(getBlock(blockChain, oldHeader, oldBestBlock));
+                oldHeader = blockChain.getBlockHeaderByHash(oldHeader.getParentHash());
             }
             else {
-                newBlocks.add(newBlock);
-                newBlock = blockChain.getBlockByHash(newBlock.getParentHash());
+                newBlocks.add(getBlock(blockChain, newHeader, newBestBlock));
+                newHeader = blockChain.getBlockHeaderByHash(newHeader.getParentHash());
             }
         }
 
         return new BlockFork(oldBlocks, newBlocks);
     }
 
-    private static boolean isPreviousBlock(Block block1, Block block2) {
-        if (block1 == null)
+    private static Block getBlock(BlockChain blockChain, BlockHeader header, Block bestBlock) throws IOException {
+        if (header.getHash().equals(bestBlock.getHash()))
+            return bestBlock;
+
+        return blockChain.getBlockByHash(header.getHash());
+    }
+
+    private static boolean isPreviousHeader(BlockHeader header1, BlockHeader header2) {
+        if (header1 == null)
             return true;
 
-        if (block2 == null)
+        if (header2 == null)
             return false;
 
-        return block1.getNumber() < block2.getNumber();
+        return header1.getNumber() < header2.getNumber();
     }
 
-    private static boolean sameBlock(Block block1, Block block2) {
-        if (block1 == null && block2 == null)
+    private static boolean sameHeader(BlockHeader header1, BlockHeader header2) {
+        if (header1 == null && header2 == null)
             return true;
 
-        if (block1 != null && block2 != null && block1.getHash().equals(block2.getHash()))
+        if (header1 != null && header2 != null && header1.getHash().equals(header2.getHash()))
             return true;
 
         return false;
@@ -1,26 +1,53 @@
 package com.ajlopez.blockchain.bc;
 
 import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.BlockHeader;
 import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.encoding.BlockEncoder;
+import com.ajlopez.blockchain.encoding.BlockHeaderEncoder;
+import com.ajlopez.blockchain.store.KeyValueStore;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
 
 /**
  * Created by ajlopez on 03/02/2018.
  */
 public class BlockHashStore {
-    private Map<Hash, Block> blocks = new HashMap<>();
+    private final KeyValueStore blockStore;
+    private final KeyValueStore headerStore;
 
-    public void saveBlock(Block block) {
-        this.blocks.put(block.getHash(), block);
+    public BlockHashStore(KeyValueStore blockStore, KeyValueStore headerStore) {
+        this.blockStore = blockStore;
+        this.headerStore = headerStore;
     }
 
-    public Block getBlock(Hash hash) {
-        return this.blocks.get(hash);
+    public void saveBlock(Block block) throws IOException {
+        byte[] key = block.getHash().getBytes();
+
+        // header saved last, its presence implies the full block is available
+        this.blockStore.setValue(key, BlockEncoder.encode(block));
+        this.headerStore.setValue(key, BlockHeaderEncoder.encode(block.getHeader()));
+    }
+
+    public Block getBlock(Hash hash) throws IOException {
+        byte[] encoded = this.blockStore.getValue(hash.getBytes());
+
+        if (encoded == null)
+            return null;
+
+        return BlockEncoder.decode(encoded);
+    }
+
+    public BlockHeader getBlockHeader(Hash hash) throws IOException {
+        byte[] encoded = this.headerStore.getValue(hash.getBytes());
+
+        if (encoded == null)
+            return null;
+
+        return BlockHeaderEncoder.decode(encoded);
     }
 
-    public boolean containsBlock(Hash hash) {
-        return this.blocks.containsKey(hash);
+    public boolean containsBlock(Hash hash) throws IOException {
+        return this.headerStore.getValue(hash.getBytes()) != null;
     }
 }
@@ -14,6 +14,8 @@ import java.util.Map;
  * Created by ajlopez on 21/03/2020.
  */
 public class BlocksInformationStore {
+    public static final int KEY_LENGTH = Long.BYTES;
+
     private final KeyValueStore store;
 
     public BlocksInformationStore(KeyValueStore store) {
@@ -21,14 +23,14 @@ public class BlocksInformationStore {
     }
 
     public void put(long height, BlocksInformation blocksInformation) throws IOException {
-        byte[] key = ByteUtils.unsignedLongToNormalizedBytes(height);
+        byte[] key = ByteUtils.unsignedLongToBytes(height);
         byte[] encoded = BlocksInformationEncoder.encode(blocksInformation);
 
         this.store.setValue(key, encoded);
     }
 
     public BlocksInformation get(long height) throws IOException {
-        byte[] key = ByteUtils.unsignedLongToNormalizedBytes(height);
+        byte[] key = ByteUtils.unsignedLongToBytes(height);
 
         byte[] encoded = this.store.getValue(key);
 
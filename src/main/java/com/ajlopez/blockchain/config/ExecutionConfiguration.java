@@ -0,0 +1,64 @@
+package com.ajlopez.blockchain.config;
+
+import com.ajlopez.blockchain.state.Trie;
+
+public class ExecutionConfiguration {
+    private final boolean blockGasAccounting;
+    private final int compileThreshold;
+    private final int parallelHashThreshold;
+    private final int parallelExecutionThreads;
+
+    public ExecutionConfiguration() {
+        this(false);
+    }
+
+    // with block gas accounting, the static gas of each basic block is charged when the block is entered
+    // instead of the fee of each opcode, the gas used and the out of gas results are the same
+    public ExecutionConfiguration(boolean blockGasAccounting) {
+        this(blockGasAccounting, 0);
+    }
+
+    // contract code executed compileThreshold times is compiled to a JVM class, zero disables compilation
+    public ExecutionConfiguration(boolean blockGasAccounting, int compileThreshold) {
+        this(blockGasAccounting, compileThreshold, Trie.DEFAULT_PARALLEL_HASH_THRESHOLD);
+    }
+
+    // account subtries with at least parallelHashThreshold nodes to hash are hashed in parallel, zero disables it
+    public ExecutionConfiguration(boolean blockGasAccounting, int compileThreshold, int parallelHashThreshold) {
+        this(blockGasAccounting, compileThreshold, parallelHashThreshold, 0);
+    }
+
+    // the transactions of a block to validate are executed by parallelExecutionThreads threads, zero executes them in sequence
+    public ExecutionConfiguration(boolean blockGasAccounting, int compileThreshold, int parallelHashThreshold, int parallelExecutionThreads) {
+        if (compileThreshold < 0)
+            throw new IllegalArgumentException("Compile threshold cannot be negative");
+
+        if (parallelExecutionThreads < 0)
+            throw new IllegalArgumentException("Parallel execution threads cannot be negative");
+
+        // compiled code charges gas per block
+        if (compileThreshold > 0 && !blockGasAccounting)
+            throw new IllegalArgumentException("Compilation requires block gas accounting");
+
+        this.blockGasAccounting = blockGasAccounting;
+        this.compileThreshold = compileThreshold;
+        this.parallelHashThreshold = parallelHashThreshold;
+        this.parallelExecutionThreads = parallelExecutionThreads;
+    }
+
+    public boolean isBlockGasAccounting() {
+        return this.blockGasAccounting;
+    }
+
+    public int getCompileThreshold() {
+        return this.compileThreshold;
+    }
+
+    public int getParallelHashThreshold() {
+        return this.parallelHashThreshold;
+    }
+
+    public int getParallelExecutionThreads() {
+        return this.parallelExecutionThreads;
+    }
+}
@@ -112,4 +112,23 @@ public class Block {
 
         return trie.getHash();
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof Block))
+            return false;
+
+        return this.getHash().equals(((Block)obj).getHash());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.getHash().hashCode();
+    }
 }
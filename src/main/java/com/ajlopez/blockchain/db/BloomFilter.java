@@ -0,0 +1,140 @@
+package com.ajlopez.blockchain.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class BloomFilter {
+    private static final int MAGIC = 0x424a4246;
+    private static final int BITS_PER_KEY = 10;
+    private static final int NO_HASHES = 7;
+
+    private final AtomicLongArray bits;
+    private final long nbits;
+    private final long capacity;
+    private final AtomicLong count = new AtomicLong();
+
+    public BloomFilter(long capacity) {
+        this.capacity = capacity;
+        this.nbits = ((capacity * BITS_PER_KEY + Long.SIZE - 1) / Long.SIZE) * Long.SIZE;
+        this.bits = new AtomicLongArray((int)(this.nbits / Long.SIZE));
+    }
+
+    public void add(byte[] key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1) | 1;
+
+        for (int k = 0; k < NO_HASHES; k++) {
+            long bit = Long.remainderUnsigned(hash1 + k * hash2, this.nbits);
+            long mask = 1L << (bit % Long.SIZE);
+
+            this.bits.accumulateAndGet((int)(bit / Long.SIZE), mask, (x, y) -> x | y);
+        }
+
+        this.count.incrementAndGet();
+    }
+
+    public boolean mightContain(byte[] key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1) | 1;
+
+        for (int k = 0; k < NO_HASHES; k++) {
+            long bit = Long.remainderUnsigned(hash1 + k * hash2, this.nbits);
+
+            if ((this.bits.get((int)(bit / Long.SIZE)) & (1L << (bit % Long.SIZE))) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getCapacity() {
+        return this.capacity;
+    }
+
+    public boolean isFull() {
+        return this.count.get() >= this.capacity;
+    }
+
+    // expected rate for the keys already added: (1 - e^(-k n / m)) ^ k
+    public double getFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double)NO_HASHES * this.count.get() / this.nbits), NO_HASHES);
+    }
+
+    public void save(String name) throws IOException {
+        Path path = Paths.get(name);
+        Path newPath = Paths.get(name + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newPath.toFile())))) {
+            output.writeInt(MAGIC);
+            output.writeLong(this.capacity);
+            output.writeLong(this.count.get());
+
+            for (int k = 0; k < this.bits.length(); k++)
+                output.writeLong(this.bits.get(k));
+        }
+
+        Files.move(newPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static BloomFilter load(String name) throws IOException {
+        File file = new File(name);
+
+        if (!file.exists())
+            return null;
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC)
+                return null;
+
+            BloomFilter filter = new BloomFilter(input.readLong());
+
+            filter.count.set(input.readLong());
+
+            for (int k = 0; k < filter.bits.length(); k++)
+                filter.bits.set(k, input.readLong());
+
+            return filter;
+        }
+        catch (IOException ex) {
+            // a truncated filter is discarded, it can be rebuilt from the keys
+            return null;
+        }
+    }
+
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int k = 0; k < key.length; k++) {
+            hash ^= key[k] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -1,77 +1,424 @@
 package com.ajlopez.blockchain.db;
 
-import com.ajlopez.blockchain.utils.ByteArrayWrapper;
-
+import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  * Created by ajlopez on 21/10/2019.
  */
 public class KeyFile {
-    private final RandomAccessFile file;
+    private static final int MAGIC = 0x424a4b58;
+    private static final int VERSION = 1;
+
+    // magic, version, key length, capacity, count, removed count, end of the values
+    private static final int VERSION_OFFSET = Integer.BYTES;
+    private static final int KEY_LENGTH_OFFSET = Integer.BYTES * 2;
+    private static final int CAPACITY_OFFSET = Integer.BYTES * 3;
+    private static final int COUNT_OFFSET = CAPACITY_OFFSET + Long.BYTES;
+    private static final int REMOVED_OFFSET = COUNT_OFFSET + Long.BYTES;
+    private static final int VALUES_END_OFFSET = REMOVED_OFFSET + Long.BYTES;
+    private static final int HEADER_SIZE = VALUES_END_OFFSET + Long.BYTES;
+
+    private static final byte EMPTY_SLOT = 0;
+    private static final byte USED_SLOT = 1;
+    private static final byte REMOVED_SLOT = 2;
+    private static final long INITIAL_CAPACITY = 1024;
+    private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    private final String name;
     private final int keyLength;
-    private Map<ByteArrayWrapper, ValueInfo> keys = new HashMap<>();
+    private final int slotSize;
+
+    // readers share the lock, so they never see a slot that a writer is changing
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Index index;
 
     public KeyFile(String name, int keyLength) throws IOException {
-        this.file = new RandomAccessFile(name, "rw");
+        this.name = name;
         this.keyLength = keyLength;
+        // used flag, key, value position, value length
+        this.slotSize = 1 + keyLength + Long.BYTES + Integer.BYTES;
 
-        int blockSize = this.getBlockSize();
-        long nkeys = this.getNoKeys(blockSize);
+        File file = new File(name);
 
-        this.file.seek(0);
+        if (file.exists() && file.length() > 0)
+            this.index = new Index(file);
+        else
+            this.index = new Index(file, INITIAL_CAPACITY);
+    }
 
-        for (long k = 0; k < nkeys; k++) {
-            byte[] buffer = new byte[this.keyLength];
+    public void writeKey(byte[] key, long position, int length) throws IOException {
+        if (key == null || key.length != this.keyLength)
+            throw new IllegalArgumentException("invalid key");
+
+        this.lock.writeLock().lock();
 
-            this.file.read(buffer);
+        try {
+            if (this.index.findSlot(key) >= 0)
+                throw new IllegalStateException("key already exists");
 
-            long position = this.file.readLong();
-            int length = this.file.readInt();
+            if ((this.index.count + 1) * 4 > this.index.capacity * 3)
+                this.resize();
 
-            this.keys.put(new ByteArrayWrapper(buffer), new ValueInfo(position, length));
+            this.index.insert(key, position, length);
+        }
+        finally {
+            this.lock.writeLock().unlock();
         }
     }
 
-    private int getBlockSize() {
-        return this.keyLength + Long.BYTES + Integer.BYTES;
-    }
+    public boolean removeKey(byte[] key) {
+        this.lock.writeLock().lock();
 
-    private long getNoKeys(int blockSize) throws IOException {
-        return this.file.length() / blockSize;
+        try {
+            long slot = this.index.findSlot(key);
+
+            if (slot < 0)
+                return false;
+
+            this.index.remove(slot);
+
+            return true;
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
     }
 
-    public void writeKey(byte[] key, long position, int length) throws IOException {
+    public void updateKey(byte[] key, long position, int length) throws IOException {
         if (key == null || key.length != this.keyLength)
             throw new IllegalArgumentException("invalid key");
 
-        ByteArrayWrapper bakey = new ByteArrayWrapper(key);
+        this.lock.writeLock().lock();
 
-        if (this.keys.containsKey(bakey))
-            throw new IllegalStateException("key already exists");
+        try {
+            long slot = this.index.findSlot(key);
 
-        int blockSize = this.getBlockSize();
+            if (slot < 0)
+                throw new IllegalStateException("unknown key");
 
-        this.file.seek(this.getNoKeys(blockSize) * blockSize);
-        this.file.write(key);
-        this.file.writeLong(position);
-        this.file.writeInt(length);
-
-        this.keys.put(new ByteArrayWrapper(key), new ValueInfo(position, length));
+            this.index.update(slot, position, length);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
     }
 
     public ValueInfo readKey(byte[] key) throws IOException {
-        return this.keys.get(new ByteArrayWrapper(key));
+        this.lock.readLock().lock();
+
+        try {
+            long slot = this.index.findSlot(key);
+
+            if (slot < 0)
+                return null;
+
+            return this.index.readValueInfo(slot);
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
     }
 
     public boolean containsKey(byte[] key) {
-        return this.keys.containsKey(new ByteArrayWrapper(key));
+        this.lock.readLock().lock();
+
+        try {
+            return this.index.findSlot(key) >= 0;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // iterates the live index without taking the lock, so the consumer can remove keys
+    // a key written or removed during the iteration may or may not be visited
+    public void forEachKey(Consumer<byte[]> consumer) {
+        Index current = this.index;
+
+        for (long slot = 0; slot < current.capacity; slot++) {
+            if (current.getFlag(slot) != USED_SLOT)
+                continue;
+
+            byte[] key = new byte[this.keyLength];
+            current.readKeyBytes(slot, key);
+            consumer.accept(key);
+        }
+    }
+
+    public long size() {
+        Index current = this.index;
+
+        return current.count - current.removed;
+    }
+
+    // the end of the last value written for a key, saved with the slots
+    public long getValuesEnd() {
+        return this.index.valuesEnd;
+    }
+
+    public void flush() throws IOException {
+        this.lock.writeLock().lock();
+
+        try {
+            this.index.flush();
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
     }
 
     public void close() throws IOException {
-        this.file.close();
+        this.lock.writeLock().lock();
+
+        try {
+            this.index.flush();
+            this.index.close();
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // called holding the write lock
+    private void resize() throws IOException {
+        Index current = this.index;
+        Path path = Paths.get(this.name);
+        Path newPath = Paths.get(this.name + ".tmp");
+
+        long capacity = current.capacity;
+
+        // removed slots are dropped, so the table only grows if it is still half full
+        if ((current.count - current.removed + 1) * 2 > capacity)
+            capacity *= 2;
+
+        Index newIndex = new Index(newPath.toFile(), capacity);
+
+        byte[] key = new byte[this.keyLength];
+
+        for (long slot = 0; slot < current.capacity; slot++) {
+            if (current.getFlag(slot) != USED_SLOT)
+                continue;
+
+            current.readKeyBytes(slot, key);
+            ValueInfo valueInfo = current.readValueInfo(slot);
+            newIndex.insert(key, valueInfo.position, valueInfo.length);
+        }
+
+        newIndex.flush();
+        current.close();
+
+        Files.move(newPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        this.index = newIndex;
+    }
+
+    private long hashKey(byte[] key) {
+        long hash = 0;
+
+        for (int k = 0; k < Long.BYTES && k < key.length; k++)
+            hash = (hash << 8) | (key[k] & 0xff);
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    private class Index {
+        private final RandomAccessFile file;
+        private final MappedByteBuffer header;
+        private final MappedByteBuffer[] segments;
+        private final int slotsPerSegment;
+        private final long capacity;
+        private volatile long count;
+        private volatile long removed;
+        private volatile long valuesEnd;
+
+        private Index(File file, long capacity) throws IOException {
+            this.file = new RandomAccessFile(file, "rw");
+            this.file.setLength(0);
+            this.file.setLength(HEADER_SIZE + capacity * slotSize);
+            this.capacity = capacity;
+            this.slotsPerSegment = MAX_SEGMENT_SIZE / slotSize;
+            this.header = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            this.segments = this.mapSegments();
+
+            this.header.putInt(0, MAGIC);
+            this.header.putInt(VERSION_OFFSET, VERSION);
+            this.header.putInt(KEY_LENGTH_OFFSET, keyLength);
+            this.header.putLong(CAPACITY_OFFSET, capacity);
+            this.header.putLong(COUNT_OFFSET, 0);
+            this.header.putLong(REMOVED_OFFSET, 0);
+            this.header.putLong(VALUES_END_OFFSET, 0);
+        }
+
+        private Index(File file) throws IOException {
+            this.file = new RandomAccessFile(file, "rw");
+
+            if (this.file.length() < HEADER_SIZE)
+                throw new IllegalStateException("invalid key file");
+
+            this.header = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+            if (this.header.getInt(0) != MAGIC)
+                throw new IllegalStateException("invalid key file");
+
+            if (this.header.getInt(VERSION_OFFSET) != VERSION)
+                throw new IllegalStateException("unsupported key file version " + this.header.getInt(VERSION_OFFSET));
+
+            if (this.header.getInt(KEY_LENGTH_OFFSET) != keyLength)
+                throw new IllegalStateException("invalid key length");
+
+            this.capacity = this.header.getLong(CAPACITY_OFFSET);
+            this.count = this.header.getLong(COUNT_OFFSET);
+            this.removed = this.header.getLong(REMOVED_OFFSET);
+            this.valuesEnd = this.header.getLong(VALUES_END_OFFSET);
+            this.slotsPerSegment = MAX_SEGMENT_SIZE / slotSize;
+            this.segments = this.mapSegments();
+        }
+
+        private MappedByteBuffer[] mapSegments() throws IOException {
+            int nsegments = (int)((this.capacity + this.slotsPerSegment - 1) / this.slotsPerSegment);
+            MappedByteBuffer[] buffers = new MappedByteBuffer[nsegments];
+
+            for (int k = 0; k < nsegments; k++) {
+                long firstSlot = (long)k * this.slotsPerSegment;
+                long nslots = Math.min(this.slotsPerSegment, this.capacity - firstSlot);
+
+                buffers[k] = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + firstSlot * slotSize, nslots * slotSize);
+            }
+
+            return buffers;
+        }
+
+        private MappedByteBuffer getSegment(long slot) {
+            return this.segments[(int)(slot / this.slotsPerSegment)];
+        }
+
+        private int getOffset(long slot) {
+            return (int)(slot % this.slotsPerSegment) * slotSize;
+        }
+
+        private byte getFlag(long slot) {
+            return this.getSegment(slot).get(this.getOffset(slot));
+        }
+
+        private boolean hasKey(long slot, byte[] key) {
+            MappedByteBuffer segment = this.getSegment(slot);
+            int offset = this.getOffset(slot) + 1;
+
+            for (int k = 0; k < key.length; k++)
+                if (segment.get(offset + k) != key[k])
+                    return false;
+
+            return true;
+        }
+
+        private long findSlot(byte[] key) {
+            if (key == null || key.length != keyLength || this.count == 0)
+                return -1;
+
+            long mask = this.capacity - 1;
+
+            // removed slots keep the probe chain going
+            for (long slot = hashKey(key) & mask;; slot = (slot + 1) & mask) {
+                byte flag = this.getFlag(slot);
+
+                if (flag == EMPTY_SLOT)
+                    return -1;
+
+                if (flag == USED_SLOT && this.hasKey(slot, key))
+                    return slot;
+            }
+        }
+
+        private void readKeyBytes(long slot, byte[] key) {
+            MappedByteBuffer segment = this.getSegment(slot);
+            int offset = this.getOffset(slot) + 1;
+
+            for (int k = 0; k < key.length; k++)
+                key[k] = segment.get(offset + k);
+        }
+
+        private ValueInfo readValueInfo(long slot) {
+            MappedByteBuffer segment = this.getSegment(slot);
+            int offset = this.getOffset(slot) + 1 + keyLength;
+
+            return new ValueInfo(segment.getLong(offset), segment.getInt(offset + Long.BYTES));
+        }
+
+        private void insert(byte[] key, long position, int length) {
+            long mask = this.capacity - 1;
+            long slot = hashKey(key) & mask;
+
+            while (this.getFlag(slot) != EMPTY_SLOT)
+                slot = (slot + 1) & mask;
+
+            MappedByteBuffer segment = this.getSegment(slot);
+            int offset = this.getOffset(slot);
+
+            for (int k = 0; k < key.length; k++)
+                segment.put(offset + 1 + k, key[k]);
+
+            segment.putLong(offset + 1 + keyLength, position);
+            segment.putInt(offset + 1 + keyLength + Long.BYTES, length);
+
+            // used flag written last, so a partially written slot is never visible
+            segment.put(offset, USED_SLOT);
+
+            this.count++;
+            this.header.putLong(COUNT_OFFSET, this.count);
+
+            this.extendValues(position + length);
+        }
+
+        private void remove(long slot) {
+            this.getSegment(slot).put(this.getOffset(slot), REMOVED_SLOT);
+
+            this.removed++;
+            this.header.putLong(REMOVED_OFFSET, this.removed);
+        }
+
+        private void update(long slot, long position, int length) {
+            MappedByteBuffer segment = this.getSegment(slot);
+            int offset = this.getOffset(slot) + 1 + keyLength;
+
+            segment.putLong(offset, position);
+            segment.putInt(offset + Long.BYTES, length);
+
+            this.extendValues(position + length);
+        }
+
+        private void extendValues(long end) {
+            if (end <= this.valuesEnd)
+                return;
+
+            this.valuesEnd = end;
+            this.header.putLong(VALUES_END_OFFSET, end);
+        }
+
+        private void flush() {
+            for (MappedByteBuffer segment : this.segments)
+                segment.force();
+
+            this.header.force();
+        }
+
+        private void close() throws IOException {
+            this.file.close();
+        }
     }
 }
@@ -1,39 +1,145 @@
 package com.ajlopez.blockchain.db;
 
 import com.ajlopez.blockchain.store.KeyValueStore;
+import com.ajlopez.blockchain.store.WriteBatch;
+import com.ajlopez.blockchain.utils.ByteArrayWrapper;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Created by ajlopez on 20/10/2019.
  */
-public class KeyValueDb implements KeyValueStore {
+public final class KeyValueDb implements KeyValueStore {
+    private static final long LOG_CHECKPOINT_SIZE = 1 << 26;
+    private static final long BLOOM_FILTER_INITIAL_CAPACITY = 1024;
+
     private final ValueFile valueFile;
     private final KeyFile keyFile;
+    private final WriteAheadLog log;
+    private final int keyLength;
+    private final boolean updatable;
+    private final String bloomFilterName;
+
+    private volatile BloomFilter bloomFilter;
 
     public KeyValueDb(String name, int keyLength) throws IOException {
+        this(name, keyLength, false);
+    }
+
+    public KeyValueDb(String name, int keyLength, boolean updatable) throws IOException {
+        this(name, keyLength, updatable, false);
+    }
+
+    public KeyValueDb(String name, int keyLength, boolean updatable, boolean withBloomFilter) throws IOException {
+        this.updatable = updatable;
         this.valueFile = new ValueFile(name + ".values");
         this.keyFile = new KeyFile(name + ".keys", keyLength);
+        this.valueFile.truncate(this.keyFile.getValuesEnd());
+        this.log = new WriteAheadLog(name + ".log");
+        this.keyLength = keyLength;
+        this.bloomFilterName = withBloomFilter ? name + ".bloom" : null;
+
+        if (withBloomFilter)
+            this.openBloomFilter();
+
+        // the saved filter only matches the keys of a clean close, it is saved again by close
+        Files.deleteIfExists(Paths.get(name + ".bloom"));
+
+        this.recover();
     }
 
     @Override
-    public void setValue(byte[] key, byte[] value) throws IOException {
+    public synchronized void setValue(byte[] key, byte[] value) throws IOException {
         if (this.keyFile.containsKey(key)) {
             byte[] oldvalue = this.getValue(key);
 
-            if (!Arrays.equals(value, oldvalue))
+            if (Arrays.equals(value, oldvalue))
+                return;
+
+            if (!this.updatable)
                 throw new IllegalStateException("cannot change value for key");
+        }
+
+        this.writeValue(key, value);
+    }
+
+    // the value bytes are left in the value file, only the key is dropped from the index
+    @Override
+    public synchronized void removeValue(byte[] key) {
+        this.keyFile.removeKey(key);
+    }
+
+    @Override
+    public void forEachKey(Consumer<byte[]> consumer) {
+        this.keyFile.forEachKey(consumer);
+    }
+
+    @Override
+    public synchronized void writeBatch(WriteBatch batch) throws IOException {
+        List<byte[]> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        int size = Integer.BYTES;
+
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : batch.getValues().entrySet()) {
+            byte[] key = entry.getKey().getBytes();
+            byte[] value = entry.getValue();
+
+            if (key == null || key.length != this.keyLength)
+                throw new IllegalArgumentException("invalid key");
 
+            if (this.keyFile.containsKey(key)) {
+                if (Arrays.equals(value, this.getValue(key)))
+                    continue;
+
+                if (!this.updatable)
+                    throw new IllegalStateException("cannot change value for key");
+            }
+
+            keys.add(key);
+            values.add(value);
+            size += this.keyLength + Integer.BYTES + value.length;
+        }
+
+        if (keys.isEmpty())
             return;
+
+        ByteBuffer record = ByteBuffer.allocate(size);
+
+        record.putInt(keys.size());
+
+        for (int k = 0; k < keys.size(); k++) {
+            record.put(keys.get(k));
+            record.putInt(values.get(k).length);
+            record.put(values.get(k));
         }
 
-        long position = this.valueFile.writeValue(value);
-        this.keyFile.writeKey(key, position, value.length);
+        this.log.append(record.array());
+
+        for (int k = 0; k < keys.size(); k++)
+            this.setValue(keys.get(k), values.get(k));
+
+        if (this.log.size() >= LOG_CHECKPOINT_SIZE)
+            this.checkpoint();
+    }
+
+    @Override
+    public boolean containsKey(byte[] key) {
+        return this.mightContain(key) && this.keyFile.containsKey(key);
     }
 
     @Override
     public byte[] getValue(byte[] key) throws IOException {
+        if (!this.mightContain(key))
+            return null;
+
         ValueInfo valueInfo = this.keyFile.readKey(key);
 
         if (valueInfo == null)
@@ -41,9 +147,118 @@ public class KeyValueDb implements KeyValueStore {
 
         byte[] buffer = new byte[valueInfo.length];
 
-        // TODO Check read
         int read = this.valueFile.readValue(valueInfo.position, buffer);
 
+        if (read != valueInfo.length && valueInfo.length > 0)
+            throw new IllegalStateException("incomplete value");
+
         return buffer;
     }
+
+    public ByteBuffer getValueSlice(byte[] key) throws IOException {
+        if (!this.mightContain(key))
+            return null;
+
+        ValueInfo valueInfo = this.keyFile.readKey(key);
+
+        if (valueInfo == null)
+            return null;
+
+        return this.valueFile.readSlice(valueInfo.position, valueInfo.length);
+    }
+
+    public BloomFilter getBloomFilter() {
+        return this.bloomFilter;
+    }
+
+    public synchronized void flush() throws IOException {
+        this.valueFile.flush();
+        this.keyFile.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        this.checkpoint();
+        this.valueFile.close();
+        this.keyFile.close();
+        this.log.close();
+
+        if (this.bloomFilter != null)
+            this.bloomFilter.save(this.bloomFilterName);
+    }
+
+    private void checkpoint() throws IOException {
+        this.flush();
+        this.log.clear();
+    }
+
+    private void writeValue(byte[] key, byte[] value) throws IOException {
+        long position = this.valueFile.writeValue(value);
+
+        if (this.keyFile.containsKey(key)) {
+            this.keyFile.updateKey(key, position, value.length);
+            return;
+        }
+
+        this.addToBloomFilter(key);
+        this.keyFile.writeKey(key, position, value.length);
+    }
+
+    private boolean mightContain(byte[] key) {
+        BloomFilter filter = this.bloomFilter;
+
+        return filter == null || key == null || filter.mightContain(key);
+    }
+
+    private void openBloomFilter() throws IOException {
+        BloomFilter filter = BloomFilter.load(this.bloomFilterName);
+
+        // a missing filter, or one with fewer keys than the index, is rebuilt from the keys
+        if (filter == null || filter.getCount() < this.keyFile.size())
+            this.rebuildBloomFilter();
+        else
+            this.bloomFilter = filter;
+    }
+
+    private void addToBloomFilter(byte[] key) {
+        if (this.bloomFilter == null)
+            return;
+
+        if (this.bloomFilter.isFull())
+            this.rebuildBloomFilter();
+
+        this.bloomFilter.add(key);
+    }
+
+    private void rebuildBloomFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(BLOOM_FILTER_INITIAL_CAPACITY, (this.keyFile.size() + 1) * 2));
+
+        this.keyFile.forEachKey(filter::add);
+
+        this.bloomFilter = filter;
+    }
+
+    private void recover() throws IOException {
+        List<byte[]> records = this.log.readRecords();
+
+        if (records.isEmpty())
+            return;
+
+        for (byte[] bytes : records) {
+            ByteBuffer record = ByteBuffer.wrap(bytes);
+            int nkeys = record.getInt();
+
+            for (int k = 0; k < nkeys; k++) {
+                byte[] key = new byte[this.keyLength];
+                record.get(key);
+
+                byte[] value = new byte[record.getInt()];
+                record.get(value);
+
+                // the index could already have the key pointing to a value that was not persisted
+                this.writeValue(key, value);
+            }
+        }
+
+        this.checkpoint();
+    }
 }
@@ -1,35 +1,136 @@
 package com.ajlopez.blockchain.db;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 /**
  * Created by ajlopez on 20/10/2019.
  */
 public class ValueFile {
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 26;
+
     private final RandomAccessFile file;
+    private final int segmentSize;
+
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long length;
+
+    public ValueFile(String name) throws IOException {
+        this(name, DEFAULT_SEGMENT_SIZE);
+    }
 
-    public ValueFile(String name) throws FileNotFoundException {
+    public ValueFile(String name, int segmentSize) throws IOException {
         this.file = new RandomAccessFile(name, "rw");
+        this.segmentSize = segmentSize;
+        this.length = this.file.length();
+        this.mapSegments(this.length);
     }
 
-    public void close() throws IOException {
+    public synchronized void flush() {
+        for (MappedByteBuffer segment : this.segments)
+            segment.force();
+    }
+
+    public synchronized void close() throws IOException {
+        this.flush();
+        this.segments = new MappedByteBuffer[0];
+        this.file.setLength(this.length);
         this.file.close();
     }
 
-    public long writeValue(byte[] value) throws IOException {
-        long length = this.file.length();
+    // the mapped segments extend the file beyond its values, so after a crash its end is recovered from the keys
+    // a greater length leaves the file unchanged
+    public synchronized void truncate(long length) {
+        if (length < this.length)
+            this.length = length;
+    }
+
+    public synchronized long writeValue(byte[] value) throws IOException {
+        long position = this.length;
 
-        this.file.seek(length);
-        this.file.write(value);
+        this.mapSegments(position + value.length);
 
-        return length;
+        MappedByteBuffer[] current = this.segments;
+        int offset = 0;
+
+        while (offset < value.length) {
+            long target = position + offset;
+            int segmentOffset = (int)(target % this.segmentSize);
+            int count = Math.min(value.length - offset, this.segmentSize - segmentOffset);
+
+            ByteBuffer segment = current[(int)(target / this.segmentSize)].duplicate();
+            segment.position(segmentOffset);
+            segment.put(value, offset, count);
+
+            offset += count;
+        }
+
+        // volatile write publishes the value bytes to readers
+        this.length = position + value.length;
+
+        return position;
     }
 
     public int readValue(long position, byte[] buffer) throws IOException {
-        this.file.seek(position);
+        long available = this.length - position;
+        MappedByteBuffer[] current = this.segments;
+
+        if (available <= 0)
+            return -1;
+
+        int total = (int)Math.min(buffer.length, available);
+        int offset = 0;
+
+        while (offset < total) {
+            long source = position + offset;
+            int segmentOffset = (int)(source % this.segmentSize);
+            int count = Math.min(total - offset, this.segmentSize - segmentOffset);
+
+            ByteBuffer segment = current[(int)(source / this.segmentSize)].duplicate();
+            segment.position(segmentOffset);
+            segment.get(buffer, offset, count);
+
+            offset += count;
+        }
+
+        return total;
+    }
+
+    public ByteBuffer readSlice(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > this.length)
+            throw new IllegalArgumentException("invalid value range");
+
+        MappedByteBuffer[] current = this.segments;
+        int segmentOffset = (int)(position % this.segmentSize);
+
+        if (segmentOffset + length > this.segmentSize) {
+            byte[] buffer = new byte[length];
+            this.readValue(position, buffer);
+            return ByteBuffer.wrap(buffer).asReadOnlyBuffer();
+        }
+
+        ByteBuffer segment = current[(int)(position / this.segmentSize)].asReadOnlyBuffer();
+        segment.position(segmentOffset);
+        segment.limit(segmentOffset + length);
+
+        return segment.slice();
+    }
+
+    private void mapSegments(long size) throws IOException {
+        int nsegments = (int)((size + this.segmentSize - 1) / this.segmentSize);
+
+        if (nsegments <= this.segments.length)
+            return;
+
+        MappedByteBuffer[] newSegments = Arrays.copyOf(this.segments, nsegments);
+
+        for (int k = this.segments.length; k < nsegments; k++)
+            newSegments[k] = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, (long)k * this.segmentSize, this.segmentSize);
 
-        return this.file.read(buffer);
+        this.segments = newSegments;
     }
 }
@@ -0,0 +1,84 @@
+package com.ajlopez.blockchain.db;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class WriteAheadLog {
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final RandomAccessFile file;
+
+    public WriteAheadLog(String name) throws IOException {
+        this.file = new RandomAccessFile(name, "rw");
+    }
+
+    public synchronized void append(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.length);
+
+        buffer.putInt(record.length);
+        buffer.putLong(checksum(record));
+        buffer.put(record);
+
+        long position = this.file.length();
+
+        this.file.seek(position);
+        this.file.write(buffer.array());
+        this.file.getChannel().force(false);
+    }
+
+    public synchronized List<byte[]> readRecords() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long length = this.file.length();
+        long position = 0;
+
+        this.file.seek(0);
+
+        while (position + RECORD_HEADER_SIZE <= length) {
+            int recordLength = this.file.readInt();
+            long recordChecksum = this.file.readLong();
+
+            if (recordLength < 0 || position + RECORD_HEADER_SIZE + recordLength > length)
+                break;
+
+            byte[] record = new byte[recordLength];
+            this.file.readFully(record);
+
+            if (checksum(record) != recordChecksum)
+                break;
+
+            records.add(record);
+            position += RECORD_HEADER_SIZE + recordLength;
+        }
+
+        // drops a torn record left by an interrupted append
+        if (position < length)
+            this.file.setLength(position);
+
+        return records;
+    }
+
+    public synchronized long size() throws IOException {
+        return this.file.length();
+    }
+
+    public synchronized void clear() throws IOException {
+        this.file.setLength(0);
+        this.file.getChannel().force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        this.file.close();
+    }
+
+    private static long checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+
+        crc.update(record);
+
+        return crc.getValue();
+    }
+}
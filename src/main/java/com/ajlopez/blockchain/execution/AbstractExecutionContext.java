@@ -67,15 +67,13 @@ public abstract class AbstractExecutionContext implements ExecutionContext {
             }
         }
 
-        for (Map.Entry<Address, AccountState> entry : this.accountStates.entrySet()) {
-            Address address = entry.getKey();
-            AccountState accountState = entry.getValue();
+        Map<Address, AccountState> changedAccountStates = new HashMap<>();
 
-            if (!accountState.wasChanged())
-                continue;
+        for (Map.Entry<Address, AccountState> entry : this.accountStates.entrySet())
+            if (entry.getValue().wasChanged())
+                changedAccountStates.put(entry.getKey(), entry.getValue());
 
-            this.updateAccountState(address, accountState);
-        }
+        this.updateAccountStates(changedAccountStates);
 
         this.accountStorages.clear();
         this.accountStates.clear();
@@ -148,6 +146,11 @@ public abstract class AbstractExecutionContext implements ExecutionContext {
 
     abstract void updateAccountState(Address address, AccountState accountState) throws IOException;
 
+    void updateAccountStates(Map<Address, AccountState> accountStates) throws IOException {
+        for (Map.Entry<Address, AccountState> entry : accountStates.entrySet())
+            this.updateAccountState(entry.getKey(), entry.getValue());
+    }
+
     abstract void updateCode(Hash hash, byte[] code) throws IOException;
 
     abstract public Storage retrieveAccountStorage(Address address) throws IOException;
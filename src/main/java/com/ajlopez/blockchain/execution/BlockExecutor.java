@@ -1,14 +1,17 @@
 package com.ajlopez.blockchain.execution;
 
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.core.Block;
 import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.store.AccountStore;
 import com.ajlopez.blockchain.store.AccountStoreProvider;
 import com.ajlopez.blockchain.store.CodeStore;
 import com.ajlopez.blockchain.vms.eth.BlockData;
+import com.ajlopez.blockchain.vms.eth.CodeAnalysisCache;
 import com.ajlopez.blockchain.vms.eth.TrieStorageProvider;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Created by ajlopez on 30/05/2019.
@@ -17,21 +20,39 @@ public class BlockExecutor {
     private final AccountStoreProvider accountStoreProvider;
     private final TrieStorageProvider trieStorageProvider;
     private final CodeStore codeStore;
+    private final ExecutorService executor;
+    private final CodeAnalysisCache codeAnalysisCache;
+    private final ExecutionConfiguration executionConfiguration;
 
     public BlockExecutor(AccountStoreProvider accountStoreProvider, TrieStorageProvider trieStorageProvider, CodeStore codeStore) {
+        this(accountStoreProvider, trieStorageProvider, codeStore, null);
+    }
+
+    public BlockExecutor(AccountStoreProvider accountStoreProvider, TrieStorageProvider trieStorageProvider, CodeStore codeStore, ExecutorService executor) {
+        this(accountStoreProvider, trieStorageProvider, codeStore, executor, new CodeAnalysisCache(CodeAnalysisCache.DEFAULT_SIZE), new ExecutionConfiguration());
+    }
+
+    // with an executor, the transactions of a block are executed in parallel
+    // the code analysis cache can be shared with other executors, ie the miner one
+    public BlockExecutor(AccountStoreProvider accountStoreProvider, TrieStorageProvider trieStorageProvider, CodeStore codeStore, ExecutorService executor, CodeAnalysisCache codeAnalysisCache, ExecutionConfiguration executionConfiguration) {
         this.accountStoreProvider = accountStoreProvider;
         this.trieStorageProvider = trieStorageProvider;
         this.codeStore = codeStore;
+        this.executor = executor;
+        this.codeAnalysisCache = codeAnalysisCache;
+        this.executionConfiguration = executionConfiguration;
     }
 
     public Hash executeBlock(Block block, Hash initialStateRoot) throws IOException {
         AccountStore accountStore = this.accountStoreProvider.retrieve(initialStateRoot);
 
-        ExecutionContext executionContext = new TopExecutionContext(accountStore, this.trieStorageProvider, this.codeStore);
-        TransactionExecutor transactionExecutor = new TransactionExecutor(executionContext);
-
+        TopExecutionContext executionContext = new TopExecutionContext(accountStore, this.trieStorageProvider, this.codeStore);
         BlockData blockData = new BlockData(block.getNumber(), block.getTimestamp(), block.getCoinbase(), block.getDifficulty());
-        transactionExecutor.executeTransactions(block.getTransactions(), blockData);
+
+        if (this.executor != null)
+            new ParallelTransactionExecutor(executionContext, this.executor, this.codeAnalysisCache, this.executionConfiguration).executeTransactions(block.getTransactions(), blockData);
+        else
+            new TransactionExecutor(executionContext, this.codeAnalysisCache, this.executionConfiguration).executeTransactions(block.getTransactions(), blockData);
 
         return accountStore.getRootHash();
     }
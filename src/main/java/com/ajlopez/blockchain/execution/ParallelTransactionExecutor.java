@@ -0,0 +1,111 @@
+package com.ajlopez.blockchain.execution;
+
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
+import com.ajlopez.blockchain.core.Transaction;
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.DataWord;
+import com.ajlopez.blockchain.vms.eth.BlockData;
+import com.ajlopez.blockchain.vms.eth.CodeAnalysisCache;
+import com.ajlopez.blockchain.vms.eth.ExecutionResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class ParallelTransactionExecutor {
+    private final AbstractExecutionContext executionContext;
+    private final ExecutorService executor;
+    private final CodeAnalysisCache codeAnalysisCache;
+    private final ExecutionConfiguration executionConfiguration;
+
+    public ParallelTransactionExecutor(AbstractExecutionContext executionContext, ExecutorService executor) {
+        this(executionContext, executor, null, new ExecutionConfiguration());
+    }
+
+    public ParallelTransactionExecutor(AbstractExecutionContext executionContext, ExecutorService executor, CodeAnalysisCache codeAnalysisCache, ExecutionConfiguration executionConfiguration) {
+        this.executionContext = executionContext;
+        this.executor = executor;
+        this.codeAnalysisCache = codeAnalysisCache;
+        this.executionConfiguration = executionConfiguration;
+    }
+
+    // every transaction is executed at the same time over the initial state, then the executions are committed in block order
+    // an execution that read an account or slot written by a previous transaction is discarded and executed again
+    public List<TransactionResult> executeTransactions(List<Transaction> transactions, BlockData blockData) throws IOException {
+        List<Future<SpeculativeExecution>> futures = new ArrayList<>();
+
+        for (Transaction transaction : transactions)
+            futures.add(this.executor.submit(() -> this.execute(transaction, blockData)));
+
+        List<SpeculativeExecution> executions = new ArrayList<>();
+
+        for (Future<SpeculativeExecution> future : futures)
+            executions.add(getExecution(future));
+
+        List<TransactionResult> executed = new ArrayList<>();
+        Set<Address> writtenAccounts = new HashSet<>();
+        Map<Address, Set<DataWord>> writtenSlots = new HashMap<>();
+
+        for (int k = 0; k < transactions.size(); k++) {
+            Transaction transaction = transactions.get(k);
+            SpeculativeExecution execution = executions.get(k);
+
+            if (execution.context.readsFrom(writtenAccounts, writtenSlots))
+                execution = this.execute(transaction, blockData);
+
+            execution.context.commit();
+
+            writtenAccounts.addAll(execution.context.getWrittenAccounts());
+
+            for (Map.Entry<Address, Set<DataWord>> entry : execution.context.getWrittenSlots().entrySet())
+                writtenSlots.computeIfAbsent(entry.getKey(), address -> new HashSet<>()).addAll(entry.getValue());
+
+            if (execution.result != null)
+                executed.add(new TransactionResult(transaction, execution.result));
+        }
+
+        this.executionContext.commit();
+
+        return executed;
+    }
+
+    private SpeculativeExecution execute(Transaction transaction, BlockData blockData) throws IOException {
+        SpeculativeExecutionContext context = new SpeculativeExecutionContext(this.executionContext, blockData.getCoinbase());
+        ExecutionResult result = new TransactionExecutor(context, this.codeAnalysisCache, this.executionConfiguration).executeTransaction(transaction, blockData);
+
+        return new SpeculativeExecution(context, result);
+    }
+
+    private static SpeculativeExecution getExecution(Future<SpeculativeExecution> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+        catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException)
+                throw (IOException)ex.getCause();
+
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    private static class SpeculativeExecution {
+        private final SpeculativeExecutionContext context;
+        private final ExecutionResult result;
+
+        private SpeculativeExecution(SpeculativeExecutionContext context, ExecutionResult result) {
+            this.context = context;
+            this.result = result;
+        }
+    }
+}
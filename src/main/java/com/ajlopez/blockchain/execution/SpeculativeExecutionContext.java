@@ -0,0 +1,166 @@
+package com.ajlopez.blockchain.execution;
+
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.Coin;
+import com.ajlopez.blockchain.core.types.DataWord;
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.vms.eth.ChildMapStorage;
+import com.ajlopez.blockchain.vms.eth.Storage;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class SpeculativeExecutionContext extends AbstractExecutionContext {
+    // a transaction context over the block context, that records the accounts and storage slots it reads and writes
+    // the block context is shared with the other speculative executions, so it is only accessed holding its lock
+    private final AbstractExecutionContext parentContext;
+    private final Address coinbase;
+
+    private final Set<Address> readAccounts = new HashSet<>();
+    private final Map<Address, Set<DataWord>> readSlots = new HashMap<>();
+    private final Set<Address> writtenAccounts = new HashSet<>();
+    private final Map<Address, Set<DataWord>> writtenSlots = new HashMap<>();
+
+    private Coin coinbaseCredit = Coin.ZERO;
+
+    public SpeculativeExecutionContext(AbstractExecutionContext parentContext, Address coinbase) {
+        this.parentContext = parentContext;
+        this.coinbase = coinbase;
+    }
+
+    // the gas payment to the coinbase is added at commit, so every transaction does not read the coinbase account
+    @Override
+    public void transfer(Address senderAddress, Address receiverAddress, Coin amount) throws IOException {
+        if (!receiverAddress.equals(this.coinbase)) {
+            super.transfer(senderAddress, receiverAddress, amount);
+            return;
+        }
+
+        this.getAccountState(senderAddress).subtractFromBalance(amount);
+        this.coinbaseCredit = this.coinbaseCredit.add(amount);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        super.commit();
+
+        if (this.coinbaseCredit.isZero())
+            return;
+
+        this.parentContext.getAccountState(this.coinbase).addToBalance(this.coinbaseCredit);
+        this.writtenAccounts.add(this.coinbase);
+        this.coinbaseCredit = Coin.ZERO;
+    }
+
+    // true if this execution read an account or slot written by the given contexts
+    public boolean readsFrom(Set<Address> accounts, Map<Address, Set<DataWord>> slots) {
+        for (Address address : this.readAccounts)
+            if (accounts.contains(address))
+                return true;
+
+        for (Map.Entry<Address, Set<DataWord>> entry : this.readSlots.entrySet()) {
+            Set<DataWord> written = slots.get(entry.getKey());
+
+            if (written == null)
+                continue;
+
+            for (DataWord key : entry.getValue())
+                if (written.contains(key))
+                    return true;
+        }
+
+        return false;
+    }
+
+    public Set<Address> getWrittenAccounts() {
+        return this.writtenAccounts;
+    }
+
+    public Map<Address, Set<DataWord>> getWrittenSlots() {
+        return this.writtenSlots;
+    }
+
+    @Override
+    AccountState retrieveAccountState(Address address) throws IOException {
+        this.readAccounts.add(address);
+
+        synchronized (this.parentContext) {
+            // a new state, not marked as changed, so only the accounts changed here are written back
+            return AccountState.fromAccount(this.parentContext.getAccountState(address).toAccount());
+        }
+    }
+
+    @Override
+    void updateAccountState(Address address, AccountState accountState) throws IOException {
+        this.parentContext.setAccountState(address, accountState);
+        this.writtenAccounts.add(address);
+    }
+
+    @Override
+    void updateCode(Hash hash, byte[] code) throws IOException {
+        this.parentContext.setCode(hash, code);
+    }
+
+    @Override
+    public Storage retrieveAccountStorage(Address address) throws IOException {
+        Storage parentStorage;
+
+        synchronized (this.parentContext) {
+            parentStorage = this.parentContext.getAccountStorage(address);
+        }
+
+        return new ChildMapStorage(new TrackedStorage(address, parentStorage));
+    }
+
+    @Override
+    public byte[] retrieveCode(Hash hash) throws IOException {
+        synchronized (this.parentContext) {
+            return this.parentContext.getCode(hash);
+        }
+    }
+
+    private class TrackedStorage implements Storage {
+        private final Address address;
+        private final Storage storage;
+
+        private TrackedStorage(Address address, Storage storage) {
+            this.address = address;
+            this.storage = storage;
+        }
+
+        @Override
+        public boolean hasValue(DataWord key) throws IOException {
+            readSlots.computeIfAbsent(this.address, address -> new HashSet<>()).add(key);
+
+            synchronized (parentContext) {
+                return this.storage.hasValue(key);
+            }
+        }
+
+        @Override
+        public void setValue(DataWord key, DataWord value) throws IOException {
+            writtenSlots.computeIfAbsent(this.address, address -> new HashSet<>()).add(key);
+
+            synchronized (parentContext) {
+                this.storage.setValue(key, value);
+            }
+        }
+
+        @Override
+        public DataWord getValue(DataWord key) throws IOException {
+            readSlots.computeIfAbsent(this.address, address -> new HashSet<>()).add(key);
+
+            synchronized (parentContext) {
+                return this.storage.getValue(key);
+            }
+        }
+
+        @Override
+        public void commit() throws IOException {
+
+        }
+    }
+}
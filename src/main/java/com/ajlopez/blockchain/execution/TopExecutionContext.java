@@ -1,5 +1,6 @@
 package com.ajlopez.blockchain.execution;
 
+import com.ajlopez.blockchain.core.Account;
 import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.store.AccountStore;
@@ -9,6 +10,8 @@ import com.ajlopez.blockchain.vms.eth.Storage;
 import com.ajlopez.blockchain.vms.eth.TrieStorageProvider;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by ajlopez on 26/11/2018.
@@ -35,6 +38,18 @@ public class TopExecutionContext extends AbstractExecutionContext {
         this.accountStore.putAccount(address, accountState.toAccount());
     }
 
+    @Override
+    void updateAccountStates(Map<Address, AccountState> accountStates) throws IOException {
+        Map<Address, Account> accounts = new HashMap<>();
+
+        for (Map.Entry<Address, AccountState> entry : accountStates.entrySet())
+            accounts.put(entry.getKey(), entry.getValue().toAccount());
+
+        this.accountStore.putAccounts(accounts);
+    }
+
+    // kept until the block commit, so the slots read or written by its transactions are cached
+    // and the changes are put into the storage trie in one batch
     @Override
     public Storage retrieveAccountStorage(Address address) throws IOException {
         AccountState accountState = this.getAccountState(address);
@@ -1,5 +1,6 @@
 package com.ajlopez.blockchain.execution;
 
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.core.Transaction;
 import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.core.types.Coin;
@@ -15,9 +16,23 @@ import java.util.List;
  */
 public class TransactionExecutor {
     private final ExecutionContext executionContext;
+    private final CodeAnalysisCache codeAnalysisCache;
+    private final ExecutionConfiguration executionConfiguration;
 
     public TransactionExecutor(ExecutionContext executionContext) {
+        this(executionContext, null, new ExecutionConfiguration());
+    }
+
+    public TransactionExecutor(ExecutionContext executionContext, CodeAnalysisCache codeAnalysisCache) {
+        this(executionContext, codeAnalysisCache, new ExecutionConfiguration());
+    }
+
+    // the cache is owned by the caller, so the analyses, and the compiled code, outlive this executor
+    // without a cache the code is analyzed on each execution
+    public TransactionExecutor(ExecutionContext executionContext, CodeAnalysisCache codeAnalysisCache, ExecutionConfiguration executionConfiguration) {
         this.executionContext = executionContext;
+        this.codeAnalysisCache = codeAnalysisCache;
+        this.executionConfiguration = executionConfiguration;
     }
 
     public List<TransactionResult> executeTransactions(List<Transaction> transactions, BlockData blockData) throws IOException {
@@ -35,7 +50,7 @@ public class TransactionExecutor {
         return executed;
     }
 
-    private ExecutionResult executeTransaction(Transaction transaction, BlockData blockData) throws IOException {
+    ExecutionResult executeTransaction(Transaction transaction, BlockData blockData) throws IOException {
         Address sender = transaction.getSender();
 
         if (transaction.getNonce() != this.executionContext.getNonce(sender))
@@ -89,9 +104,12 @@ public class TransactionExecutor {
         Storage storage = context.getAccountStorage(receiver);
         MessageData messageData = new MessageData(receiver, sender, sender, transaction.getValue(), transaction.getGas() - transactionGas, transaction.getGasPrice(), transaction.getData(), false);
         ProgramEnvironment programEnvironment = new ProgramEnvironment(messageData, blockData, null);
-        VirtualMachine vm = new VirtualMachine(programEnvironment, storage);
+        VirtualMachine vm = new VirtualMachine(programEnvironment, storage, this.executionConfiguration.isBlockGasAccounting(), this.executionConfiguration.getCompileThreshold());
+
+        // init code runs once, only deployed code is worth caching
+        CodeAnalysis codeAnalysis = isContractCreation || this.codeAnalysisCache == null ? new CodeAnalysis(code) : this.codeAnalysisCache.getCodeAnalysis(context.getCodeHash(receiver), code);
 
-        ExecutionResult executionResult = vm.execute(code);
+        ExecutionResult executionResult = vm.execute(code, codeAnalysis);
         executionResult.addGasUsed(transactionGas);
 
         if (executionResult.wasSuccesful() && isContractCreation)
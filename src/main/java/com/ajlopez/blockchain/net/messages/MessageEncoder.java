@@ -10,7 +10,6 @@ import com.ajlopez.blockchain.encoding.StatusEncoder;
 import com.ajlopez.blockchain.encoding.TransactionEncoder;
 import com.ajlopez.blockchain.net.Status;
 import com.ajlopez.blockchain.utils.ByteUtils;
-import jdk.nashorn.internal.runtime.regexp.joni.constants.NodeType;
 
 public class MessageEncoder {
     private MessageEncoder() {
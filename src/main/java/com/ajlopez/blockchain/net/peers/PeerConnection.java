@@ -1,33 +1,52 @@
 package com.ajlopez.blockchain.net.peers;
 
 import com.ajlopez.blockchain.net.MessageChannel;
-import com.ajlopez.blockchain.net.Status;
 import com.ajlopez.blockchain.net.messages.Message;
-import javafx.util.Pair;
+import com.ajlopez.blockchain.net.messages.MessageType;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by ajlopez on 19/11/2018.
  */
 public class PeerConnection implements PeerNode {
+    public static final int QUEUE_CAPACITY = 1024;
+    public static final long POST_TIMEOUT = 1000;
+
     private final Peer peer;
     private final MessageInputStream messageInputStream;
     private final MessageOutputStream messageOutputStream;
     private final MessageChannel inputChannel;
+    private final boolean virtualThreads;
+
+    // the writer waits for the next message, a transaction posted to a full queue is dropped
+    // other messages wait up to POST_TIMEOUT milliseconds for space before being dropped
+    private final BlockingQueue<Map.Entry<Peer, Message>> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong droppedMessages = new AtomicLong();
 
-    private Queue<Pair<Peer, Message>> queue = new ConcurrentLinkedQueue<>();
+    private Thread writer;
     private boolean started;
-    private boolean stopped;
+    private volatile boolean stopped;
 
     public PeerConnection(short network, Peer peer, InputStream inputStream, OutputStream outputStream, MessageChannel inputChannel) {
+        this(network, peer, inputStream, outputStream, inputChannel, false);
+    }
+
+    // with virtual threads, the reader and writer blocked on I/O do not hold a platform thread
+    public PeerConnection(short network, Peer peer, InputStream inputStream, OutputStream outputStream, MessageChannel inputChannel, boolean virtualThreads) {
         this.peer = peer;
         this.messageInputStream = new MessageInputStream(network, new PacketInputStream(inputStream));
         this.messageOutputStream = new MessageOutputStream(network, new PacketOutputStream(outputStream));
         this.inputChannel = inputChannel;
+        this.virtualThreads = virtualThreads;
     }
 
     public Peer getPeer() {
@@ -38,14 +57,24 @@ public class PeerConnection implements PeerNode {
         if (this.started)
             return;
 
-        new Thread(this::readProcess).start();
-        new Thread(this::writeProcess).start();
+        this.startThread(this::readProcess);
+        this.writer = this.startThread(this::writeProcess);
 
         this.started = true;
     }
 
-    public void stop() {
+    public synchronized void stop() {
         this.stopped = true;
+
+        if (this.writer != null)
+            this.writer.interrupt();
+    }
+
+    private Thread startThread(Runnable runnable) {
+        if (this.virtualThreads)
+            return Thread.ofVirtual().start(runnable);
+
+        return Thread.ofPlatform().start(runnable);
     }
 
     private void readProcess() {
@@ -61,23 +90,51 @@ public class PeerConnection implements PeerNode {
     private void writeProcess() {
         try {
             while (!this.stopped) {
-                Pair<Peer, Message> peerMessage = queue.poll();
+                Map.Entry<Peer, Message> peerMessage = this.queue.take();
 
-                if (peerMessage != null)
-                    this.messageOutputStream.writeMessage(peerMessage.getKey(), peerMessage.getValue());
-                else
-                    Thread.sleep(100);
+                this.messageOutputStream.writeMessage(peerMessage.getKey(), peerMessage.getValue());
             }
+        }
+        catch (InterruptedException ex) {
+            // interrupted by stop while waiting for a message
+        }
+        catch (Exception ex) {
+            this.stopped = true;
+            return;
+        }
 
+        try {
             this.messageOutputStream.close();
         }
-        catch (Exception ex) {
+        catch (IOException ex) {
             this.stopped = true;
         }
     }
 
+    public long getDroppedMessages() {
+        return this.droppedMessages.get();
+    }
+
     public void postMessage(Peer peer, Message message) {
-        if (!stopped)
-            this.queue.add(new Pair(peer, message));
+        if (this.stopped)
+            return;
+
+        if (!this.enqueue(new AbstractMap.SimpleImmutableEntry<>(peer, message))) {
+            long dropped = this.droppedMessages.incrementAndGet();
+            System.err.println(String.format("Dropped %s message to peer %s, %d dropped", message.getMessageType(), this.peer.getId(), dropped));
+        }
+    }
+
+    private boolean enqueue(Map.Entry<Peer, Message> peerMessage) {
+        if (peerMessage.getValue().getMessageType() == MessageType.TRANSACTION)
+            return this.queue.offer(peerMessage);
+
+        try {
+            return this.queue.offer(peerMessage, POST_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
@@ -26,7 +26,7 @@ public class TcpPeerClient {
         Socket socket = new Socket(this.host, this.port);
         Peer peer = Peer.createRandomPeer();
 
-        PeerConnection peerConnection = new PeerConnection(this.network, peer, socket.getInputStream(), socket.getOutputStream(), this.peerNode);
+        PeerConnection peerConnection = new PeerConnection(this.network, peer, socket.getInputStream(), socket.getOutputStream(), this.peerNode, true);
 
         if (this.peerNode != null) {
             peerConnection.postMessage(this.peerNode.getPeer(), new StatusMessage(this.peerNode.getStatus()));
@@ -47,7 +47,7 @@ public class TcpPeerServer {
                 Socket clientSocket = serverSocket.accept();
                 Peer peer = Peer.createRandomPeer();
 
-                PeerConnection peerConnection = new PeerConnection(this.network, peer, clientSocket.getInputStream(), clientSocket.getOutputStream(), this.peerNode);
+                PeerConnection peerConnection = new PeerConnection(this.network, peer, clientSocket.getInputStream(), clientSocket.getOutputStream(), this.peerNode, true);
                 peerConnection.postMessage(this.peerNode.getPeer(), new StatusMessage(this.peerNode.getStatus()));
                 this.peerNode.connectTo(peerConnection);
                 peerConnection.start();
@@ -1,11 +1,13 @@
 package com.ajlopez.blockchain.processors;
 
 import com.ajlopez.blockchain.bc.BlockChain;
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.core.Block;
 import com.ajlopez.blockchain.core.Transaction;
 import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.core.types.Difficulty;
 import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.core.types.TransactionHash;
 import com.ajlopez.blockchain.execution.ExecutionContext;
 import com.ajlopez.blockchain.execution.TopExecutionContext;
 import com.ajlopez.blockchain.execution.TransactionExecutor;
@@ -14,29 +16,52 @@ import com.ajlopez.blockchain.store.AccountStore;
 import com.ajlopez.blockchain.store.AccountStoreProvider;
 import com.ajlopez.blockchain.store.Stores;
 import com.ajlopez.blockchain.vms.eth.BlockData;
+import com.ajlopez.blockchain.vms.eth.CodeAnalysisCache;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 /**
  * Created by ajlopez on 24/01/2018.
  */
 public class MinerProcessor {
+    public static final int MAX_BLOCK_TRANSACTIONS = 10000;
+
     private final BlockChain blockChain;
     private final TransactionPool transactionPool;
     private final List<Consumer<Block>> minedBlockConsumers = new ArrayList<>();
     private final Stores stores;
+    private final AccountStoreProvider accountStoreProvider;
     private final Address coinbase;
+    private final CodeAnalysisCache codeAnalysisCache;
+    private final ExecutionConfiguration executionConfiguration;
+
+    // block template over the last parent
+    private Block templateParent;
+    private AccountStore templateAccountStore;
+    private TransactionExecutor templateExecutor;
+    private BlockData templateBlockData;
+    private final List<Transaction> templateTransactions = new ArrayList<>();
+    private final Set<TransactionHash> templateHashes = new HashSet<>();
 
     private boolean stopped = false;
 
     public MinerProcessor(BlockChain blockChain, TransactionPool transactionPool, Stores stores, Address coinbase) {
+        this(blockChain, transactionPool, stores, coinbase, new CodeAnalysisCache(CodeAnalysisCache.DEFAULT_SIZE), new ExecutionConfiguration());
+    }
+
+    public MinerProcessor(BlockChain blockChain, TransactionPool transactionPool, Stores stores, Address coinbase, CodeAnalysisCache codeAnalysisCache, ExecutionConfiguration executionConfiguration) {
         this.blockChain = blockChain;
         this.transactionPool = transactionPool;
         this.stores = stores;
+        this.accountStoreProvider = new AccountStoreProvider(stores.getAccountTrieStore(), executionConfiguration.getParallelHashThreshold());
         this.coinbase = coinbase;
+        this.codeAnalysisCache = codeAnalysisCache;
+        this.executionConfiguration = executionConfiguration;
     }
 
     public Block process() throws IOException {
@@ -53,23 +78,42 @@ public class MinerProcessor {
         this.minedBlockConsumers.add(consumer);
     }
 
-    public Block mineBlock(Block parent) throws IOException {
-        Hash parentStateRootHash = parent.getHeader().getStateRootHash();
-        AccountStore accountStore = this.stores.getAccountStoreProvider().retrieve(parentStateRootHash);
-        ExecutionContext executionContext = new TopExecutionContext(accountStore, this.stores.getTrieStorageProvider(), this.stores.getCodeStore());
-        TransactionExecutor transactionExecutor = new TransactionExecutor(executionContext);
-        long timestamp = System.currentTimeMillis();
-        // TODO use difficulty instead of a constant
-        BlockData blockData = new BlockData(parent.getNumber() + 1, timestamp, this.coinbase, Difficulty.ONE);
+    // the template keeps the state and transactions executed over the parent, only the new transactions are executed
+    public synchronized Block mineBlock(Block parent) throws IOException {
+        if (this.templateParent == null || !this.templateParent.getHash().equals(parent.getHash()))
+            this.resetTemplate(parent);
+
+        List<Transaction> newTransactions = new ArrayList<>();
+
+        for (Transaction transaction : this.transactionPool.getExecutableTransactions(MAX_BLOCK_TRANSACTIONS))
+            if (newTransactions.size() + this.templateTransactions.size() < MAX_BLOCK_TRANSACTIONS && !this.templateHashes.contains(transaction.getHash()))
+                newTransactions.add(transaction);
 
-        List<TransactionResult> transactionResults = transactionExecutor.executeTransactions(this.transactionPool.getTransactions(), blockData);
+        if (!newTransactions.isEmpty()) {
+            List<TransactionResult> transactionResults = this.templateExecutor.executeTransactions(newTransactions, this.templateBlockData);
 
-        List<Transaction> transactions = new ArrayList<>(transactionResults.size());
+            for (TransactionResult transactionResult : transactionResults) {
+                this.templateTransactions.add(transactionResult.getTransaction());
+                this.templateHashes.add(transactionResult.getTransaction().getHash());
+            }
+        }
+
+        return new Block(parent, null, new ArrayList<>(this.templateTransactions), this.templateAccountStore.getRootHash(), this.templateBlockData.getTimestamp(), this.coinbase, Difficulty.ONE);
+    }
 
-        for (TransactionResult transactionResult : transactionResults)
-            transactions.add(transactionResult.getTransaction());
+    private void resetTemplate(Block parent) throws IOException {
+        Hash parentStateRootHash = parent.getHeader().getStateRootHash();
+
+        this.templateParent = parent;
+        this.templateAccountStore = this.accountStoreProvider.retrieve(parentStateRootHash);
 
-        return new Block(parent, null, transactions, accountStore.getRootHash(), System.currentTimeMillis() / 1000, this.coinbase, Difficulty.ONE);
+        ExecutionContext executionContext = new TopExecutionContext(this.templateAccountStore, this.stores.getTrieStorageProvider(), this.stores.getCodeStore());
+
+        this.templateExecutor = new TransactionExecutor(executionContext, this.codeAnalysisCache, this.executionConfiguration);
+        // TODO use difficulty instead of a constant
+        this.templateBlockData = new BlockData(parent.getNumber() + 1, System.currentTimeMillis() / 1000, this.coinbase, Difficulty.ONE);
+        this.templateTransactions.clear();
+        this.templateHashes.clear();
     }
 
     public void start() {
@@ -2,6 +2,7 @@ package com.ajlopez.blockchain.processors;
 
 import com.ajlopez.blockchain.bc.BlockChain;
 import com.ajlopez.blockchain.bc.BlockValidator;
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.config.NetworkConfiguration;
 import com.ajlopez.blockchain.core.Block;
 import com.ajlopez.blockchain.core.Transaction;
@@ -15,9 +16,12 @@ import com.ajlopez.blockchain.net.peers.PeerNode;
 import com.ajlopez.blockchain.store.AccountStoreProvider;
 import com.ajlopez.blockchain.store.CodeStore;
 import com.ajlopez.blockchain.store.Stores;
+import com.ajlopez.blockchain.vms.eth.CodeAnalysisCache;
 import com.ajlopez.blockchain.vms.eth.TrieStorageProvider;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by ajlopez on 14/10/2018.
@@ -30,9 +34,14 @@ public class NodeProcessor implements PeerNode {
     private final TransactionPool transactionPool;
     private final MinerProcessor minerProcessor;
     private final BlockProcessor blockProcessor;
+    private final ExecutorService blockExecutionWorkers;
 
     public NodeProcessor(NetworkConfiguration networkConfiguration, Peer peer, BlockChain blockChain, Stores stores, Address coinbase) {
-        AccountStoreProvider accountStoreProvider = stores.getAccountStoreProvider();
+        this(networkConfiguration, peer, blockChain, stores, coinbase, new ExecutionConfiguration());
+    }
+
+    public NodeProcessor(NetworkConfiguration networkConfiguration, Peer peer, BlockChain blockChain, Stores stores, Address coinbase, ExecutionConfiguration executionConfiguration) {
+        AccountStoreProvider accountStoreProvider = new AccountStoreProvider(stores.getAccountTrieStore(), executionConfiguration.getParallelHashThreshold());
         TrieStorageProvider trieStorageProvider = stores.getTrieStorageProvider();
         CodeStore codeStore = stores.getCodeStore();
 
@@ -42,7 +51,18 @@ public class NodeProcessor implements PeerNode {
         OrphanBlocks orphanBlocks = new OrphanBlocks();
         this.transactionPool = new TransactionPool();
 
-        this.blockProcessor = new BlockProcessor(blockChain, orphanBlocks, new BlockValidator(new BlockExecutor(accountStoreProvider, trieStorageProvider, codeStore)), transactionPool);
+        // block validation and mining run the same contracts, so they share the code analyses
+        CodeAnalysisCache codeAnalysisCache = new CodeAnalysisCache(CodeAnalysisCache.DEFAULT_SIZE);
+
+        int nthreads = executionConfiguration.getParallelExecutionThreads();
+
+        this.blockExecutionWorkers = nthreads > 0 ? Executors.newFixedThreadPool(nthreads, runnable -> {
+            Thread thread = new Thread(runnable, "block-executor");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        this.blockProcessor = new BlockProcessor(blockChain, orphanBlocks, new BlockValidator(new BlockExecutor(accountStoreProvider, trieStorageProvider, codeStore, this.blockExecutionWorkers, codeAnalysisCache, executionConfiguration)), transactionPool);
 
         TransactionProcessor transactionProcessor = new TransactionProcessor(this.transactionPool);
         PeerProcessor peerProcessor = new PeerProcessor(this.networkConfiguration.getNetworkNumber());
@@ -52,7 +72,7 @@ public class NodeProcessor implements PeerNode {
         MessageProcessor messageProcessor = new MessageProcessor(this.blockProcessor, transactionProcessor, peerProcessor, this.sendProcessor, null);
 
         this.receiveProcessor = new ReceiveProcessor(messageProcessor);
-        this.minerProcessor = new MinerProcessor(blockChain, this.transactionPool, stores, coinbase);
+        this.minerProcessor = new MinerProcessor(blockChain, this.transactionPool, stores, coinbase, codeAnalysisCache, executionConfiguration);
         this.minerProcessor.onMinedBlock(blk -> {
             this.postMessage(this.peer, new BlockMessage(blk));
         });
@@ -66,8 +86,12 @@ public class NodeProcessor implements PeerNode {
         this.receiveProcessor.start();
     }
 
+    // blocks are only validated while messages are processed
     public void stopMessagingProcess() {
         this.receiveProcessor.stop();
+
+        if (this.blockExecutionWorkers != null)
+            this.blockExecutionWorkers.shutdown();
     }
 
     public void startMiningProcess() {
@@ -94,6 +118,10 @@ public class NodeProcessor implements PeerNode {
         this.sendProcessor.connectToPeer(node.getPeer(), node);
     }
 
+    ExecutorService getBlockExecutionWorkers() {
+        return this.blockExecutionWorkers;
+    }
+
     public Status getStatus() {
         Block bestBlock = this.blockProcessor.getBestBlock();
 
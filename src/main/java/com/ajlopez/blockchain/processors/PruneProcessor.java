@@ -0,0 +1,212 @@
+package com.ajlopez.blockchain.processors;
+
+import com.ajlopez.blockchain.bc.BlockChain;
+import com.ajlopez.blockchain.bc.BlockHashStore;
+import com.ajlopez.blockchain.bc.BlockInformation;
+import com.ajlopez.blockchain.bc.BlocksInformation;
+import com.ajlopez.blockchain.bc.BlocksInformationStore;
+import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.BlockHeader;
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.encoding.AccountEncoder;
+import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.store.Stores;
+import com.ajlopez.blockchain.store.TrieStore;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class PruneProcessor {
+    private static final int SWEEP_CHUNK = 1000;
+
+    private final BlockChain blockChain;
+    private final BlocksInformationStore blocksInformationStore;
+    private final BlockHashStore blockHashStore;
+    private final TrieStore accountTrieStore;
+    private final TrieStore storageTrieStore;
+    private final int keepBlocks;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pruner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong prunedNodes = new AtomicLong();
+    private final List<Consumer<Exception>> errorConsumers = new ArrayList<>();
+
+    private volatile long lastPrunedNumber;
+    private volatile boolean stopped;
+
+    public PruneProcessor(BlockChain blockChain, Stores stores, int keepBlocks) {
+        if (keepBlocks < 1)
+            throw new IllegalArgumentException("at least one block state should be kept");
+
+        this.blockChain = blockChain;
+        this.blocksInformationStore = stores.getBlocksInformationStore();
+        this.blockHashStore = stores.getBlockHashStore();
+        this.accountTrieStore = stores.getAccountTrieStore();
+        this.storageTrieStore = stores.getStorageTrieStore();
+        this.keepBlocks = keepBlocks;
+        this.lastPrunedNumber = blockChain.getBestBlockNumber();
+    }
+
+    // states saved from now on, before their block is connected, survive the next pruning
+    public void start() {
+        this.accountTrieStore.trackSaves();
+        this.storageTrieStore.trackSaves();
+        this.blockChain.onBlock(this::onBlock);
+    }
+
+    public void stop() {
+        this.stopped = true;
+        this.executor.shutdown();
+
+        try {
+            this.executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getPrunedNodes() {
+        return this.prunedNodes.get();
+    }
+
+    // a failed pruning removes nothing, the next one is scheduled as usual
+    public void onError(Consumer<Exception> consumer) {
+        this.errorConsumers.add(consumer);
+    }
+
+    // called from the block processing thread, it only schedules the work
+    private void onBlock(Block block) {
+        long bestNumber = this.blockChain.getBestBlockNumber();
+
+        if (this.stopped || bestNumber - this.lastPrunedNumber < this.keepBlocks)
+            return;
+
+        if (!this.running.compareAndSet(false, true))
+            return;
+
+        this.executor.submit(() -> {
+            try {
+                this.prune(bestNumber);
+            }
+            catch (IOException | RuntimeException ex) {
+                this.emitError(ex);
+            }
+            finally {
+                this.running.set(false);
+            }
+        });
+    }
+
+    public long prune(long bestNumber) throws IOException {
+        Set<Hash> accountHashes = new HashSet<>();
+        Set<Hash> storageHashes = new HashSet<>();
+
+        this.accountTrieStore.startPruning();
+        this.storageTrieStore.startPruning();
+
+        try {
+            // a missing state node aborts the mark phase, and then nothing is removed
+            for (long number = Math.max(0, bestNumber - this.keepBlocks + 1);; number++) {
+                BlocksInformation blocksInformation = this.blocksInformationStore.get(number);
+
+                if (blocksInformation == null) {
+                    if (number > bestNumber)
+                        break;
+
+                    continue;
+                }
+
+                for (BlockInformation blockInformation : blocksInformation.getBlockInformationList()) {
+                    BlockHeader header = this.blockHashStore.getBlockHeader(blockInformation.getBlockHash());
+
+                    if (header != null)
+                        this.markTrie(this.accountTrieStore, header.getStateRootHash(), accountHashes, storageHashes);
+                }
+            }
+
+            long removed = this.sweep(this.accountTrieStore, accountHashes) + this.sweep(this.storageTrieStore, storageHashes);
+
+            this.lastPrunedNumber = bestNumber;
+            this.prunedNodes.addAndGet(removed);
+
+            return removed;
+        }
+        finally {
+            this.accountTrieStore.stopPruning();
+            this.storageTrieStore.stopPruning();
+        }
+    }
+
+    private void markTrie(TrieStore trieStore, Hash rootHash, Set<Hash> marked, Set<Hash> storageMarked) throws IOException {
+        Deque<Hash> pending = new ArrayDeque<>();
+
+        if (rootHash != null)
+            pending.push(rootHash);
+
+        while (!pending.isEmpty()) {
+            Hash hash = pending.pop();
+
+            // shared subtrees are visited only once
+            if (!marked.add(hash) || hash.equals(Trie.EMPTY_TRIE_HASH))
+                continue;
+
+            // read from the store, so the walk does not evict the cached working set
+            Trie node = trieStore.retrieveUncached(hash);
+
+            // account values are the only ones that refer to another trie
+            if (storageMarked != null && node.getValue() != null)
+                this.markTrie(this.storageTrieStore, AccountEncoder.decode(node.getValue()).getStorageHash(), storageMarked, null);
+
+            for (Hash subhash : node.getSubHashes())
+                if (subhash != null)
+                    pending.push(subhash);
+        }
+    }
+
+    private void emitError(Exception ex) {
+        this.errorConsumers.forEach(c -> c.accept(ex));
+    }
+
+    private long sweep(TrieStore trieStore, Set<Hash> marked) throws IOException {
+        List<Hash> unmarked = new ArrayList<>();
+
+        trieStore.forEachHash(hash -> {
+            if (!marked.contains(hash))
+                unmarked.add(hash);
+        });
+
+        long removed = 0;
+        int processed = 0;
+
+        for (Hash hash : unmarked) {
+            if (this.stopped)
+                break;
+
+            if (trieStore.remove(hash))
+                removed++;
+
+            // gives way to the block processing between chunks
+            if (++processed % SWEEP_CHUNK == 0)
+                Thread.yield();
+        }
+
+        return removed;
+    }
+}
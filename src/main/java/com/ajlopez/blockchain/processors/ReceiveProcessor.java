@@ -3,45 +3,96 @@ package com.ajlopez.blockchain.processors;
 import com.ajlopez.blockchain.net.MessageChannel;
 import com.ajlopez.blockchain.net.peers.Peer;
 import com.ajlopez.blockchain.net.messages.Message;
+import com.ajlopez.blockchain.net.messages.MessageType;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by ajlopez on 28/01/2018.
  */
 public class ReceiveProcessor implements Runnable, MessageChannel {
-    private MessageProcessor messageProcessor;
-    private BlockingQueue<MessageTask> messageTaskQueue = new LinkedBlockingDeque<>();
-    private boolean stopped = false;
-    private List<Runnable> emptyActions = new ArrayList<>();
+    public static final int DEFAULT_WORKERS = 2;
+
+    private static final int PRIORITIES = 3;
+    private static final long IDLE_TIMEOUT = 1000;
+
+    private final MessageProcessor messageProcessor;
+    private final int nworkers;
+
+    // a queue by priority, blocks and status first, then transactions, then trie nodes
+    private final List<Queue<MessageTask>> messageTaskQueues = new ArrayList<>();
+
+    // a permit by each posted message, messages processed by the workers are pending until they finish
+    private final Semaphore available = new Semaphore(0);
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final List<Runnable> emptyActions = new ArrayList<>();
+
+    private ExecutorService workers;
+    private volatile boolean stopped = false;
 
     public ReceiveProcessor(MessageProcessor messageProcessor) {
+        this(messageProcessor, DEFAULT_WORKERS);
+    }
+
+    public ReceiveProcessor(MessageProcessor messageProcessor, int nworkers) {
+        if (nworkers < 0)
+            throw new IllegalArgumentException("Negative number of workers");
+
         this.messageProcessor = messageProcessor;
+        this.nworkers = nworkers;
+
+        for (int k = 0; k < PRIORITIES; k++)
+            this.messageTaskQueues.add(new ConcurrentLinkedQueue<>());
     }
 
     public void start() {
+        if (this.nworkers > 0)
+            this.workers = Executors.newFixedThreadPool(this.nworkers, runnable -> {
+                Thread thread = new Thread(runnable, "receive-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+
         new Thread(this).start();
     }
 
     public void stop() {
         this.stopped = true;
+        this.available.release();
+
+        if (this.workers != null)
+            this.workers.shutdown();
     }
 
     public void run() {
         while (!this.stopped) {
             try {
-                MessageTask task = this.messageTaskQueue.poll(1, TimeUnit.SECONDS);
+                // the empty actions run when no message arrives during the idle timeout
+                if (!this.available.tryAcquire(IDLE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    if (this.pending.get() == 0)
+                        emitEmpty();
 
-                if (task != null)
-                    this.messageProcessor.processMessage(task.getMessage(), task.getSender());
-                else {
-                    emitEmpty();
-                    Thread.sleep(1000);
+                    continue;
                 }
+
+                MessageTask task = this.nextTask();
+
+                if (task == null)
+                    continue;
+
+                if (this.workers != null && isStateless(task.getMessage().getMessageType()))
+                    this.execute(task);
+                else
+                    this.process(task);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -49,13 +100,66 @@ public class ReceiveProcessor implements Runnable, MessageChannel {
     }
 
     public void postMessage(Peer sender, Message message) {
-        this.messageTaskQueue.add(new MessageTask(message, sender));
+        this.pending.incrementAndGet();
+        this.messageTaskQueues.get(getPriority(message.getMessageType())).add(new MessageTask(message, sender));
+        this.available.release();
     }
 
     public void onEmpty(Runnable action) {
         this.emptyActions.add(action);
     }
 
+    private MessageTask nextTask() {
+        for (Queue<MessageTask> queue : this.messageTaskQueues) {
+            MessageTask task = queue.poll();
+
+            if (task != null)
+                return task;
+        }
+
+        return null;
+    }
+
+    // a task rejected by the workers, ie after stop, is not processed, so it is no longer pending
+    private void execute(MessageTask task) {
+        boolean executed = false;
+
+        try {
+            this.workers.execute(() -> this.process(task));
+            executed = true;
+        }
+        finally {
+            if (!executed)
+                this.pending.decrementAndGet();
+        }
+    }
+
+    private void process(MessageTask task) {
+        try {
+            this.messageProcessor.processMessage(task.getMessage(), task.getSender());
+        }
+        finally {
+            this.pending.decrementAndGet();
+        }
+    }
+
+    private static int getPriority(MessageType messageType) {
+        switch (messageType) {
+            case TRANSACTION:
+                return 1;
+            case TRIE_NODE:
+            case GET_TRIE_NODE:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    // the other messages change or read the block chain, so they are processed in order by the receive thread
+    private static boolean isStateless(MessageType messageType) {
+        return messageType == MessageType.TRANSACTION;
+    }
+
     private void emitEmpty() {
         this.emptyActions.forEach(a -> a.run());
     }
@@ -6,16 +6,17 @@ import com.ajlopez.blockchain.net.PeerId;
 import com.ajlopez.blockchain.net.messages.Message;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by ajlopez on 26/03/2018.
  */
 public class SendProcessor {
     private final Peer sender;
-    private Map<PeerId, MessageChannel> channelsByPeer = new HashMap<>();
+    // messages are posted from the receive thread and its workers
+    private Map<PeerId, MessageChannel> channelsByPeer = new ConcurrentHashMap<>();
 
     public SendProcessor(Peer sender) {
         this.sender = sender;
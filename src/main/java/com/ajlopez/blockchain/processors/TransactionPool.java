@@ -2,31 +2,78 @@ package com.ajlopez.blockchain.processors;
 
 import com.ajlopez.blockchain.core.Transaction;
 import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.utils.ByteUtils;
 
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Created by ajlopez on 21/01/2018.
  */
 public class TransactionPool {
-    private final Set<Transaction> transactions = new HashSet<>();
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    public static final int DEFAULT_MAX_SIZE = 200000;
+    public static final int DEFAULT_MAX_SENDER_SIZE = 1000;
+
+    // same gas price, the transaction hash keeps the order total
+    private static final Comparator<Transaction> hashComparator = (t1, t2) -> ByteUtils.compareUnsigned(t1.getHash().getBytes(), t2.getHash().getBytes());
+
+    // highest gas price first
+    private static final Comparator<Transaction> priceComparator = ((Comparator<Transaction>)(t1, t2) -> t2.getGasPrice().compareTo(t1.getGasPrice())).thenComparing(hashComparator);
+
+    // lowest nonce first, and for the same nonce, highest gas price first
+    private static final Comparator<Transaction> nonceComparator = Comparator.comparingLong(Transaction::getNonce).thenComparing(priceComparator);
+
+    private static final int STRIPES = 64;
+
+    private final int maxSize;
+    private final int maxSenderSize;
+
+    // each sender transactions ordered by nonce, all the transactions ordered by gas price,
+    // and the first transaction of each sender ordered by gas price
+    // a sender set, and its transactions in the price indexes, are only changed holding the lock of the sender stripe
+    private final Map<Address, NavigableSet<Transaction>> transactionsBySender = new ConcurrentHashMap<>();
+    private final NavigableSet<Transaction> transactionsByPrice = new ConcurrentSkipListSet<>(priceComparator);
+    private final NavigableSet<Transaction> executableHeads = new ConcurrentSkipListSet<>(priceComparator);
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Object evictionLock = new Object();
+
+    public TransactionPool() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_SENDER_SIZE);
+    }
+
+    public TransactionPool(int maxSize, int maxSenderSize) {
+        if (maxSize < 1 || maxSenderSize < 1)
+            throw new IllegalArgumentException("Invalid transaction pool size");
+
+        this.maxSize = maxSize;
+        this.maxSenderSize = maxSenderSize;
+
+        for (int k = 0; k < STRIPES; k++)
+            this.locks[k] = new ReentrantLock();
+    }
 
     public List<Transaction> addTransaction(Transaction transaction) {
         if (transaction == null)
             throw new IllegalArgumentException("Null transaction");
 
-        this.lock.writeLock().lock();
+        ReentrantLock lock = this.getLock(transaction.getSender());
+
+        lock.lock();
 
         try {
-            if (!this.transactions.add(transaction))
+            if (!this.add(transaction))
                 return Collections.emptyList();
         }
         finally {
-            this.lock.writeLock().unlock();
+            lock.unlock();
         }
 
+        this.evict();
+
         return Collections.singletonList(transaction);
     }
 
@@ -34,46 +81,43 @@ public class TransactionPool {
         if (transaction == null)
             throw new IllegalArgumentException("Null transaction");
 
-        this.lock.writeLock().lock();
+        ReentrantLock lock = this.getLock(transaction.getSender());
+
+        lock.lock();
 
         try {
-            this.transactions.remove(transaction);
+            this.remove(transaction);
         }
         finally {
-            this.lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
-    public List<Transaction> getTransactions() {
-        List<Transaction> list = new ArrayList<>();
-
-        this.lock.readLock().lock();
-
-        try {
-            list.addAll(this.transactions);
-        }
-        finally {
-            this.lock.readLock().unlock();
-        }
+    public int size() {
+        return this.size.get();
+    }
 
-        return list;
+    // all the transactions, highest gas price first
+    public List<Transaction> getTransactions() {
+        return new ArrayList<>(this.transactionsByPrice);
     }
 
     public List<Transaction> getTransactionsWithSender(Address sender) {
-        List<Transaction> list = new ArrayList<>();
+        ReentrantLock lock = this.getLock(sender);
 
-        this.lock.readLock().lock();
+        lock.lock();
 
         try {
-            for (Transaction transaction : this.transactions)
-                if (transaction.getSender().equals(sender))
-                    list.add(transaction);
+            NavigableSet<Transaction> transactions = this.transactionsBySender.get(sender);
+
+            if (transactions == null)
+                return new ArrayList<>();
+
+            return new ArrayList<>(transactions);
         }
         finally {
-            this.lock.readLock().unlock();
+            lock.unlock();
         }
-
-        return list;
     }
 
     public long getTransactionNonceBySenderFromNonce(Address sender, long fromNonce) {
@@ -85,56 +129,248 @@ public class TransactionPool {
         return list.get(list.size() - 1).getNonce() + 1;
     }
 
+    // the transactions with consecutive nonces starting at the first nonce
     public List<Transaction> getTransactionsWithSenderFromNonce(Address sender, long firstNonce) {
-        List<Transaction> list = new ArrayList<>();
+        List<Transaction> result = new ArrayList<>();
+        ReentrantLock lock = this.getLock(sender);
 
-        this.lock.readLock().lock();
+        lock.lock();
 
         try {
-            for (Transaction transaction : this.transactions)
-                if (transaction.getSender().equals(sender) && transaction.getNonce() >= firstNonce)
-                    list.add(transaction);
+            NavigableSet<Transaction> transactions = this.transactionsBySender.get(sender);
+
+            if (transactions == null)
+                return result;
+
+            long expectedNonce = firstNonce;
+
+            for (Transaction transaction : transactions) {
+                if (transaction.getNonce() < firstNonce)
+                    continue;
+
+                if (transaction.getNonce() > expectedNonce)
+                    break;
+
+                result.add(transaction);
+
+                expectedNonce = transaction.getNonce() + 1;
+            }
         }
         finally {
-            this.lock.readLock().unlock();
+            lock.unlock();
         }
 
-        Collections.sort(list, new NonceComparator());
+        return result;
+    }
 
+    // up to max transactions, highest gas price first, each sender transactions in consecutive nonce order
+    // from its lowest nonce; the sender heads are read in price order from the maintained index,
+    // and only the next transaction of each picked sender is queued, so k picks take O(k log k)
+    public List<Transaction> getExecutableTransactions(int maxTransactions) {
         List<Transaction> result = new ArrayList<>();
-        long expectedNonce = firstNonce;
-
-        for (Transaction transaction : list) {
-            if (transaction.getNonce() > expectedNonce)
-                break;
+        PriorityQueue<Transaction> nexts = new PriorityQueue<>(priceComparator);
+        Set<Address> senders = new HashSet<>();
+        Iterator<Transaction> heads = this.executableHeads.iterator();
+        Transaction head = this.nextHead(heads, senders);
+
+        while (result.size() < maxTransactions && (head != null || !nexts.isEmpty())) {
+            Transaction transaction;
+
+            if (head != null && (nexts.isEmpty() || priceComparator.compare(head, nexts.peek()) < 0)) {
+                transaction = head;
+                senders.add(head.getSender());
+                head = this.nextHead(heads, senders);
+            }
+            else
+                transaction = nexts.poll();
 
             result.add(transaction);
 
-            expectedNonce = transaction.getNonce() + 1;
+            Transaction next = this.getNextTransaction(transaction.getSender(), transaction);
+
+            if (next != null)
+                nexts.add(next);
         }
 
         return result;
     }
 
+    // the index can change while it is iterated, a sender head replaced after its sender was picked is skipped
+    private Transaction nextHead(Iterator<Transaction> heads, Set<Address> senders) {
+        while (heads.hasNext()) {
+            Transaction head = heads.next();
+
+            if (!senders.contains(head.getSender()))
+                return head;
+        }
+
+        return null;
+    }
+
+    // the changes of each sender are applied at once, holding its lock
     public void updateTransactions(List<Transaction> toremove, List<Transaction> toadd) {
-        this.lock.writeLock().lock();
+        Map<Address, List<Transaction>> removedBySender = groupBySender(toremove);
+        Map<Address, List<Transaction>> addedBySender = groupBySender(toadd);
+
+        Set<Address> senders = new HashSet<>(removedBySender.keySet());
+        senders.addAll(addedBySender.keySet());
+
+        for (Address sender : senders) {
+            ReentrantLock lock = this.getLock(sender);
+
+            lock.lock();
+
+            try {
+                for (Transaction tx : removedBySender.getOrDefault(sender, Collections.emptyList()))
+                    this.remove(tx);
+
+                for (Transaction tx : addedBySender.getOrDefault(sender, Collections.emptyList()))
+                    this.add(tx);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        this.evict();
+    }
+
+    private static Map<Address, List<Transaction>> groupBySender(List<Transaction> transactions) {
+        Map<Address, List<Transaction>> transactionsBySender = new HashMap<>();
+
+        for (Transaction transaction : transactions)
+            transactionsBySender.computeIfAbsent(transaction.getSender(), sender -> new ArrayList<>()).add(transaction);
+
+        return transactionsBySender;
+    }
+
+    private ReentrantLock getLock(Address sender) {
+        return this.locks[Math.floorMod(sender.hashCode(), STRIPES)];
+    }
+
+    // the transaction with the next nonce after the given one
+    // skipping the transactions that repeat the nonce with a lower gas price
+    private Transaction getNextTransaction(Address sender, Transaction previous) {
+        ReentrantLock lock = this.getLock(sender);
+
+        lock.lock();
 
         try {
-            for (Transaction tx : toremove)
-                this.removeTransaction(tx);
+            NavigableSet<Transaction> transactions = this.transactionsBySender.get(sender);
+
+            if (transactions == null || transactions.isEmpty())
+                return null;
+
+            Transaction next = transactions.higher(previous);
 
-            for (Transaction tx : toadd)
-                this.addTransaction(tx);
+            while (next != null && next.getNonce() == previous.getNonce())
+                next = transactions.higher(next);
+
+            if (next != null && next.getNonce() == previous.getNonce() + 1)
+                return next;
+
+            return null;
         }
         finally {
-            this.lock.writeLock().unlock();
+            lock.unlock();
+        }
+    }
+
+    // called holding the sender lock
+    private boolean add(Transaction transaction) {
+        NavigableSet<Transaction> transactions = this.transactionsBySender.get(transaction.getSender());
+
+        if (transactions != null && transactions.contains(transaction))
+            return false;
+
+        // a full pool rejects a gas price not above its lowest one
+        if (this.size.get() >= this.maxSize) {
+            Transaction lowest = this.getLowestTransaction();
+
+            if (lowest != null && priceComparator.compare(transaction, lowest) >= 0)
+                return false;
+        }
+
+        // a full sender keeps its lowest nonces
+        if (transactions != null && transactions.size() >= this.maxSenderSize) {
+            if (nonceComparator.compare(transaction, transactions.last()) >= 0)
+                return false;
+
+            this.remove(transactions.last());
+        }
+
+        NavigableSet<Transaction> senderTransactions = this.transactionsBySender.computeIfAbsent(transaction.getSender(), sender -> new TreeSet<>(nonceComparator));
+        Transaction head = senderTransactions.isEmpty() ? null : senderTransactions.first();
+
+        senderTransactions.add(transaction);
+        this.transactionsByPrice.add(transaction);
+        this.size.incrementAndGet();
+
+        this.updateHead(head, senderTransactions.first());
+
+        return true;
+    }
+
+    // called holding the sender lock
+    private void remove(Transaction transaction) {
+        NavigableSet<Transaction> transactions = this.transactionsBySender.get(transaction.getSender());
+
+        if (transactions == null)
+            return;
+
+        Transaction head = transactions.isEmpty() ? null : transactions.first();
+
+        if (!transactions.remove(transaction))
+            return;
+
+        this.transactionsByPrice.remove(transaction);
+        this.size.decrementAndGet();
+
+        if (transactions.isEmpty()) {
+            this.transactionsBySender.remove(transaction.getSender());
+            this.updateHead(head, null);
+        }
+        else
+            this.updateHead(head, transactions.first());
+    }
+
+    // called holding the sender lock
+    private void updateHead(Transaction head, Transaction newHead) {
+        if (head == newHead)
+            return;
+
+        if (head != null)
+            this.executableHeads.remove(head);
+
+        if (newHead != null)
+            this.executableHeads.add(newHead);
+    }
+
+    // a full pool evicts its lowest gas price, taking only one sender lock at a time
+    // one thread evicts at a time, so concurrent adds do not evict more than the excess
+    private void evict() {
+        if (this.size.get() <= this.maxSize)
+            return;
+
+        synchronized (this.evictionLock) {
+            while (this.size.get() > this.maxSize) {
+                Transaction lowest = this.getLowestTransaction();
+
+                if (lowest == null)
+                    return;
+
+                this.removeTransaction(lowest);
+            }
         }
     }
 
-    class NonceComparator implements Comparator<Transaction> {
-        public int compare(Transaction t1, Transaction t2) {
-            return (int)(t1.getNonce() - t2.getNonce());
+    private Transaction getLowestTransaction() {
+        // the index can be emptied by other threads between a check and the read
+        try {
+            return this.transactionsByPrice.last();
+        }
+        catch (NoSuchElementException ex) {
+            return null;
         }
     }
 }
-
@@ -2,11 +2,17 @@ package com.ajlopez.blockchain.state;
 
 import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.store.TrieStore;
+import com.ajlopez.blockchain.store.WriteBatch;
 import com.ajlopez.blockchain.utils.ByteUtils;
 import com.ajlopez.blockchain.utils.HashUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Created by ajlopez on 12/08/2017.
@@ -14,6 +20,7 @@ import java.util.Arrays;
 public class Trie {
     public static final Hash EMPTY_TRIE_HASH = new Trie().getHash();
     public static final int ARITY = 16;
+    public static final int DEFAULT_PARALLEL_HASH_THRESHOLD = 256;
 
     private byte[] value;
     private Trie[] nodes;
@@ -149,6 +156,31 @@ public class Trie {
         return this.put(key, null);
     }
 
+    // null values remove their keys, each touched node is rebuilt once
+    public Trie putAll(SortedMap<byte[], byte[]> values) throws IOException {
+        if (values.isEmpty())
+            return this;
+
+        Trie trie = this.putAll(new ArrayList<>(values.keySet()), new ArrayList<>(values.values()), 0);
+
+        if (trie == null)
+            return new Trie(this.store);
+
+        return trie;
+    }
+
+    public List<byte[]> getAll(List<byte[]> keys) throws IOException {
+        byte[][] values = new byte[keys.size()][];
+        List<Integer> positions = new ArrayList<>(keys.size());
+
+        for (int k = 0; k < keys.size(); k++)
+            positions.add(k);
+
+        this.getAll(keys, positions, 0, values);
+
+        return Arrays.asList(values);
+    }
+
     public Hash getHash() {
         if (this.hash != null)
             return this.hash;
@@ -158,6 +190,33 @@ public class Trie {
         return this.hash;
     }
 
+    // subtrees with at least threshold unhashed nodes are hashed in parallel, the result is the same
+    // a threshold of zero or less hashes the trie in this thread
+    public Hash getHash(int parallelThreshold) {
+        if (this.hash != null || parallelThreshold <= 0)
+            return this.getHash();
+
+        return ForkJoinPool.commonPool().invoke(new HashTask(this, parallelThreshold));
+    }
+
+    private int countUnhashedNodes(int limit) {
+        if (this.hash != null)
+            return 0;
+
+        int count = 1;
+
+        if (this.nodes != null)
+            for (int k = 0; k < ARITY && count < limit; k++)
+                if (this.isUnhashedSubNode(k))
+                    count += this.nodes[k].countUnhashedNodes(limit - count);
+
+        return count;
+    }
+
+    private boolean isUnhashedSubNode(int k) {
+        return this.nodes[k] != null && (this.hashes == null || this.hashes[k] == null) && this.nodes[k].hash == null;
+    }
+
     public byte[] getEncoded() {
         if (this.encoded != null)
             return this.encoded;
@@ -231,11 +290,28 @@ public class Trie {
         if (this.saved)
             return;
 
+        WriteBatch batch = new WriteBatch();
+        List<Trie> tosave = new ArrayList<>();
+
+        this.addToBatch(batch, tosave);
+
         // TODO review
         if (this.store != null)
-            this.store.save(this);
+            this.store.commit(batch);
 
-        this.saved = true;
+        // only marked as saved once the batch is committed, a failed commit is retried by the next save
+        for (Trie node : tosave)
+            node.saved = true;
+    }
+
+    private void addToBatch(WriteBatch batch, List<Trie> tosave) {
+        if (this.saved)
+            return;
+
+        if (this.store != null)
+            this.store.save(this, batch);
+
+        tosave.add(this);
 
         if (this.nodes == null)
             return;
@@ -244,10 +320,20 @@ public class Trie {
             Trie node = this.nodes[k];
 
             if (node != null)
-                node.save();
+                node.addToBatch(batch, tosave);
         }
     }
 
+    public Trie cloneNode() {
+        Trie trie = new Trie(null, this.hashes, this.value, this.sharedKey, this.sharedKeyLength, this.store);
+
+        trie.hash = this.hash;
+        trie.encoded = this.encoded;
+        trie.saved = this.saved;
+
+        return trie;
+    }
+
     public static Trie fromEncoded(byte[] bytes, TrieStore store) {
         short valsizebytes = bytes[2];
         short sksizebytes = bytes[3];
@@ -370,7 +456,10 @@ public class Trie {
 
         Trie trie = this.store.retrieve(hash);
 
-        this.nodes = new Trie[ARITY];
+        // keeps the subnodes already loaded
+        if (this.nodes == null)
+            this.nodes = new Trie[ARITY];
+
         this.nodes[k] = trie;
 
         return trie;
@@ -432,6 +521,129 @@ public class Trie {
         return createNewTrie(childNodes, childHashes, this.value, this.sharedKey, this.sharedKeyLength, this.store, true);
     }
 
+    private Trie putAll(List<byte[]> keys, List<byte[]> values, int position) throws IOException {
+        if (keys.size() == 1)
+            return this.put(keys.get(0), position, values.get(0));
+
+        int splitLength = this.sharedKeyLength;
+
+        for (int k = 0; k < keys.size(); k++)
+            if (values.get(k) != null)
+                splitLength = Math.min(splitLength, TrieKeyUtils.getSharedLength(this.sharedKey, this.sharedKeyLength, keys.get(k), position));
+
+        if (splitLength < this.sharedKeyLength)
+            return this.split(splitLength).putAll(keys, values, position);
+
+        int childPosition = position + this.sharedKeyLength;
+        byte[] newValue = this.value;
+        List<List<byte[]>> childKeys = new ArrayList<>(ARITY);
+        List<List<byte[]>> childValues = new ArrayList<>(ARITY);
+
+        for (int k = 0; k < ARITY; k++) {
+            childKeys.add(null);
+            childValues.add(null);
+        }
+
+        for (int k = 0; k < keys.size(); k++) {
+            byte[] key = keys.get(k);
+
+            // only removals of missing keys can diverge here
+            if (TrieKeyUtils.getSharedLength(this.sharedKey, this.sharedKeyLength, key, position) < this.sharedKeyLength)
+                continue;
+
+            if (childPosition == key.length * 2) {
+                newValue = values.get(k);
+                continue;
+            }
+
+            int offset = TrieKeyUtils.getOffset(key, childPosition);
+
+            if (childKeys.get(offset) == null) {
+                childKeys.set(offset, new ArrayList<>());
+                childValues.set(offset, new ArrayList<>());
+            }
+
+            childKeys.get(offset).add(key);
+            childValues.get(offset).add(values.get(k));
+        }
+
+        Trie[] childNodes = copyNodes(this.nodes, true);
+        Hash[] childHashes = copyHashes(this.hashes, true);
+        boolean changed = !Arrays.equals(newValue, this.value);
+
+        for (int k = 0; k < ARITY; k++) {
+            if (childKeys.get(k) == null)
+                continue;
+
+            Trie childNode = this.getSubNode(k);
+            Trie newChildNode;
+
+            if (childNode != null)
+                newChildNode = childNode.putAll(childKeys.get(k), childValues.get(k), childPosition + 1);
+            else if (hasValues(childValues.get(k)))
+                newChildNode = new Trie(this.store).putAll(childKeys.get(k), childValues.get(k), childPosition + 1);
+            else
+                continue;
+
+            if (newChildNode == childNode)
+                continue;
+
+            childNodes[k] = newChildNode;
+            childHashes[k] = null;
+            changed = true;
+        }
+
+        if (!changed)
+            return this;
+
+        return createNewTrie(childNodes, childHashes, newValue, this.sharedKey, this.sharedKeyLength, this.store, true);
+    }
+
+    private void getAll(List<byte[]> keys, List<Integer> positions, int position, byte[][] values) throws IOException {
+        int childPosition = position + this.sharedKeyLength;
+        List<List<Integer>> childPositions = new ArrayList<>(ARITY);
+
+        for (int k = 0; k < ARITY; k++)
+            childPositions.add(null);
+
+        for (Integer n : positions) {
+            byte[] key = keys.get(n);
+
+            if (TrieKeyUtils.getSharedLength(this.sharedKey, this.sharedKeyLength, key, position) < this.sharedKeyLength)
+                continue;
+
+            if (childPosition == key.length * 2) {
+                values[n] = this.value;
+                continue;
+            }
+
+            int offset = TrieKeyUtils.getOffset(key, childPosition);
+
+            if (childPositions.get(offset) == null)
+                childPositions.set(offset, new ArrayList<>());
+
+            childPositions.get(offset).add(n);
+        }
+
+        for (int k = 0; k < ARITY; k++) {
+            if (childPositions.get(k) == null)
+                continue;
+
+            Trie childNode = this.getSubNode(k);
+
+            if (childNode != null)
+                childNode.getAll(keys, childPositions.get(k), childPosition + 1, values);
+        }
+    }
+
+    private static boolean hasValues(List<byte[]> values) {
+        for (byte[] value : values)
+            if (value != null)
+                return true;
+
+        return false;
+    }
+
     private Trie split(int sharedLength) throws IOException {
         Trie splitChild = createNewTrie(copyNodes(this.nodes, false), copyHashes(this.hashes, false), value, TrieKeyUtils.getSubKey(this.sharedKey, sharedLength + 1, sharedKeyLength - sharedLength - 1), sharedKeyLength - sharedLength - 1, this.store, true);
         int offset = TrieKeyUtils.getOffset(this.sharedKey, sharedLength);
@@ -537,4 +749,34 @@ public class Trie {
 
         return Arrays.copyOf(hashes, ARITY);
     }
+
+    private static class HashTask extends RecursiveTask<Hash> {
+        private static final long serialVersionUID = 1L;
+
+        // tasks are never serialized
+        private final transient Trie trie;
+        private final int threshold;
+
+        private HashTask(Trie trie, int threshold) {
+            this.trie = trie;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Hash compute() {
+            if (this.trie.nodes == null || this.trie.countUnhashedNodes(this.threshold) < this.threshold)
+                return this.trie.getHash();
+
+            List<HashTask> tasks = new ArrayList<>();
+
+            for (int k = 0; k < ARITY; k++)
+                if (this.trie.isUnhashedSubNode(k))
+                    tasks.add(new HashTask(this.trie.nodes[k], this.threshold));
+
+            // subnodes are disjoint, and join publishes their hashes to this thread
+            invokeAll(tasks);
+
+            return this.trie.getHash();
+        }
+    }
 }
@@ -56,7 +56,8 @@ public class TrieKeyUtils {
                 if (getOffset(sharedKey, l) == getOffset(key, position + l))
                     return l + 1;
 
-            return l;
+            // the last byte of an odd length shared key is compared with its padding
+            return Math.min(l, sharedKeyLength);
         }
         else
             while (l < sharedKeyLength)
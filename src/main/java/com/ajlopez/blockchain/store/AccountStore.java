@@ -5,17 +5,28 @@ import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.encoding.AccountEncoder;
 import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.utils.ByteUtils;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Created by ajlopez on 26/11/2018.
  */
 public class AccountStore {
+    private final int parallelHashThreshold;
+
     private Trie trie;
 
     public AccountStore(Trie trie) {
+        this(trie, Trie.DEFAULT_PARALLEL_HASH_THRESHOLD);
+    }
+
+    public AccountStore(Trie trie, int parallelHashThreshold) {
         this.trie = trie;
+        this.parallelHashThreshold = parallelHashThreshold;
     }
 
     public Account getAccount(Address address) throws IOException {
@@ -35,11 +46,21 @@ public class AccountStore {
         this.trie = this.trie.put(key, value);
     }
 
+    public void putAccounts(Map<Address, Account> accounts) throws IOException {
+        SortedMap<byte[], byte[]> values = new TreeMap<>(ByteUtils::compareUnsigned);
+
+        for (Map.Entry<Address, Account> entry : accounts.entrySet())
+            values.put(entry.getKey().getBytes(), AccountEncoder.encode(entry.getValue()));
+
+        this.trie = this.trie.putAll(values);
+    }
+
     public Hash getRootHash() {
-        return this.trie.getHash();
+        return this.trie.getHash(this.parallelHashThreshold);
     }
 
     public void save() throws IOException {
+        this.trie.getHash(this.parallelHashThreshold);
         this.trie.save();
     }
 
@@ -1,6 +1,7 @@
 package com.ajlopez.blockchain.store;
 
 import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.state.Trie;
 
 import java.io.IOException;
 
@@ -9,12 +10,18 @@ import java.io.IOException;
  */
 public class AccountStoreProvider {
     private final TrieStore accountTrieStore;
+    private final int parallelHashThreshold;
 
     public AccountStoreProvider(TrieStore accountTrieStore) {
+        this(accountTrieStore, Trie.DEFAULT_PARALLEL_HASH_THRESHOLD);
+    }
+
+    public AccountStoreProvider(TrieStore accountTrieStore, int parallelHashThreshold) {
         this.accountTrieStore = accountTrieStore;
+        this.parallelHashThreshold = parallelHashThreshold;
     }
 
     public AccountStore retrieve(Hash hash) throws IOException {
-        return new AccountStore(this.accountTrieStore.retrieve(hash));
+        return new AccountStore(this.accountTrieStore.retrieve(hash), this.parallelHashThreshold);
     }
 }
@@ -0,0 +1,80 @@
+package com.ajlopez.blockchain.store;
+
+import com.ajlopez.blockchain.bc.BlockHashStore;
+import com.ajlopez.blockchain.bc.BlocksInformationStore;
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.db.KeyValueDb;
+
+import java.io.File;
+import java.io.IOException;
+
+public class DiskStores implements Stores {
+    private final KeyValueDb accountTrieDb;
+    private final KeyValueDb storageTrieDb;
+    private final KeyValueDb codeDb;
+    private final KeyValueDb blockDb;
+    private final KeyValueDb blockHeaderDb;
+    private final KeyValueDb blocksInformationDb;
+
+    private final TrieStore accountTrieStore;
+    private final TrieStore storageTrieStore;
+    private final CodeStore codeStore;
+    private final BlockHashStore blockHashStore;
+    private final BlocksInformationStore blocksInformationStore;
+
+    public DiskStores(String directory) throws IOException {
+        File dir = new File(directory);
+
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("cannot create directory " + directory);
+
+        this.accountTrieDb = new KeyValueDb(new File(dir, "accounts").getPath(), Hash.HASH_BYTES, false, true);
+        this.storageTrieDb = new KeyValueDb(new File(dir, "storages").getPath(), Hash.HASH_BYTES, false, true);
+        this.codeDb = new KeyValueDb(new File(dir, "codes").getPath(), Hash.HASH_BYTES, false, true);
+        this.blockDb = new KeyValueDb(new File(dir, "blocks").getPath(), Hash.HASH_BYTES);
+        this.blockHeaderDb = new KeyValueDb(new File(dir, "headers").getPath(), Hash.HASH_BYTES);
+        this.blocksInformationDb = new KeyValueDb(new File(dir, "blocksinformation").getPath(), BlocksInformationStore.KEY_LENGTH, true);
+
+        this.accountTrieStore = new TrieStore(this.accountTrieDb);
+        this.storageTrieStore = new TrieStore(this.storageTrieDb);
+        this.codeStore = new CodeStore(this.codeDb);
+        this.blockHashStore = new BlockHashStore(this.blockDb, this.blockHeaderDb);
+        this.blocksInformationStore = new BlocksInformationStore(this.blocksInformationDb);
+    }
+
+    public TrieStore getAccountTrieStore() {
+        return this.accountTrieStore;
+    }
+
+    public TrieStore getStorageTrieStore() {
+        return this.storageTrieStore;
+    }
+
+    public CodeStore getCodeStore() {
+        return this.codeStore;
+    }
+
+    public BlockHashStore getBlockHashStore() { return this.blockHashStore; }
+
+    public BlocksInformationStore getBlocksInformationStore() { return this.blocksInformationStore; }
+
+    // every db is closed, so one failure does not leave the other logs without their checkpoint
+    public void close() throws IOException {
+        IOException exception = null;
+
+        for (KeyValueDb db : new KeyValueDb[] { this.accountTrieDb, this.storageTrieDb, this.codeDb, this.blockDb, this.blockHeaderDb, this.blocksInformationDb }) {
+            try {
+                db.close();
+            }
+            catch (IOException ex) {
+                if (exception == null)
+                    exception = ex;
+                else
+                    exception.addSuppressed(ex);
+            }
+        }
+
+        if (exception != null)
+            throw exception;
+    }
+}
@@ -2,8 +2,11 @@ package com.ajlopez.blockchain.store;
 
 import com.ajlopez.blockchain.utils.ByteArrayWrapper;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Created by ajlopez on 06/01/2018.
@@ -11,14 +14,29 @@ import java.util.Map;
 public class HashMapStore implements KeyValueStore {
     private Map<ByteArrayWrapper, byte[]> values = new HashMap<>();
 
-    public byte[] getValue(byte[] key) {
+    public synchronized byte[] getValue(byte[] key) {
         return this.values.get(new ByteArrayWrapper(key));
     }
 
-    public void setValue(byte[] key, byte[] value) {
+    public synchronized void setValue(byte[] key, byte[] value) {
         this.values.put(new ByteArrayWrapper(key), value);
     }
 
-    public boolean isEmpty() { return this.values.isEmpty(); }
+    public synchronized void removeValue(byte[] key) {
+        this.values.remove(new ByteArrayWrapper(key));
+    }
+
+    public void forEachKey(Consumer<byte[]> consumer) {
+        List<ByteArrayWrapper> keys;
+
+        synchronized (this) {
+            keys = new ArrayList<>(this.values.keySet());
+        }
+
+        for (ByteArrayWrapper key : keys)
+            consumer.accept(key.getBytes());
+    }
+
+    public synchronized boolean isEmpty() { return this.values.isEmpty(); }
 }
 
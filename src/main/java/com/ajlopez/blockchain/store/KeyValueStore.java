@@ -1,6 +1,10 @@
 package com.ajlopez.blockchain.store;
 
+import com.ajlopez.blockchain.utils.ByteArrayWrapper;
+
 import java.io.IOException;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Created by ajlopez on 06/01/2018.
@@ -9,4 +13,17 @@ public interface KeyValueStore {
     void setValue(byte[] key, byte[] value) throws IOException;
 
     byte[] getValue(byte[] key) throws IOException;
+
+    void removeValue(byte[] key) throws IOException;
+
+    void forEachKey(Consumer<byte[]> consumer) throws IOException;
+
+    default boolean containsKey(byte[] key) throws IOException {
+        return this.getValue(key) != null;
+    }
+
+    default void writeBatch(WriteBatch batch) throws IOException {
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : batch.getValues().entrySet())
+            this.setValue(entry.getKey().getBytes(), entry.getValue());
+    }
 }
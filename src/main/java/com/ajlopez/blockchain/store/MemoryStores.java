@@ -10,7 +10,7 @@ public class MemoryStores implements Stores {
     private final TrieStore accountTrieStore = new TrieStore(new HashMapStore());
     private final TrieStore storageTrieStore = new TrieStore(new HashMapStore());
     private final CodeStore codeStore = new CodeStore(new HashMapStore());
-    private final BlockHashStore blockHashStore = new BlockHashStore();
+    private final BlockHashStore blockHashStore = new BlockHashStore(new HashMapStore(), new HashMapStore());
     private final BlocksInformationStore blocksInformationStore = new BlocksInformationStore(new HashMapStore());
 
     public TrieStore getAccountTrieStore() {
@@ -0,0 +1,132 @@
+package com.ajlopez.blockchain.store;
+
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.state.Trie;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TrieNodeCache {
+    // estimated bytes used by the node objects, besides the encoded data
+    private static final int NODE_OVERHEAD = 160;
+    private static final int NO_SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[NO_SEGMENTS];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TrieNodeCache(long maxBytes) {
+        for (int k = 0; k < NO_SEGMENTS; k++)
+            this.segments[k] = new Segment(maxBytes / NO_SEGMENTS);
+    }
+
+    public Trie get(Hash hash) {
+        Trie trie = this.getSegment(hash).get(hash);
+
+        if (trie == null)
+            this.misses.incrementAndGet();
+        else
+            this.hits.incrementAndGet();
+
+        return trie;
+    }
+
+    public boolean contains(Hash hash) {
+        return this.getSegment(hash).contains(hash);
+    }
+
+    public void put(Hash hash, Trie trie) {
+        this.getSegment(hash).put(hash, trie);
+    }
+
+    public void remove(Hash hash) {
+        this.getSegment(hash).remove(hash);
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    public long getSize() {
+        long size = 0;
+
+        for (Segment segment : this.segments)
+            size += segment.getSize();
+
+        return size;
+    }
+
+    private Segment getSegment(Hash hash) {
+        return this.segments[(hash.hashCode() & 0x7fffffff) % NO_SEGMENTS];
+    }
+
+    private static long getWeight(Trie trie) {
+        return trie.getEncoded().length + NODE_OVERHEAD;
+    }
+
+    private class Segment {
+        private final Map<Hash, Trie> nodes = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long size;
+
+        private Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private synchronized Trie get(Hash hash) {
+            return this.nodes.get(hash);
+        }
+
+        private synchronized boolean contains(Hash hash) {
+            return this.nodes.containsKey(hash);
+        }
+
+        private synchronized long getSize() {
+            return this.size;
+        }
+
+        private synchronized void remove(Hash hash) {
+            Trie old = this.nodes.remove(hash);
+
+            if (old != null)
+                this.size -= getWeight(old);
+        }
+
+        private synchronized void put(Hash hash, Trie trie) {
+            long weight = getWeight(trie);
+
+            if (weight > this.maxBytes)
+                return;
+
+            Trie old = this.nodes.put(hash, trie);
+
+            if (old != null)
+                this.size -= getWeight(old);
+
+            this.size += weight;
+
+            Iterator<Map.Entry<Hash, Trie>> iterator = this.nodes.entrySet().iterator();
+
+            while (this.size > this.maxBytes && iterator.hasNext()) {
+                Map.Entry<Hash, Trie> eldest = iterator.next();
+
+                this.size -= getWeight(eldest.getValue());
+                iterator.remove();
+
+                evictions.incrementAndGet();
+            }
+        }
+    }
+}
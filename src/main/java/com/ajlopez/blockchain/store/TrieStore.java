@@ -1,40 +1,138 @@
-package com.ajlopez.blockchain.store;
-
-import com.ajlopez.blockchain.core.types.Hash;
-import com.ajlopez.blockchain.state.Trie;
-
-import java.io.IOException;
-
-/**
- * Created by ajlopez on 04/03/2018.
- */
-public class TrieStore {
-    private KeyValueStore store;
-
-    public TrieStore(KeyValueStore store) {
-        this.store = store;
-    }
-
-    public void save(Trie trie) throws IOException {
-        this.store.setValue(trie.getHash().getBytes(), trie.getEncoded());
-    }
-
-    public boolean exists(Hash hash) throws IOException {
-        if (hash == null || hash.equals(Trie.EMPTY_TRIE_HASH))
-            return true;
-
-        return this.store.getValue(hash.getBytes()) != null;
-    }
-
-    public Trie retrieve(Hash hash) throws IOException {
-        if (hash == null || hash.equals(Trie.EMPTY_TRIE_HASH))
-            return new Trie(this);
-
-        byte[] encoded = this.store.getValue(hash.getBytes());
-
-        if (encoded == null)
-            throw new RuntimeException("Unknown trie");
-
-        return Trie.fromEncoded(encoded, this);
-    }
-}
+package com.ajlopez.blockchain.store;
+
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.state.Trie;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Created by ajlopez on 04/03/2018.
+ */
+public class TrieStore {
+    private static final long DEFAULT_CACHE_SIZE = 1 << 24;
+
+    private KeyValueStore store;
+    private final TrieNodeCache cache;
+
+    // nodes saved since the last pruning started, and, while one runs, the ones saved since the previous one started
+    // a node saved before a pruning starts could belong to a block still being validated or mined
+    private boolean trackingSaves;
+    private Set<Hash> savedNodes;
+    private Set<Hash> protectedNodes;
+
+    public TrieStore(KeyValueStore store) {
+        this(store, DEFAULT_CACHE_SIZE);
+    }
+
+    public TrieStore(KeyValueStore store, long cacheSize) {
+        this.store = store;
+        this.cache = new TrieNodeCache(cacheSize);
+    }
+
+    public synchronized void save(Trie trie) throws IOException {
+        this.store.setValue(trie.getHash().getBytes(), trie.getEncoded());
+
+        if (this.savedNodes != null)
+            this.savedNodes.add(trie.getHash());
+    }
+
+    public synchronized void save(Trie trie, WriteBatch batch) {
+        batch.setValue(trie.getHash().getBytes(), trie.getEncoded());
+
+        if (this.savedNodes != null)
+            this.savedNodes.add(trie.getHash());
+    }
+
+    public void commit(WriteBatch batch) throws IOException {
+        if (batch.isEmpty())
+            return;
+
+        this.store.writeBatch(batch);
+    }
+
+    public boolean exists(Hash hash) throws IOException {
+        if (hash == null || hash.equals(Trie.EMPTY_TRIE_HASH))
+            return true;
+
+        if (this.cache.contains(hash))
+            return true;
+
+        return this.store.containsKey(hash.getBytes());
+    }
+
+    public Trie retrieve(Hash hash) throws IOException {
+        if (hash == null || hash.equals(Trie.EMPTY_TRIE_HASH))
+            return new Trie(this);
+
+        Trie cached = this.cache.get(hash);
+
+        // cached nodes are never handed out, their copies collect the loaded subnodes
+        if (cached != null)
+            return cached.cloneNode();
+
+        byte[] encoded = this.store.getValue(hash.getBytes());
+
+        if (encoded == null)
+            throw new RuntimeException("Unknown trie");
+
+        Trie trie = Trie.fromEncoded(encoded, this);
+
+        this.cache.put(hash, trie);
+
+        return trie.cloneNode();
+    }
+
+    // for full walks, the node is not cached and the cached ones keep their place
+    public Trie retrieveUncached(Hash hash) throws IOException {
+        if (hash == null || hash.equals(Trie.EMPTY_TRIE_HASH))
+            return new Trie(this);
+
+        byte[] encoded = this.store.getValue(hash.getBytes());
+
+        if (encoded == null)
+            throw new RuntimeException("Unknown trie");
+
+        return Trie.fromEncoded(encoded, this);
+    }
+
+    // from now on, a pruning also keeps the nodes saved since the previous one started
+    public synchronized void trackSaves() {
+        this.trackingSaves = true;
+
+        if (this.savedNodes == null)
+            this.savedNodes = new HashSet<>();
+    }
+
+    public synchronized void startPruning() {
+        this.protectedNodes = this.savedNodes == null ? new HashSet<>() : this.savedNodes;
+        this.savedNodes = new HashSet<>();
+    }
+
+    public synchronized void stopPruning() {
+        this.protectedNodes = null;
+
+        if (!this.trackingSaves)
+            this.savedNodes = null;
+    }
+
+    public void forEachHash(Consumer<Hash> consumer) throws IOException {
+        this.store.forEachKey(key -> consumer.accept(new Hash(key)));
+    }
+
+    public synchronized boolean remove(Hash hash) throws IOException {
+        if (this.protectedNodes != null && (this.protectedNodes.contains(hash) || this.savedNodes.contains(hash)))
+            return false;
+
+        this.cache.remove(hash);
+        this.store.removeValue(hash.getBytes());
+
+        return true;
+    }
+
+    public TrieNodeCache getCache() {
+        return this.cache;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ajlopez.blockchain.store;
+
+import com.ajlopez.blockchain.utils.ByteArrayWrapper;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class WriteBatch {
+    private final Map<ByteArrayWrapper, byte[]> values = new LinkedHashMap<>();
+
+    public void setValue(byte[] key, byte[] value) {
+        this.values.put(new ByteArrayWrapper(key), value);
+    }
+
+    public byte[] getValue(byte[] key) {
+        return this.values.get(new ByteArrayWrapper(key));
+    }
+
+    public Map<ByteArrayWrapper, byte[]> getValues() {
+        return Collections.unmodifiableMap(this.values);
+    }
+
+    public int size() {
+        return this.values.size();
+    }
+
+    public boolean isEmpty() {
+        return this.values.isEmpty();
+    }
+
+    public void clear() {
+        this.values.clear();
+    }
+}
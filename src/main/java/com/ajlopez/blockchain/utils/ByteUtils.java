@@ -337,4 +337,17 @@ public class ByteUtils {
 
         return result;
     }
+
+    public static int compareUnsigned(byte[] bytes, byte[] bytes2) {
+        int length = Math.min(bytes.length, bytes2.length);
+
+        for (int k = 0; k < length; k++) {
+            int result = (bytes[k] & 0xff) - (bytes2[k] & 0xff);
+
+            if (result != 0)
+                return result;
+        }
+
+        return bytes.length - bytes2.length;
+    }
 }
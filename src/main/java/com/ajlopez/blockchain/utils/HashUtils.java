@@ -5,11 +5,9 @@ import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.crypto.SpongyCastleProvider;
 import com.ajlopez.blockchain.encoding.RLP;
 import com.ajlopez.blockchain.encoding.RLPEncoder;
-import org.spongycastle.jce.provider.BouncyCastleProvider;
+import org.spongycastle.crypto.digests.KeccakDigest;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
+import java.nio.ByteBuffer;
 import java.security.Security;
 
 /**
@@ -24,17 +22,54 @@ public class HashUtils {
 
     private HashUtils() { }
 
+    // each thread reuses its own digest, reset before each hash as a failed call leaves it with partial input
+    private static final ThreadLocal<KeccakDigest> digests = ThreadLocal.withInitial(() -> new KeccakDigest(256));
+    private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[4096]);
+
     public static byte[] keccak256(byte[] input) {
-        try {
-            MessageDigest digest;
-            digest = MessageDigest.getInstance("KECCAK-256", BouncyCastleProvider.PROVIDER_NAME);
-            digest.update(input);
-            return digest.digest();
-        } catch (NoSuchProviderException | NoSuchAlgorithmException e) {
-            e.printStackTrace();
+        return keccak256(input, 0, input.length);
+    }
+
+    public static byte[] keccak256(byte[] input, int offset, int length) {
+        byte[] output = new byte[HASH_BYTES];
+
+        keccak256(input, offset, length, output, 0);
+
+        return output;
+    }
+
+    public static void keccak256(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        KeccakDigest digest = digests.get();
+
+        digest.reset();
+        digest.update(input, offset, length);
+        digest.doFinal(output, outputOffset);
+    }
+
+    // hashes the remaining bytes of the buffer, without changing its position
+    public static byte[] keccak256(ByteBuffer input) {
+        KeccakDigest digest = digests.get();
+
+        digest.reset();
+
+        if (input.hasArray())
+            digest.update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        else {
+            ByteBuffer source = input.duplicate();
+            byte[] buffer = buffers.get();
+
+            while (source.hasRemaining()) {
+                int length = Math.min(buffer.length, source.remaining());
+                source.get(buffer, 0, length);
+                digest.update(buffer, 0, length);
+            }
         }
 
-        return null;
+        byte[] output = new byte[HASH_BYTES];
+
+        digest.doFinal(output, 0);
+
+        return output;
     }
 
     public static Hash calculateHash(byte[] data) {
@@ -0,0 +1,110 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CodeAnalysis {
+    private final int length;
+    private final BitSet jumpDestinations = new BitSet();
+    private final BitSet blockStarts = new BitSet();
+    private final long[] blockGasCosts;
+    private int blockCount;
+
+    // the analysis is cached by code hash, so these count and keep the compiled code per contract code
+    private final AtomicInteger executions = new AtomicInteger();
+    private volatile CompiledCode compiledCode;
+
+    public CodeAnalysis(byte[] bytecodes) {
+        this.length = bytecodes.length;
+        this.blockGasCosts = new long[bytecodes.length];
+
+        int blockStart = 0;
+        long blockGasCost = 0;
+
+        this.blockStarts.set(0);
+
+        for (int pc = 0; pc < bytecodes.length; pc++) {
+            byte bytecode = bytecodes[pc];
+
+            // a jump destination starts a new block
+            if (bytecode == OpCodes.JUMPDEST && pc > blockStart) {
+                this.endBlock(blockStart, blockGasCost);
+                blockStart = pc;
+                blockGasCost = 0;
+            }
+
+            if (bytecode == OpCodes.JUMPDEST)
+                this.jumpDestinations.set(pc);
+
+            FeeSchedule fee = VirtualMachine.getOpCodeFee(bytecode);
+
+            if (fee != null)
+                blockGasCost += fee.getValue();
+
+            // push data is skipped, so its bytes are never jump destinations
+            if (bytecode >= OpCodes.PUSH1 && bytecode <= OpCodes.PUSH32)
+                pc += bytecode - OpCodes.PUSH1 + 1;
+
+            if (endsBlock(bytecode) && pc + 1 < bytecodes.length) {
+                this.endBlock(blockStart, blockGasCost);
+                blockStart = pc + 1;
+                blockGasCost = 0;
+            }
+        }
+
+        this.endBlock(blockStart, blockGasCost);
+    }
+
+    public int getLength() {
+        return this.length;
+    }
+
+    public boolean isValidJumpDestination(int pc) {
+        return pc >= 0 && pc < this.length && this.jumpDestinations.get(pc);
+    }
+
+    public boolean isBlockStart(int pc) {
+        return this.blockStarts.get(pc);
+    }
+
+    // static gas of the opcodes in the block starting at pc, up to and including the one that ends it
+    // zero when no block starts at pc
+    public long getBlockGasCost(int pc) {
+        return this.blockGasCosts[pc];
+    }
+
+    public int getBlockCount() {
+        return this.blockCount;
+    }
+
+    public int countExecution() {
+        return this.executions.incrementAndGet();
+    }
+
+    public int getExecutions() {
+        return this.executions.get();
+    }
+
+    public CompiledCode getCompiledCode() {
+        return this.compiledCode;
+    }
+
+    public void setCompiledCode(CompiledCode compiledCode) {
+        this.compiledCode = compiledCode;
+    }
+
+    private void endBlock(int blockStart, long blockGasCost) {
+        if (blockStart >= this.length)
+            return;
+
+        this.blockStarts.set(blockStart);
+        this.blockGasCosts[blockStart] = blockGasCost;
+        this.blockCount++;
+    }
+
+    // GAS also ends a block, so it reads the gas charged up to itself
+    private static boolean endsBlock(byte bytecode) {
+        return bytecode == OpCodes.JUMP || bytecode == OpCodes.JUMPI || bytecode == OpCodes.STOP
+                || bytecode == OpCodes.RETURN || bytecode == OpCodes.REVERT || bytecode == OpCodes.GAS;
+    }
+}
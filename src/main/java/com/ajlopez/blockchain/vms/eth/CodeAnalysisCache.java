@@ -0,0 +1,61 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import com.ajlopez.blockchain.core.types.Hash;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CodeAnalysisCache {
+    public static final int DEFAULT_SIZE = 1024;
+
+    private final Map<Hash, CodeAnalysis> analyses;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CodeAnalysisCache(int maxSize) {
+        this.analyses = new LinkedHashMap<Hash, CodeAnalysis>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Hash, CodeAnalysis> eldest) {
+                return this.size() > maxSize;
+            }
+        };
+    }
+
+    // the code is only analyzed when its hash is not in the cache
+    public CodeAnalysis getCodeAnalysis(Hash codeHash, byte[] bytecodes) {
+        synchronized (this.analyses) {
+            CodeAnalysis codeAnalysis = this.analyses.get(codeHash);
+
+            if (codeAnalysis != null) {
+                this.hits.incrementAndGet();
+                return codeAnalysis;
+            }
+        }
+
+        this.misses.incrementAndGet();
+
+        CodeAnalysis codeAnalysis = new CodeAnalysis(bytecodes);
+
+        synchronized (this.analyses) {
+            this.analyses.put(codeHash, codeAnalysis);
+        }
+
+        return codeAnalysis;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int getSize() {
+        synchronized (this.analyses) {
+            return this.analyses.size();
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CodeCompiler {
+    // version 49 class files are verified by type inference, so no stack map frames are generated
+    private static final int CLASS_VERSION = 49;
+    private static final int MAX_CODE_LENGTH = Short.MAX_VALUE;
+
+    private static final String FRAME_CLASS = "com/ajlopez/blockchain/vms/eth/Frame";
+    private static final String CODE_INTERFACE = "com/ajlopez/blockchain/vms/eth/CompiledCode";
+    private static final String RESULT_DESCRIPTOR = "Lcom/ajlopez/blockchain/vms/eth/ExecutionResult;";
+    private static final String CLASS_PREFIX = "com.ajlopez.blockchain.vms.eth.GeneratedCode";
+
+    private static final byte ALOAD_0 = 0x2a;
+    private static final byte ALOAD_1 = 0x2b;
+    private static final byte ILOAD_2 = 0x1c;
+    private static final byte ISTORE_2 = 0x3d;
+    private static final byte ICONST_0 = 0x03;
+    private static final byte BIPUSH = 0x10;
+    private static final byte SIPUSH = 0x11;
+    private static final byte LDC_W = 0x13;
+    private static final byte LDC2_W = 0x14;
+    private static final byte GOTO = (byte)0xa7;
+    private static final byte LOOKUPSWITCH = (byte)0xab;
+    private static final byte ARETURN = (byte)0xb0;
+    private static final byte RETURN = (byte)0xb1;
+    private static final byte INVOKEVIRTUAL = (byte)0xb6;
+    private static final byte INVOKESPECIAL = (byte)0xb7;
+
+    private static final String[] opMethods = new String[256];
+
+    private static final AtomicLong classCounter = new AtomicLong();
+
+    static {
+        opMethods[OpCodes.ADD] = "add";
+        opMethods[OpCodes.MUL] = "mul";
+        opMethods[OpCodes.SUB] = "sub";
+        opMethods[OpCodes.DIV] = "div";
+        opMethods[OpCodes.SDIV] = "sdiv";
+        opMethods[OpCodes.MOD] = "mod";
+        opMethods[OpCodes.SMOD] = "smod";
+        opMethods[OpCodes.ADDMOD] = "addmod";
+        opMethods[OpCodes.MULMOD] = "mulmod";
+        opMethods[OpCodes.EXP] = "exp";
+
+        opMethods[OpCodes.LT] = "lt";
+        opMethods[OpCodes.GT] = "gt";
+        opMethods[OpCodes.SLT] = "slt";
+        opMethods[OpCodes.SGT] = "sgt";
+        opMethods[OpCodes.EQ] = "eq";
+        opMethods[OpCodes.ISZERO] = "iszero";
+        opMethods[OpCodes.AND] = "and";
+        opMethods[OpCodes.OR] = "or";
+        opMethods[OpCodes.XOR] = "xor";
+        opMethods[OpCodes.NOT] = "not";
+        opMethods[OpCodes.BYTE] = "getByte";
+        opMethods[OpCodes.SHL] = "shl";
+        opMethods[OpCodes.SHR] = "shr";
+        opMethods[OpCodes.SAR] = "sar";
+
+        opMethods[OpCodes.ADDRESS] = "address";
+        opMethods[OpCodes.CALLER] = "caller";
+        opMethods[OpCodes.CALLVALUE] = "callvalue";
+        opMethods[OpCodes.CALLDATALOAD] = "calldataload";
+        opMethods[OpCodes.CALLDATASIZE] = "calldatasize";
+
+        opMethods[OpCodes.POP] = "pop";
+        opMethods[OpCodes.MLOAD] = "mload";
+        opMethods[OpCodes.MSTORE] = "mstore";
+        opMethods[OpCodes.MSTORE8] = "mstore8";
+        opMethods[OpCodes.MSIZE] = "msize";
+        opMethods[OpCodes.SLOAD] = "sload";
+        opMethods[OpCodes.SSTORE] = "sstore";
+        opMethods[OpCodes.GAS] = "gas";
+    }
+
+    private CodeCompiler() {
+
+    }
+
+    // returns null if the code cannot be compiled, then it keeps being interpreted
+    public static CompiledCode compile(byte[] bytecodes, CodeAnalysis codeAnalysis) {
+        if (bytecodes.length == 0)
+            return null;
+
+        String className = CLASS_PREFIX + classCounter.incrementAndGet();
+
+        try {
+            byte[] classBytes = generateClass(className.replace('.', '/'), bytecodes, codeAnalysis);
+
+            if (classBytes == null)
+                return null;
+
+            // a hidden class in this package, it can call the package-private frame methods and it is unloaded when it is no longer used
+            Class<?> clazz = MethodHandles.lookup().defineHiddenClass(classBytes, true).lookupClass();
+
+            return (CompiledCode)clazz.getDeclaredConstructor().newInstance();
+        }
+        catch (IOException | ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    static boolean isSupported(byte[] bytecodes, int pc) {
+        byte bytecode = bytecodes[pc];
+
+        if (bytecode >= OpCodes.PUSH1 && bytecode <= OpCodes.PUSH32)
+            return pc + bytecode - OpCodes.PUSH1 + 1 < bytecodes.length;
+
+        if (bytecode >= OpCodes.DUP1 && bytecode <= OpCodes.DUP16)
+            return true;
+
+        if (bytecode >= OpCodes.SWAP1 && bytecode <= OpCodes.SWAP16)
+            return true;
+
+        switch (bytecode) {
+            case OpCodes.STOP:
+            case OpCodes.RETURN:
+            case OpCodes.REVERT:
+            case OpCodes.JUMP:
+            case OpCodes.JUMPI:
+            case OpCodes.JUMPDEST:
+            case OpCodes.PC:
+                return true;
+
+            default:
+                return opMethods[bytecode & 0xff] != null;
+        }
+    }
+
+    private static byte[] generateClass(String className, byte[] bytecodes, CodeAnalysis codeAnalysis) throws IOException {
+        ConstantPool constantPool = new ConstantPool();
+
+        int thisClass = constantPool.addClass(className);
+        int superClass = constantPool.addClass("java/lang/Object");
+        int codeInterface = constantPool.addClass(CODE_INTERFACE);
+        int initName = constantPool.addUtf8("<init>");
+        int initDescriptor = constantPool.addUtf8("()V");
+        int executeName = constantPool.addUtf8("execute");
+        int executeDescriptor = constantPool.addUtf8("(L" + FRAME_CLASS + ";)" + RESULT_DESCRIPTOR);
+        int codeName = constantPool.addUtf8("Code");
+
+        MethodCode constructorCode = new MethodCode(constantPool);
+        constructorCode.emit(ALOAD_0);
+        constructorCode.emitInvoke(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        constructorCode.emit(RETURN);
+
+        MethodCode executeCode = generateExecute(constantPool, bytecodes, codeAnalysis);
+
+        if (executeCode.size() > MAX_CODE_LENGTH)
+            return null;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(0xcafebabe);
+        out.writeShort(0);
+        out.writeShort(CLASS_VERSION);
+
+        constantPool.writeTo(out);
+
+        // public final super
+        out.writeShort(0x0031);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(codeInterface);
+        out.writeShort(0);
+
+        out.writeShort(2);
+        writeMethod(out, initName, initDescriptor, codeName, constructorCode, 1);
+        writeMethod(out, executeName, executeDescriptor, codeName, executeCode, 3);
+
+        out.writeShort(0);
+
+        return bytes.toByteArray();
+    }
+
+    // locals: this, frame, pc of the next block to execute
+    // each block charges its gas and calls the frame method of each opcode, jumps go back to a switch on the pc
+    private static MethodCode generateExecute(ConstantPool constantPool, byte[] bytecodes, CodeAnalysis codeAnalysis) {
+        MethodCode code = new MethodCode(constantPool);
+
+        code.emit(ICONST_0);
+        code.emit(ISTORE_2);
+
+        int loop = code.size();
+
+        code.emit(ILOAD_2);
+
+        int lookupSwitch = code.size();
+        List<Integer> blockStarts = new ArrayList<>();
+        List<Integer> blockOffsets = new ArrayList<>();
+
+        code.emit(LOOKUPSWITCH);
+
+        while (code.size() % 4 != 0)
+            code.emit((byte)0);
+
+        int switchTable = code.size();
+
+        code.emitInt(0);
+        code.emitInt(codeAnalysis.getBlockCount());
+
+        for (int k = 0; k < codeAnalysis.getBlockCount(); k++) {
+            code.emitInt(0);
+            code.emitInt(0);
+        }
+
+        boolean reachable = false;
+        int l = bytecodes.length;
+
+        for (int pc = 0; pc < l; pc++) {
+            byte bytecode = bytecodes[pc];
+            boolean supported = isSupported(bytecodes, pc);
+
+            if (codeAnalysis.isBlockStart(pc)) {
+                blockStarts.add(pc);
+                blockOffsets.add(code.size());
+                reachable = true;
+
+                long gasCost = codeAnalysis.getBlockGasCost(pc);
+
+                // an unsupported opcode starting a block leaves its gas to the interpreter
+                if (supported && gasCost != 0) {
+                    code.emit(ALOAD_1);
+                    code.emitPushLong(gasCost);
+                    code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "useGas", "(J)V");
+                }
+            }
+
+            int lb = bytecode >= OpCodes.PUSH1 && bytecode <= OpCodes.PUSH32 ? bytecode - OpCodes.PUSH1 + 1 : 0;
+
+            if (!reachable) {
+                pc += lb;
+                continue;
+            }
+
+            if (!supported) {
+                code.emit(ALOAD_1);
+                code.emitPushInt(pc);
+                code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "interpret", "(I)" + RESULT_DESCRIPTOR);
+                code.emit(ARETURN);
+                reachable = false;
+                pc += lb;
+                continue;
+            }
+
+            if (lb > 0) {
+                code.emit(ALOAD_1);
+
+                if (lb <= Long.BYTES) {
+                    long value = 0;
+
+                    for (int k = 1; k <= lb; k++)
+                        value = (value << 8) | (bytecodes[pc + k] & 0xff);
+
+                    code.emitPushLong(value);
+                    code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "push", "(J)V");
+                }
+                else {
+                    code.emitPushInt(pc);
+                    code.emitPushInt(lb);
+                    code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "push", "(II)V");
+                }
+
+                pc += lb;
+                continue;
+            }
+
+            if (bytecode >= OpCodes.DUP1 && bytecode <= OpCodes.DUP16) {
+                code.emit(ALOAD_1);
+                code.emitPushInt(bytecode - OpCodes.DUP1 + 1);
+                code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "dup", "(I)V");
+                continue;
+            }
+
+            if (bytecode >= OpCodes.SWAP1 && bytecode <= OpCodes.SWAP16) {
+                code.emit(ALOAD_1);
+                code.emitPushInt(bytecode - OpCodes.SWAP1 + 1);
+                code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "swap", "(I)V");
+                continue;
+            }
+
+            switch (bytecode) {
+                case OpCodes.JUMPDEST:
+                    break;
+
+                case OpCodes.PC:
+                    code.emit(ALOAD_1);
+                    code.emitPushLong(pc);
+                    code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "push", "(J)V");
+                    break;
+
+                case OpCodes.STOP:
+                    emitResult(code, "stop");
+                    reachable = false;
+                    break;
+
+                case OpCodes.RETURN:
+                    emitResult(code, "doReturn");
+                    reachable = false;
+                    break;
+
+                case OpCodes.REVERT:
+                    emitResult(code, "revert");
+                    reachable = false;
+                    break;
+
+                case OpCodes.JUMP:
+                    code.emit(ALOAD_1);
+                    code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "jump", "()I");
+                    code.emit(ISTORE_2);
+                    code.emitGoto(loop);
+                    reachable = false;
+                    break;
+
+                case OpCodes.JUMPI:
+                    code.emit(ALOAD_1);
+                    code.emitPushInt(pc + 1);
+                    code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "jumpi", "(I)I");
+                    code.emit(ISTORE_2);
+                    code.emitGoto(loop);
+                    reachable = false;
+                    break;
+
+                default:
+                    code.emit(ALOAD_1);
+                    code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, opMethods[bytecode & 0xff], "()V");
+                    break;
+            }
+        }
+
+        if (reachable)
+            emitResult(code, "stop");
+
+        // the pc after a JUMPI at the end of the code is not a block, the interpreter stops there
+        int defaultOffset = code.size();
+
+        code.emit(ALOAD_1);
+        code.emit(ILOAD_2);
+        code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, "interpret", "(I)" + RESULT_DESCRIPTOR);
+        code.emit(ARETURN);
+
+        code.patchInt(switchTable, defaultOffset - lookupSwitch);
+        code.patchInt(switchTable + 4, blockStarts.size());
+
+        for (int k = 0; k < blockStarts.size(); k++) {
+            code.patchInt(switchTable + 8 + k * 8, blockStarts.get(k));
+            code.patchInt(switchTable + 12 + k * 8, blockOffsets.get(k) - lookupSwitch);
+        }
+
+        return code;
+    }
+
+    private static void emitResult(MethodCode code, String methodName) {
+        code.emit(ALOAD_1);
+        code.emitInvoke(INVOKEVIRTUAL, FRAME_CLASS, methodName, "()" + RESULT_DESCRIPTOR);
+        code.emit(ARETURN);
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName, MethodCode code, int maxLocals) throws IOException {
+        out.writeShort(0x0001);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+
+        out.writeShort(codeName);
+        out.writeInt(12 + code.size());
+        out.writeShort(4);
+        out.writeShort(maxLocals);
+        out.writeInt(code.size());
+        code.writeTo(out);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static class MethodCode extends ByteArrayOutputStream {
+        private final ConstantPool constantPool;
+
+        private MethodCode(ConstantPool constantPool) {
+            this.constantPool = constantPool;
+        }
+
+        private void emit(byte value) {
+            this.write(value);
+        }
+
+        private void emitShort(int value) {
+            this.write(value >> 8);
+            this.write(value);
+        }
+
+        private void emitInt(int value) {
+            this.emitShort(value >> 16);
+            this.emitShort(value);
+        }
+
+        private void emitPushInt(int value) {
+            if (value >= 0 && value <= 5)
+                this.emit((byte)(ICONST_0 + value));
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                this.emit(BIPUSH);
+                this.emit((byte)value);
+            }
+            else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                this.emit(SIPUSH);
+                this.emitShort(value);
+            }
+            else {
+                this.emit(LDC_W);
+                this.emitShort(this.constantPool.addInteger(value));
+            }
+        }
+
+        private void emitPushLong(long value) {
+            this.emit(LDC2_W);
+            this.emitShort(this.constantPool.addLong(value));
+        }
+
+        private void emitInvoke(byte opcode, String className, String methodName, String descriptor) {
+            this.emit(opcode);
+            this.emitShort(this.constantPool.addMethodRef(className, methodName, descriptor));
+        }
+
+        // a backward jump, the generated code is limited to MAX_CODE_LENGTH so the offset fits
+        private void emitGoto(int target) {
+            int offset = target - this.size();
+
+            this.emit(GOTO);
+            this.emitShort(offset);
+        }
+
+        private void patchInt(int position, int value) {
+            this.buf[position] = (byte)(value >> 24);
+            this.buf[position + 1] = (byte)(value >> 16);
+            this.buf[position + 2] = (byte)(value >> 8);
+            this.buf[position + 3] = (byte)value;
+        }
+    }
+
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        private int addUtf8(String value) {
+            return this.add("U" + value, 1, 1, () -> this.out.writeUTF(value));
+        }
+
+        private int addClass(String name) {
+            int nameIndex = this.addUtf8(name);
+
+            return this.add("C" + name, 7, 1, () -> this.out.writeShort(nameIndex));
+        }
+
+        private int addInteger(int value) {
+            return this.add("I" + value, 3, 1, () -> this.out.writeInt(value));
+        }
+
+        // long constants take two entries
+        private int addLong(long value) {
+            return this.add("J" + value, 5, 2, () -> this.out.writeLong(value));
+        }
+
+        private int addMethodRef(String className, String methodName, String descriptor) {
+            int classIndex = this.addClass(className);
+            int nameIndex = this.addUtf8(methodName);
+            int descriptorIndex = this.addUtf8(descriptor);
+            int nameAndTypeIndex = this.add("N" + methodName + descriptor, 12, 1, () -> { this.out.writeShort(nameIndex); this.out.writeShort(descriptorIndex); });
+
+            return this.add("M" + className + "." + methodName + descriptor, 10, 1, () -> { this.out.writeShort(classIndex); this.out.writeShort(nameAndTypeIndex); });
+        }
+
+        private int add(String key, int tag, int size, EntryWriter writer) {
+            Integer index = this.entries.get(key);
+
+            if (index != null)
+                return index;
+
+            try {
+                this.out.writeByte(tag);
+                writer.write();
+            }
+            catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+
+            index = this.count;
+            this.count += size;
+            this.entries.put(key, index);
+
+            return index;
+        }
+
+        private void writeTo(DataOutputStream output) throws IOException {
+            if (this.count > 0xffff)
+                throw new IOException("Too many constants");
+
+            output.writeShort(this.count);
+            this.bytes.writeTo(output);
+        }
+    }
+
+    private interface EntryWriter {
+        void write() throws IOException;
+    }
+}
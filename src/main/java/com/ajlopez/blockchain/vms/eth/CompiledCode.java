@@ -0,0 +1,7 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import java.io.IOException;
+
+public interface CompiledCode {
+    ExecutionResult execute(Frame frame) throws IOException, VirtualMachineException;
+}
@@ -18,7 +18,8 @@ public enum FeeSchedule {
     TRANSFER(21000),
     DATAZERO(4),
     DATANONZERO(68),
-    CREATION(32000);
+    CREATION(32000),
+    MEMORY(3);
 
     private long value;
 
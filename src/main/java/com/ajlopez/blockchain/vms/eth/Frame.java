@@ -0,0 +1,468 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.DataWord;
+import com.ajlopez.blockchain.utils.ByteUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+class Frame {
+    // state of an execution, with the semantics of each opcode, used by the interpreter and by the compiled code
+    private final VirtualMachine virtualMachine;
+    private final byte[] bytecodes;
+    private final CodeAnalysis codeAnalysis;
+    private final ProgramEnvironment programEnvironment;
+    private final Storage storage;
+    private final Memory memory;
+    private final OperandStack stack;
+    private final List<Log> logs = new ArrayList<>();
+
+    private long gasUsed;
+
+    Frame(VirtualMachine virtualMachine, byte[] bytecodes, CodeAnalysis codeAnalysis) {
+        this.virtualMachine = virtualMachine;
+        this.bytecodes = bytecodes;
+        this.codeAnalysis = codeAnalysis;
+        this.programEnvironment = virtualMachine.getProgramEnvironment();
+        this.storage = virtualMachine.getStorage();
+        this.memory = virtualMachine.getMemory();
+        this.stack = virtualMachine.getOperandStack();
+    }
+
+    byte[] getBytecodes() {
+        return this.bytecodes;
+    }
+
+    CodeAnalysis getCodeAnalysis() {
+        return this.codeAnalysis;
+    }
+
+    long getGasUsed() {
+        return this.gasUsed;
+    }
+
+    // the gas of a block or of an opcode, and the memory expansion gas, charged when the opcode is executed
+    void useGas(long gasCost) throws VirtualMachineException {
+        if (gasCost > this.programEnvironment.getGas() - this.gasUsed)
+            throw new VirtualMachineException("Insufficient gas");
+
+        this.gasUsed += gasCost;
+    }
+
+    // continues the execution of compiled code in the interpreter
+    ExecutionResult interpret(int pc) throws IOException, VirtualMachineException {
+        return this.virtualMachine.executeBytecodes(this, pc);
+    }
+
+    ExecutionResult stop() {
+        return ExecutionResult.OkWithoutData(this.gasUsed, this.logs);
+    }
+
+    // the memory is read before the result takes the gas used, as reading it charges the expansion gas
+    ExecutionResult doReturn() throws VirtualMachineException {
+        byte[] returnedData = this.readMemory();
+
+        return ExecutionResult.OkWithData(this.gasUsed, returnedData, this.logs);
+    }
+
+    ExecutionResult revert() throws VirtualMachineException {
+        byte[] returnedData = this.readMemory();
+
+        return ExecutionResult.ErrorReverted(this.gasUsed, returnedData);
+    }
+
+    // returns the pc of the next opcode to execute
+    int jump() throws VirtualMachineException {
+        return this.getJumpDestination(this.stack.pop());
+    }
+
+    int jumpi(int nextPc) throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        if (word2.isZero())
+            return nextPc;
+
+        return this.getJumpDestination(word1);
+    }
+
+    void push(long value) throws VirtualMachineException {
+        this.stack.push().setUnsignedLong(value);
+    }
+
+    void push(int pc, int length) throws VirtualMachineException {
+        this.stack.push().setBytes(this.bytecodes, pc + 1, length);
+    }
+
+    void dup(int n) throws VirtualMachineException {
+        this.stack.dup(n);
+    }
+
+    void swap(int n) throws VirtualMachineException {
+        this.stack.swap(n);
+    }
+
+    void pop() throws VirtualMachineException {
+        this.stack.pop();
+    }
+
+    void gas() throws VirtualMachineException {
+        this.stack.push().setUnsignedLong(this.programEnvironment.getGas() - this.gasUsed);
+    }
+
+    void add() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.add(word2));
+    }
+
+    void mul() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.mul(word2));
+    }
+
+    void sub() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.sub(word2));
+    }
+
+    void div() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        if (word2.isZero())
+            this.stack.push(word1.setZero());
+        else
+            this.stack.push(word1.div(word2));
+    }
+
+    void sdiv() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        if (word2.isZero())
+            this.stack.push(word1.setZero());
+        else
+            this.stack.push(word1.sdiv(word2));
+    }
+
+    void mod() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        if (word2.isZero())
+            this.stack.push(word1.setZero());
+        else
+            this.stack.push(word1.mod(word2));
+    }
+
+    void smod() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        if (word2.isZero())
+            this.stack.push(word1.setZero());
+        else
+            this.stack.push(word1.smod(word2));
+    }
+
+    void addmod() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+        Word256 word3 = this.stack.pop();
+
+        if (word3.isZero())
+            this.stack.push(word1.setZero());
+        else
+            this.stack.push(word1.add(word2).mod(word3));
+    }
+
+    void mulmod() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+        Word256 word3 = this.stack.pop();
+
+        if (word3.isZero())
+            this.stack.push(word1.setZero());
+        else
+            this.stack.push(word1.mul(word2).mod(word3));
+    }
+
+    void exp() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.exp(word2));
+    }
+
+    void lt() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.setUnsignedLong(word1.compareTo(word2) < 0 ? 1 : 0));
+    }
+
+    void gt() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.setUnsignedLong(word1.compareTo(word2) > 0 ? 1 : 0));
+    }
+
+    void slt() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.setUnsignedLong(word1.compareToSigned(word2) < 0 ? 1 : 0));
+    }
+
+    void sgt() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.setUnsignedLong(word1.compareToSigned(word2) > 0 ? 1 : 0));
+    }
+
+    void eq() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.setUnsignedLong(word1.compareTo(word2) == 0 ? 1 : 0));
+    }
+
+    void iszero() throws VirtualMachineException {
+        Word256 word = this.stack.pop();
+
+        this.stack.push(word.setUnsignedLong(word.isZero() ? 1 : 0));
+    }
+
+    void and() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.and(word2));
+    }
+
+    void or() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.or(word2));
+    }
+
+    void xor() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word1.xor(word2));
+    }
+
+    void not() throws VirtualMachineException {
+        this.stack.push(this.stack.pop().not());
+    }
+
+    void getByte() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        int nbyte = word1.asUnsignedInteger() & 0xff;
+
+        this.stack.push(word2.setUnsignedLong(word1.isUnsignedInteger() && nbyte < 32 ? word2.getByte(nbyte) & 0xff : 0));
+    }
+
+    void shl() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word2.shiftLeft(word1));
+    }
+
+    void shr() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word2.shiftRight(word1));
+    }
+
+    void sar() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.stack.push(word2.shiftArithmeticRight(word1));
+    }
+
+    void address() throws VirtualMachineException {
+        this.stack.push(Word256.fromAddress(this.programEnvironment.getAddress()));
+    }
+
+    void origin() throws VirtualMachineException {
+        this.stack.push(Word256.fromAddress(this.programEnvironment.getOrigin()));
+    }
+
+    void caller() throws VirtualMachineException {
+        this.stack.push(Word256.fromAddress(this.programEnvironment.getCaller()));
+    }
+
+    void callvalue() throws VirtualMachineException {
+        this.stack.push(Word256.fromDataWord(DataWord.fromCoin(this.programEnvironment.getValue())));
+    }
+
+    void calldataload() throws VirtualMachineException {
+        byte[] data = this.programEnvironment.getData();
+        Word256 word = this.stack.pop();
+        int offset = word.asUnsignedInteger();
+
+        if (!word.isUnsignedInteger() || offset >= data.length)
+            this.stack.push().setZero();
+        else
+            this.stack.push().setBytesToLeft(data, offset, Math.min(Word256.WORD_BYTES, data.length - offset));
+    }
+
+    void calldatasize() throws VirtualMachineException {
+        this.stack.push().setUnsignedLong(this.programEnvironment.getData().length);
+    }
+
+    void calldatacopy() throws VirtualMachineException {
+        this.copyToMemory(this.programEnvironment.getData());
+    }
+
+    void codesize() throws VirtualMachineException {
+        this.stack.push().setUnsignedLong(this.bytecodes.length);
+    }
+
+    void codecopy() throws VirtualMachineException {
+        this.copyToMemory(this.bytecodes);
+    }
+
+    void gasprice() throws VirtualMachineException {
+        this.stack.push(Word256.fromDataWord(DataWord.fromCoin(this.programEnvironment.getGasPrice())));
+    }
+
+    void extcodesize() throws IOException, VirtualMachineException {
+        byte[] contractCode = this.programEnvironment.getCode(this.stack.pop().toAddress());
+
+        this.stack.push().setUnsignedLong(contractCode == null ? 0 : contractCode.length);
+    }
+
+    void extcodecopy() throws IOException, VirtualMachineException {
+        Address address = this.stack.pop().toAddress();
+        byte[] contractCode = this.programEnvironment.getCode(address);
+
+        this.copyToMemory(contractCode == null ? ByteUtils.EMPTY_BYTE_ARRAY : contractCode);
+    }
+
+    void coinbase() throws VirtualMachineException {
+        this.stack.push(Word256.fromAddress(this.programEnvironment.getCoinbase()));
+    }
+
+    void timestamp() throws VirtualMachineException {
+        this.stack.push().setUnsignedLong(this.programEnvironment.getTimestamp());
+    }
+
+    void number() throws VirtualMachineException {
+        this.stack.push().setUnsignedLong(this.programEnvironment.getNumber());
+    }
+
+    void difficulty() throws VirtualMachineException {
+        this.stack.push(Word256.fromDataWord(this.programEnvironment.getDifficulty().toDataWord()));
+    }
+
+    void mload() throws VirtualMachineException {
+        Word256 word = this.stack.pop();
+
+        this.useGas(this.memory.getExpansionGasCost(word, Word256.WORD_BYTES));
+
+        this.stack.push(this.memory.getWord(word.asUnsignedInteger(), word));
+    }
+
+    void mstore() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.useGas(this.memory.getExpansionGasCost(word1, Word256.WORD_BYTES));
+
+        this.memory.setWord(word1.asUnsignedInteger(), word2);
+    }
+
+    void mstore8() throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.useGas(this.memory.getExpansionGasCost(word1, 1));
+
+        this.memory.setByte(word1.asUnsignedInteger(), word2.getByte(Word256.WORD_BYTES - 1));
+    }
+
+    void msize() throws VirtualMachineException {
+        this.stack.push().setUnsignedLong(this.memory.size());
+    }
+
+    void sload() throws IOException, VirtualMachineException {
+        Word256 word = this.stack.pop();
+
+        this.stack.push(Word256.fromDataWord(this.storage.getValue(word.toDataWord())));
+    }
+
+    void sstore() throws IOException, VirtualMachineException {
+        if (this.programEnvironment.isReadOnly())
+            throw new VirtualMachineException("Read-only message");
+
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+
+        this.storage.setValue(word1.toDataWord(), word2.toDataWord());
+    }
+
+    void log(int ntopics) throws VirtualMachineException {
+        byte[] bytes = this.readMemory();
+        List<DataWord> topics = new ArrayList<>();
+
+        for (int k = 0; k < ntopics; k++)
+            topics.add(this.stack.pop().toDataWord());
+
+        this.logs.add(new Log(this.programEnvironment.getAddress(), bytes, topics));
+    }
+
+    private byte[] readMemory() throws VirtualMachineException {
+        Word256 offset = this.stack.pop();
+        Word256 length = this.stack.pop();
+
+        this.useGas(this.memory.getExpansionGasCost(offset, length));
+
+        return this.memory.readBytes(offset.asUnsignedInteger(), length.asUnsignedInteger());
+    }
+
+    private void copyToMemory(byte[] source) throws VirtualMachineException {
+        Word256 word1 = this.stack.pop();
+        Word256 word2 = this.stack.pop();
+        Word256 word3 = this.stack.pop();
+
+        this.useGas(this.memory.getExpansionGasCost(word1, word3));
+
+        this.memory.setBytes(word1.asUnsignedInteger(), source, getSourceOffset(word2), word3.asUnsignedInteger());
+    }
+
+    private int getJumpDestination(Word256 word) throws VirtualMachineException {
+        if (!word.isUnsignedInteger())
+            throw new VirtualMachineException("Invalid jump");
+
+        int newpc = word.asUnsignedInteger();
+
+        if (!this.codeAnalysis.isValidJumpDestination(newpc))
+            throw new VirtualMachineException("Invalid jump");
+
+        return newpc;
+    }
+
+    // the destination and length are bounded by the expansion gas, a source offset that is not an integer is beyond any source
+    private static int getSourceOffset(Word256 offset) {
+        return offset.isUnsignedInteger() ? offset.asUnsignedInteger() : Integer.MAX_VALUE;
+    }
+}
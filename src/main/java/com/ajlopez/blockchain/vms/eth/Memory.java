@@ -1,22 +1,23 @@
 package com.ajlopez.blockchain.vms.eth;
 
 import com.ajlopez.blockchain.core.types.DataWord;
-import com.ajlopez.blockchain.utils.ByteUtils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Created by ajlopez on 11/12/2018.
  */
 public class Memory {
+    // the memory is contiguous, its capacity grows in multiples of the chunk size
     public static final int CHUNK_SIZE = 4096;
-    private final List<byte[]> chunks = new ArrayList<>();
+    public static final long QUADRATIC_DENOMINATOR = 512;
+
+    private byte[] data = new byte[0];
+    private ByteBuffer buffer = ByteBuffer.wrap(this.data);
     private int size;
 
     public void setValue(int address, DataWord value) {
-        ensureSize(address + DataWord.DATAWORD_BYTES);
-
         this.setBytes(address, value.getBytes(), 0, DataWord.DATAWORD_BYTES);
     }
 
@@ -24,111 +25,129 @@ public class Memory {
         if (address >= this.size)
             return DataWord.ZERO;
 
-        byte[] data = this.getBytes(address, DataWord.DATAWORD_BYTES);
+        return new DataWord(this.getBytes(address, DataWord.DATAWORD_BYTES));
+    }
 
-        return new DataWord(data);
+    public void setWord(int address, Word256 word) {
+        this.ensureSize(address, Word256.WORD_BYTES);
+
+        this.buffer.putLong(address, word.getLong(0));
+        this.buffer.putLong(address + Long.BYTES, word.getLong(1));
+        this.buffer.putLong(address + Long.BYTES * 2, word.getLong(2));
+        this.buffer.putLong(address + Long.BYTES * 3, word.getLong(3));
     }
 
-    public void setByte(int address, byte value) {
-        ensureSize(address + 1);
+    // reads the word at the address into the given word, the memory is expanded to include it
+    public Word256 getWord(int address, Word256 word) {
+        this.ensureSize(address, Word256.WORD_BYTES);
 
-        int nchunk = address / CHUNK_SIZE;
-        int choffset = address % CHUNK_SIZE;
+        return word.setLongs(
+                this.buffer.getLong(address),
+                this.buffer.getLong(address + Long.BYTES),
+                this.buffer.getLong(address + Long.BYTES * 2),
+                this.buffer.getLong(address + Long.BYTES * 3));
+    }
+
+    public void setByte(int address, byte value) {
+        this.ensureSize(address, 1);
 
-        this.chunks.get(nchunk)[choffset] = value;
+        this.data[address] = value;
     }
 
+    // copies length bytes from the offset, the bytes beyond the source are zeros
     public void setBytes(int address, byte[] bytes, int offset, int length) {
-        ensureSize(address + length);
-
-        if (bytes.length <= offset)
+        if (length == 0)
             return;
 
-        int nchunk = address / CHUNK_SIZE;
-        int choffset = address % CHUNK_SIZE;
-        int tocopy = Math.min(bytes.length - offset, length);
-        int tofill = length > bytes.length - offset ? length - (bytes.length - offset) : 0;
-        int copied = 0;
+        this.ensureSize(address, length);
 
-        while (copied < tocopy) {
-            int nbytes;
+        int tocopy = offset < 0 || offset >= bytes.length ? 0 : Math.min(bytes.length - offset, length);
 
-            if (choffset + (tocopy - copied) > CHUNK_SIZE)
-                nbytes = CHUNK_SIZE - choffset;
-            else
-                nbytes = tocopy - copied;
+        if (tocopy > 0)
+            System.arraycopy(bytes, offset, this.data, address, tocopy);
 
-            System.arraycopy(bytes, offset + copied, this.chunks.get(nchunk), choffset, nbytes);
+        Arrays.fill(this.data, address + tocopy, address + length, (byte)0);
+    }
 
-            copied += nbytes;
-            nchunk++;
-            choffset = 0;
-        }
+    public byte[] getBytes(int address, int length) {
+        if (length == 0)
+            return new byte[0];
 
-        if (tofill == 0)
-            return;
+        checkRange(address, length);
 
-        address += length - tofill;
+        byte[] bytes = new byte[length];
 
-        nchunk = address / CHUNK_SIZE;
-        choffset = address % CHUNK_SIZE;
-        int filled = 0;
+        if (address < this.size)
+            System.arraycopy(this.data, address, bytes, 0, Math.min(this.size - address, length));
 
-        while (filled < tofill) {
-            int nbytes;
+        return bytes;
+    }
 
-            if (choffset + (tofill - filled) > CHUNK_SIZE)
-                nbytes = CHUNK_SIZE - choffset;
-            else
-                nbytes = tofill - filled;
+    // reads the bytes of an opcode that was charged for their expansion, the memory is expanded to include them
+    public byte[] readBytes(int address, int length) {
+        if (length == 0)
+            return new byte[0];
 
-            ByteUtils.fillWithZeros(this.chunks.get(nchunk), choffset, nbytes);
+        this.ensureSize(address, length);
 
-            filled += nbytes;
-            nchunk++;
-            choffset = 0;
-        }
+        return Arrays.copyOfRange(this.data, address, address + length);
     }
 
-    public byte[] getBytes(int address, int length) {
-        byte[] bytes = new byte[length];
+    public int size() {
+        return this.size;
+    }
 
-        if (this.size < address)
-            return bytes;
+    // gas to expand the memory to include the range, an offset or length that is not an integer never fits in the gas
+    public long getExpansionGasCost(Word256 address, Word256 length) {
+        if (length.isZero())
+            return 0;
 
-        int nchunk = address / CHUNK_SIZE;
-        int offset = address % CHUNK_SIZE;
-        int tocopy = Math.min(this.size - address, length);
-        int copied = 0;
+        if (!length.isUnsignedInteger())
+            return Long.MAX_VALUE;
 
-        while (copied < tocopy) {
-            int nbytes;
+        return this.getExpansionGasCost(address, length.asUnsignedInteger());
+    }
 
-            if (offset + (tocopy - copied) > CHUNK_SIZE)
-                nbytes = CHUNK_SIZE - offset;
-            else
-                nbytes = tocopy - copied;
+    public long getExpansionGasCost(Word256 address, int length) {
+        if (length == 0)
+            return 0;
 
-            System.arraycopy(this.chunks.get(nchunk), offset, bytes, copied, nbytes);
+        if (!address.isUnsignedInteger())
+            return Long.MAX_VALUE;
 
-            copied += nbytes;
-            nchunk++;
-            offset = 0;
-        }
+        long newWords = ((long)address.asUnsignedInteger() + length + Word256.WORD_BYTES - 1) / Word256.WORD_BYTES;
+        long words = ((long)this.size + Word256.WORD_BYTES - 1) / Word256.WORD_BYTES;
 
-        return bytes;
+        if (newWords <= words)
+            return 0;
+
+        // the words are below 2^27, so the squares do not overflow
+        return getGasCost(newWords) - getGasCost(words);
     }
 
-    public int size() {
-        return this.size;
+    private static long getGasCost(long words) {
+        return FeeSchedule.MEMORY.getValue() * words + words * words / QUADRATIC_DENOMINATOR;
+    }
+
+    private static void checkRange(int address, int length) {
+        if (address < 0 || length < 0 || address + length < 0)
+            throw new IllegalArgumentException("Invalid memory range");
     }
 
-    private void ensureSize(int size) {
+    private void ensureSize(int address, int length) {
+        checkRange(address, length);
+
+        int size = address + length;
+
         if (size <= this.size)
             return;
 
-        while (this.chunks.size() * CHUNK_SIZE < size)
-            this.chunks.add(new byte[CHUNK_SIZE]);
+        if (size > this.data.length) {
+            long capacity = Math.max((long)this.data.length * 2, ((long)size + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE);
+
+            this.data = Arrays.copyOf(this.data, (int)Math.min(capacity, Integer.MAX_VALUE));
+            this.buffer = ByteBuffer.wrap(this.data);
+        }
 
         this.size = size;
     }
@@ -0,0 +1,69 @@
+package com.ajlopez.blockchain.vms.eth;
+
+public class OperandStack {
+    public static final int MAX_SIZE = 1024;
+
+    // the slots are reused, a popped word is valid until the next push
+    private final Word256[] words = new Word256[MAX_SIZE];
+    private int size;
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public Word256 get(int index) {
+        return this.words[index];
+    }
+
+    // returns the new top slot, the caller sets its value
+    public Word256 push() throws VirtualMachineException {
+        if (this.size >= MAX_SIZE)
+            throw new VirtualMachineException("Stack overflow");
+
+        Word256 word = this.words[this.size];
+
+        if (word == null)
+            word = this.words[this.size] = new Word256();
+
+        this.size++;
+
+        return word;
+    }
+
+    public void push(Word256 word) throws VirtualMachineException {
+        this.push().set(word);
+    }
+
+    public Word256 pop() throws VirtualMachineException {
+        if (this.size == 0)
+            throw new VirtualMachineException("Stack underflow");
+
+        return this.words[--this.size];
+    }
+
+    // DUPn, n from 1 to 16
+    public void dup(int n) throws VirtualMachineException {
+        if (n > this.size)
+            throw new VirtualMachineException("Stack underflow");
+
+        Word256 word = this.words[this.size - n];
+
+        this.push().set(word);
+    }
+
+    // SWAPn, n from 1 to 16, exchanges the slots without copying values
+    public void swap(int n) throws VirtualMachineException {
+        if (n >= this.size)
+            throw new VirtualMachineException("Stack underflow");
+
+        int top = this.size - 1;
+        Word256 word = this.words[top];
+
+        this.words[top] = this.words[top - n];
+        this.words[top - n] = word;
+    }
+}
@@ -2,10 +2,16 @@ package com.ajlopez.blockchain.vms.eth;
 
 import com.ajlopez.blockchain.core.types.DataWord;
 import com.ajlopez.blockchain.core.types.Hash;
-import com.ajlopez.blockchain.execution.AccountState;
 import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.utils.ByteUtils;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Created by Angel on 17/02/2019.
@@ -13,45 +19,76 @@ import java.io.IOException;
 public class TrieStorage implements Storage {
     private Trie trie;
 
+    // decoded values of the slots read or written, the written ones are put into the trie in one batch
+    private final Map<DataWord, DataWord> values = new HashMap<>();
+    private final Set<DataWord> changed = new HashSet<>();
+
     public TrieStorage(Trie trie) {
         this.trie = trie;
     }
 
     @Override
     public boolean hasValue(DataWord address) throws IOException {
-        byte[] data = this.trie.get(address.getBytes());
-
-        return data == null;
+        return !this.getValue(address).isZero();
     }
 
     @Override
     public void setValue(DataWord address, DataWord value) throws IOException {
-        byte[] bkey = address.getBytes();
-
-        if (value.equals(DataWord.ZERO))
-            this.trie = this.trie.delete(bkey);
-        else {
-            byte[] bvalue = value.toNormalizedBytes();
-            this.trie = this.trie.put(bkey, bvalue);
-        }
+        this.values.put(address, value);
+        this.changed.add(address);
     }
 
     @Override
     public DataWord getValue(DataWord address) throws IOException {
+        DataWord value = this.values.get(address);
+
+        if (value != null)
+            return value;
+
         byte[] data = this.trie.get(address.getBytes());
 
-        if (data == null)
-            return DataWord.ZERO;
+        value = data == null ? DataWord.ZERO : new DataWord(data);
+
+        this.values.put(address, value);
+
+        return value;
+    }
+
+    // a warm slot was already read or written, so its value is in memory
+    public boolean isWarm(DataWord address) {
+        return this.values.containsKey(address);
+    }
 
-        return new DataWord(data);
+    public boolean hasChanges() {
+        return !this.changed.isEmpty();
     }
 
-    public Hash getRootHash() {
+    public Hash getRootHash() throws IOException {
+        this.flush();
+
         return this.trie.getHash();
     }
 
     @Override
     public void commit() throws IOException {
+        this.flush();
         this.trie.save();
     }
+
+    private void flush() throws IOException {
+        if (this.changed.isEmpty())
+            return;
+
+        SortedMap<byte[], byte[]> updates = new TreeMap<>(ByteUtils::compareUnsigned);
+
+        // zero values are removed from the trie
+        for (DataWord address : this.changed) {
+            DataWord value = this.values.get(address);
+
+            updates.put(address.getBytes(), value.isZero() ? null : value.toNormalizedBytes());
+        }
+
+        this.trie = this.trie.putAll(updates);
+        this.changed.clear();
+    }
 }
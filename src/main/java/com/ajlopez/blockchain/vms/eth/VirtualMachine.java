@@ -1,12 +1,8 @@
 package com.ajlopez.blockchain.vms.eth;
 
-import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.core.types.DataWord;
-import com.ajlopez.blockchain.utils.ByteUtils;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Stack;
 
 /**
@@ -17,8 +13,10 @@ public class VirtualMachine {
 
     private final ProgramEnvironment programEnvironment;
     private final Storage storage;
+    private final boolean blockGasAccounting;
+    private final int compileThreshold;
     private final Memory memory = new Memory();
-    private final Stack<DataWord> stack = new Stack<>();
+    private final OperandStack stack = new OperandStack();
 
     static {
         opCodeFees[OpCodes.ADDRESS] = FeeSchedule.BASE;
@@ -91,424 +89,330 @@ public class VirtualMachine {
     }
 
     public VirtualMachine(ProgramEnvironment programEnvironment, Storage storage) {
+        this(programEnvironment, storage, false);
+    }
+
+    // with block gas accounting, the static gas of each basic block is charged and checked when the block is entered
+    public VirtualMachine(ProgramEnvironment programEnvironment, Storage storage, boolean blockGasAccounting) {
+        this(programEnvironment, storage, blockGasAccounting, 0);
+    }
+
+    // code executed compileThreshold times is compiled to a JVM class, zero disables compilation
+    // compiled code charges gas per block, so it requires block gas accounting
+    public VirtualMachine(ProgramEnvironment programEnvironment, Storage storage, boolean blockGasAccounting, int compileThreshold) {
+        if (compileThreshold > 0 && !blockGasAccounting)
+            throw new IllegalArgumentException("Compilation requires block gas accounting");
+
         this.programEnvironment = programEnvironment;
         this.storage = storage;
+        this.blockGasAccounting = blockGasAccounting;
+        this.compileThreshold = compileThreshold;
     }
 
     public ExecutionResult execute(byte[] bytecodes) throws IOException {
-        long gasUsed = 0;
-        List<Log> logs = new ArrayList<>();
+        return this.execute(bytecodes, new CodeAnalysis(bytecodes));
+    }
+
+    public ExecutionResult execute(byte[] bytecodes, CodeAnalysis codeAnalysis) throws IOException {
+        try {
+            CompiledCode compiledCode = this.getCompiledCode(bytecodes, codeAnalysis);
+            Frame frame = new Frame(this, bytecodes, codeAnalysis);
+
+            if (compiledCode != null)
+                return compiledCode.execute(frame);
+
+            return this.executeBytecodes(frame, 0);
+        }
+        catch (VirtualMachineException ex) {
+            return ExecutionResult.ErrorException(this.programEnvironment.getGas(), ex);
+        }
+    }
+
+    private CompiledCode getCompiledCode(byte[] bytecodes, CodeAnalysis codeAnalysis) {
+        if (this.compileThreshold <= 0)
+            return null;
+
+        CompiledCode compiledCode = codeAnalysis.getCompiledCode();
+
+        if (compiledCode != null)
+            return compiledCode;
+
+        // only the execution that reaches the threshold compiles, a code that cannot be compiled stays interpreted
+        if (codeAnalysis.countExecution() != this.compileThreshold)
+            return null;
+
+        compiledCode = CodeCompiler.compile(bytecodes, codeAnalysis);
+
+        codeAnalysis.setCompiledCode(compiledCode);
+
+        return compiledCode;
+    }
+
+    // also resumes, from compiled code, an execution at the first opcode it does not support
+    ExecutionResult executeBytecodes(Frame frame, int initialPc) throws IOException, VirtualMachineException {
+        boolean blockGasAccounting = this.blockGasAccounting;
+        byte[] bytecodes = frame.getBytecodes();
+        CodeAnalysis codeAnalysis = frame.getCodeAnalysis();
         int l = bytecodes.length;
 
-        for (int pc = 0; pc < l; pc++) {
+        for (int pc = initialPc; pc < l; pc++) {
             byte bytecode = bytecodes[pc];
 
-            FeeSchedule fee = opCodeFees[bytecode & 0xff];
-
-            if (fee != null) {
-                long gasCost = fee.getValue();
+            // blocks are only entered at their start, as jumps land on a JUMPDEST
+            if (blockGasAccounting) {
+                long gasCost = codeAnalysis.getBlockGasCost(pc);
 
-                if (gasUsed + gasCost > this.programEnvironment.getGas())
-                    return ExecutionResult.ErrorException(this.programEnvironment.getGas(), new VirtualMachineException("Insufficient gas"));
+                if (gasCost != 0)
+                    frame.useGas(gasCost);
+            }
+            else {
+                FeeSchedule fee = opCodeFees[bytecode & 0xff];
 
-                gasUsed += gasCost;
+                if (fee != null)
+                    frame.useGas(fee.getValue());
             }
 
             switch (bytecode) {
                 case OpCodes.STOP:
-                    return ExecutionResult.OkWithoutData(gasUsed, logs);
+                    return frame.stop();
 
                 case OpCodes.ADD:
-                    DataWord word1 = this.stack.pop();
-                    DataWord word2 = this.stack.pop();
-
-                    this.stack.push(word1.add(word2));
+                    frame.add();
 
                     break;
 
                 case OpCodes.MUL:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.mul(word2));
+                    frame.mul();
 
                     break;
 
                 case OpCodes.SUB:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.sub(word2));
+                    frame.sub();
 
                     break;
 
                 case OpCodes.DIV:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    if (word2.isZero())
-                        this.stack.push(DataWord.ZERO);
-                    else
-                        this.stack.push(word1.div(word2));
+                    frame.div();
 
                     break;
 
                 case OpCodes.EXP:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.exp(word2));
+                    frame.exp();
 
                     break;
 
                 case OpCodes.SDIV:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    if (word2.isZero())
-                        this.stack.push(DataWord.ZERO);
-                    else
-                        this.stack.push(word1.sdiv(word2));
+                    frame.sdiv();
 
                     break;
 
                 case OpCodes.MOD:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    if (word2.isZero())
-                        this.stack.push(DataWord.ZERO);
-                    else
-                        this.stack.push(word1.mod(word2));
+                    frame.mod();
 
                     break;
 
                 case OpCodes.SMOD:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    if (word2.isZero())
-                        this.stack.push(DataWord.ZERO);
-                    else
-                        this.stack.push(word1.smod(word2));
+                    frame.smod();
 
                     break;
 
                 case OpCodes.ADDMOD:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-                    DataWord word3 = this.stack.pop();
-
-                    if (word3.isZero())
-                        this.stack.push(DataWord.ZERO);
-                    else
-                        this.stack.push(word1.add(word2).mod(word3));
+                    frame.addmod();
 
                     break;
 
                 case OpCodes.MULMOD:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-                    word3 = this.stack.pop();
-
-                    if (word3.isZero())
-                        this.stack.push(DataWord.ZERO);
-                    else
-                        this.stack.push(word1.mul(word2).mod(word3));
+                    frame.mulmod();
 
                     break;
 
                 case OpCodes.LT:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.compareTo(word2) < 0 ? DataWord.ONE : DataWord.ZERO);
+                    frame.lt();
 
                     break;
 
                 case OpCodes.GT:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.compareTo(word2) > 0 ? DataWord.ONE : DataWord.ZERO);
+                    frame.gt();
 
                     break;
 
                 case OpCodes.SLT:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.compareToSigned(word2) < 0 ? DataWord.ONE : DataWord.ZERO);
+                    frame.slt();
 
                     break;
 
                 case OpCodes.SGT:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.compareToSigned(word2) > 0 ? DataWord.ONE : DataWord.ZERO);
+                    frame.sgt();
 
                     break;
 
                 case OpCodes.EQ:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.compareTo(word2) == 0 ? DataWord.ONE : DataWord.ZERO);
+                    frame.eq();
 
                     break;
 
                 case OpCodes.ISZERO:
-                    DataWord word = this.stack.pop();
-
-                    this.stack.push(word.isZero() ? DataWord.ONE : DataWord.ZERO);
+                    frame.iszero();
 
                     break;
 
                 case OpCodes.AND:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.and(word2));
+                    frame.and();
 
                     break;
 
                 case OpCodes.OR:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.or(word2));
+                    frame.or();
 
                     break;
 
                 case OpCodes.XOR:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word1.xor(word2));
+                    frame.xor();
 
                     break;
 
                 case OpCodes.NOT:
-                    this.stack.push(this.stack.pop().not());
+                    frame.not();
 
                     break;
 
                 case OpCodes.BYTE:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    int nbyte = word1.getBytes()[DataWord.DATAWORD_BYTES - 1] & 0xff;
-
-                    if (word1.isUnsignedInteger() && nbyte < 32)
-                        this.stack.push(DataWord.fromUnsignedInteger(word2.getBytes()[nbyte] & 0xff));
-                    else
-                        this.stack.push(DataWord.ZERO);
+                    frame.getByte();
 
                     break;
 
                 case OpCodes.SHL:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word2.shiftLeft(word1));
+                    frame.shl();
 
                     break;
 
                 case OpCodes.SHR:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word2.shiftRight(word1));
+                    frame.shr();
 
                     break;
 
                 case OpCodes.SAR:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.stack.push(word2.shiftArithmeticRight(word1));
+                    frame.sar();
 
                     break;
 
                 case OpCodes.ADDRESS:
-                    this.stack.push(DataWord.fromAddress(this.programEnvironment.getAddress()));
+                    frame.address();
 
                     break;
 
                 case OpCodes.ORIGIN:
-                    this.stack.push(DataWord.fromAddress(this.programEnvironment.getOrigin()));
+                    frame.origin();
 
                     break;
 
                 case OpCodes.CALLER:
-                    this.stack.push(DataWord.fromAddress(this.programEnvironment.getCaller()));
+                    frame.caller();
 
                     break;
 
                 case OpCodes.CALLVALUE:
-                    this.stack.push(DataWord.fromCoin(this.programEnvironment.getValue()));
+                    frame.callvalue();
 
                     break;
 
                 case OpCodes.CALLDATALOAD:
-                    byte[] data = this.programEnvironment.getData();
-                    int offset = this.stack.pop().asUnsignedInteger();
-
-                    if (offset >= data.length)
-                        this.stack.push(DataWord.ZERO);
-                    else
-                        this.stack.push(DataWord.fromBytesToLeft(data, offset, Math.min(DataWord.DATAWORD_BYTES, data.length - offset)));
+                    frame.calldataload();
 
                     break;
 
                 case OpCodes.CALLDATASIZE:
-                    this.stack.push(DataWord.fromUnsignedInteger(this.programEnvironment.getData().length));
+                    frame.calldatasize();
 
                     break;
 
                 case OpCodes.CALLDATACOPY:
-                    data = this.programEnvironment.getData();
-                    int targetOffset = this.stack.pop().asUnsignedInteger();
-                    int sourceOffset = this.stack.pop().asUnsignedInteger();
-                    int length = this.stack.pop().asUnsignedInteger();
-
-                    this.memory.setBytes(targetOffset, data, sourceOffset, length);
+                    frame.calldatacopy();
 
                     break;
 
                 case OpCodes.CODESIZE:
-                    this.stack.push(DataWord.fromUnsignedInteger(bytecodes.length));
+                    frame.codesize();
 
                     break;
 
                 case OpCodes.CODECOPY:
-                    targetOffset = this.stack.pop().asUnsignedInteger();
-                    sourceOffset = this.stack.pop().asUnsignedInteger();
-                    length = this.stack.pop().asUnsignedInteger();
-
-                    this.memory.setBytes(targetOffset, bytecodes, sourceOffset, length);
+                    frame.codecopy();
 
                     break;
 
                 case OpCodes.GASPRICE:
-                    this.stack.push(DataWord.fromCoin(this.programEnvironment.getGasPrice()));
+                    frame.gasprice();
 
                     break;
 
                 case OpCodes.EXTCODESIZE:
-                    byte[] contractCode = this.programEnvironment.getCode(stack.pop().toAddress());
-                    this.stack.push(contractCode == null ? DataWord.ZERO : DataWord.fromUnsignedLong(contractCode.length));
+                    frame.extcodesize();
 
                     break;
 
                 case OpCodes.EXTCODECOPY:
-                    Address address = this.stack.pop().toAddress();
-                    contractCode = this.programEnvironment.getCode(address);
-
-                    // TODO check integer ranges
-                    int to = this.stack.pop().asUnsignedInteger();
-                    int from = this.stack.pop().asUnsignedInteger();
-                    length = this.stack.pop().asUnsignedInteger();
-
-                    if (contractCode == null)
-                        contractCode = ByteUtils.EMPTY_BYTE_ARRAY;
-
-                    this.memory.setBytes(to, contractCode, from, length);
+                    frame.extcodecopy();
 
                     break;
 
                 case OpCodes.COINBASE:
-                    this.stack.push(DataWord.fromAddress(this.programEnvironment.getCoinbase()));
+                    frame.coinbase();
 
                     break;
 
                 case OpCodes.TIMESTAMP:
-                    this.stack.push(DataWord.fromUnsignedLong(this.programEnvironment.getTimestamp()));
+                    frame.timestamp();
 
                     break;
 
                 case OpCodes.NUMBER:
-                    this.stack.push(DataWord.fromUnsignedLong(this.programEnvironment.getNumber()));
+                    frame.number();
 
                     break;
 
                 case OpCodes.DIFFICULTY:
-                    this.stack.push(this.programEnvironment.getDifficulty().toDataWord());
+                    frame.difficulty();
 
                     break;
 
                 case OpCodes.POP:
-                    this.stack.pop();
+                    frame.pop();
 
                     break;
 
                 case OpCodes.MLOAD:
-                    word1 = this.stack.pop();
-
-                    this.stack.push(this.memory.getValue(word1.asUnsignedInteger()));
+                    frame.mload();
 
                     break;
 
                 case OpCodes.MSTORE:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.memory.setValue(word1.asUnsignedInteger(), word2);
+                    frame.mstore();
 
                     break;
 
                 case OpCodes.MSTORE8:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.memory.setByte(word1.asUnsignedInteger(), word2.getBytes()[DataWord.DATAWORD_BYTES - 1]);
+                    frame.mstore8();
 
                     break;
 
                 case OpCodes.SLOAD:
-                    word1 = this.stack.pop();
-
-                    this.stack.push(this.storage.getValue(word1));
+                    frame.sload();
 
                     break;
 
                 case OpCodes.SSTORE:
-                    if (this.programEnvironment.isReadOnly())
-                        return ExecutionResult.ErrorException(this.programEnvironment.getGas(), new VirtualMachineException("Read-only message"));
-
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    this.storage.setValue(word1, word2);
+                    frame.sstore();
 
                     break;
 
                 case OpCodes.JUMP:
-                    word = this.stack.pop();
-
-                    try {
-                        pc = getNewPc(bytecodes, word);
-                    }
-                    catch (VirtualMachineException ex) {
-                        return ExecutionResult.ErrorException(this.programEnvironment.getGas(), ex);
-                    }
+                    pc = frame.jump() - 1;
 
                     break;
 
                 case OpCodes.JUMPI:
-                    word1 = this.stack.pop();
-                    word2 = this.stack.pop();
-
-                    if (word2.isZero())
-                        break;
-
-                    try {
-                        pc = getNewPc(bytecodes, word1);
-                    }
-                    catch (VirtualMachineException ex) {
-                        return ExecutionResult.ErrorException(this.programEnvironment.getGas(), ex);
-                    }
+                    pc = frame.jumpi(pc + 1) - 1;
 
                     break;
 
@@ -517,17 +421,17 @@ public class VirtualMachine {
                     break;
 
                 case OpCodes.PC:
-                    this.stack.push(DataWord.fromUnsignedInteger(pc));
+                    frame.push(pc);
 
                     break;
 
                 case OpCodes.MSIZE:
-                    this.stack.push(DataWord.fromUnsignedInteger(this.memory.size()));
+                    frame.msize();
 
                     break;
 
                 case OpCodes.GAS:
-                    this.stack.push(DataWord.fromUnsignedLong(this.programEnvironment.getGas() - gasUsed));
+                    frame.gas();
 
                     break;
 
@@ -565,7 +469,7 @@ public class VirtualMachine {
                 case OpCodes.PUSH32:
                     int lb = bytecode - OpCodes.PUSH1 + 1;
 
-                    this.stack.push(DataWord.fromBytes(bytecodes, pc + 1, lb));
+                    frame.push(pc, lb);
 
                     pc += lb;
 
@@ -587,7 +491,7 @@ public class VirtualMachine {
                 case OpCodes.DUP14:
                 case OpCodes.DUP15:
                 case OpCodes.DUP16:
-                    this.stack.push(this.stack.get(this.stack.size() - 1 - (bytecode - OpCodes.DUP1)));
+                    frame.dup(bytecode - OpCodes.DUP1 + 1);
 
                     break;
 
@@ -607,14 +511,7 @@ public class VirtualMachine {
                 case OpCodes.SWAP14:
                 case OpCodes.SWAP15:
                 case OpCodes.SWAP16:
-                    int size = this.stack.size();
-                    offset = bytecode - OpCodes.SWAP1 + 1;
-
-                    word1 = this.stack.get(size - 1);
-                    word2 = this.stack.get(size - 1 - offset);
-
-                    this.stack.set(size - 1, word2);
-                    this.stack.set(size - 1 - offset, word1);
+                    frame.swap(bytecode - OpCodes.SWAP1 + 1);
 
                     break;
 
@@ -623,61 +520,48 @@ public class VirtualMachine {
                 case OpCodes.LOG2:
                 case OpCodes.LOG3:
                 case OpCodes.LOG4:
-                    offset = this.stack.pop().asUnsignedInteger();
-                    length = this.stack.pop().asUnsignedInteger();
-
-                    byte[] bytes = this.memory.getBytes(offset, length);
-                    List<DataWord> topics = new ArrayList<>();
-
-                    for (int k = 0; k < bytecode - OpCodes.LOG0; k++)
-                        topics.add(this.stack.pop());
-
-                    Log log = new Log(this.programEnvironment.getAddress(), bytes, topics);
-
-                    logs.add(log);
+                    frame.log(bytecode - OpCodes.LOG0);
 
                     break;
 
                 case OpCodes.RETURN:
-                    offset = this.stack.pop().asUnsignedInteger();
-                    length = this.stack.pop().asUnsignedInteger();
-
-                    byte[] returnedData = this.memory.getBytes(offset, length);
-
-                    return ExecutionResult.OkWithData(gasUsed, returnedData, logs);
+                    return frame.doReturn();
 
                 case OpCodes.REVERT:
-                    offset = this.stack.pop().asUnsignedInteger();
-                    length = this.stack.pop().asUnsignedInteger();
-
-                    returnedData = this.memory.getBytes(offset, length);
-
-                    return ExecutionResult.ErrorReverted(gasUsed, returnedData);
+                    return frame.revert();
 
                 default:
                     return ExecutionResult.ErrorException(this.programEnvironment.getGas(), new VirtualMachineException("Invalid opcode"));
             }
         }
 
-        return ExecutionResult.OkWithoutData(gasUsed, logs);
+        return frame.stop();
     }
 
-    private static int getNewPc(byte[] bytecodes, DataWord word1) throws VirtualMachineException {
-        int newpc;
-
-        if (!word1.isUnsignedInteger())
-            throw new VirtualMachineException("Invalid jump");
+    ProgramEnvironment getProgramEnvironment() {
+        return this.programEnvironment;
+    }
 
-        newpc = word1.asUnsignedInteger();
+    Storage getStorage() {
+        return this.storage;
+    }
 
-        if (newpc >= bytecodes.length || bytecodes[newpc] != OpCodes.JUMPDEST)
-            throw new VirtualMachineException("Invalid jump");
+    OperandStack getOperandStack() {
+        return this.stack;
+    }
 
-        return newpc - 1;
+    static FeeSchedule getOpCodeFee(byte bytecode) {
+        return opCodeFees[bytecode & 0xff];
     }
 
+    // a copy of the operand stack, as data words
     public Stack<DataWord> getStack() {
-        return this.stack;
+        Stack<DataWord> words = new Stack<>();
+
+        for (int k = 0; k < this.stack.size(); k++)
+            words.push(this.stack.get(k).toDataWord());
+
+        return words;
     }
 
     public Memory getMemory() {
@@ -0,0 +1,471 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.DataWord;
+import com.ajlopez.blockchain.utils.HexUtils;
+
+import java.util.Arrays;
+
+public final class Word256 implements Comparable<Word256> {
+    public static final int WORD_BYTES = DataWord.DATAWORD_BYTES;
+
+    private static final int NWORDS = 4;
+    private static final int MAX_POW = 256;
+    private static final long INT_MASK = 0xffffffffL;
+
+    // mutable unsigned 256-bit value, most significant long first like the bytes in DataWord
+    // the arithmetic operations update this word in place and return it
+    private final long[] words = new long[NWORDS];
+
+    public static Word256 fromDataWord(DataWord word) {
+        return new Word256().setBytes(word.getBytes(), 0, WORD_BYTES);
+    }
+
+    public static Word256 fromAddress(Address address) {
+        byte[] bytes = address.getBytes();
+
+        return new Word256().setBytes(bytes, 0, bytes.length);
+    }
+
+    public static Word256 fromUnsignedLong(long value) {
+        return new Word256().setUnsignedLong(value);
+    }
+
+    public Word256() {
+
+    }
+
+    public Word256(Word256 word) {
+        this.set(word);
+    }
+
+    public Word256 set(Word256 word) {
+        System.arraycopy(word.words, 0, this.words, 0, NWORDS);
+
+        return this;
+    }
+
+    public Word256 setZero() {
+        return this.setUnsignedLong(0);
+    }
+
+    public Word256 setUnsignedLong(long value) {
+        this.words[0] = 0;
+        this.words[1] = 0;
+        this.words[2] = 0;
+        this.words[3] = value;
+
+        return this;
+    }
+
+    // the longs of the word, most significant first
+    public Word256 setLongs(long word0, long word1, long word2, long word3) {
+        this.words[0] = word0;
+        this.words[1] = word1;
+        this.words[2] = word2;
+        this.words[3] = word3;
+
+        return this;
+    }
+
+    public long getLong(int index) {
+        return this.words[index];
+    }
+
+    // big-endian bytes, aligned to the right
+    public Word256 setBytes(byte[] bytes, int offset, int length) {
+        if (length > WORD_BYTES)
+            throw new IllegalArgumentException("Too large byte array");
+
+        this.setZero();
+
+        for (int k = 0, position = WORD_BYTES - length; k < length; k++, position++)
+            this.words[position >>> 3] |= (bytes[offset + k] & 0xffL) << ((7 - (position & 7)) << 3);
+
+        return this;
+    }
+
+    // big-endian bytes, aligned to the left
+    public Word256 setBytesToLeft(byte[] bytes, int offset, int length) {
+        if (length > WORD_BYTES)
+            throw new IllegalArgumentException("Too large byte array");
+
+        this.setZero();
+
+        for (int k = 0; k < length; k++)
+            this.words[k >>> 3] |= (bytes[offset + k] & 0xffL) << ((7 - (k & 7)) << 3);
+
+        return this;
+    }
+
+    public void getBytes(byte[] bytes, int offset) {
+        for (int k = 0; k < NWORDS; k++) {
+            long word = this.words[k];
+
+            for (int j = 7; j >= 0; j--) {
+                bytes[offset + (k << 3) + j] = (byte)word;
+                word >>>= 8;
+            }
+        }
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[WORD_BYTES];
+
+        this.getBytes(bytes, 0);
+
+        return bytes;
+    }
+
+    public DataWord toDataWord() {
+        return new DataWord(this.toBytes());
+    }
+
+    public Address toAddress() {
+        return this.toDataWord().toAddress();
+    }
+
+    public byte getByte(int nbyte) {
+        return (byte)(this.words[nbyte >>> 3] >>> ((7 - (nbyte & 7)) << 3));
+    }
+
+    public int asUnsignedInteger() {
+        return (int)this.words[NWORDS - 1];
+    }
+
+    public boolean isUnsignedInteger() {
+        return this.words[0] == 0 && this.words[1] == 0 && this.words[2] == 0 && (this.words[3] >>> 31) == 0;
+    }
+
+    public boolean isZero() {
+        return (this.words[0] | this.words[1] | this.words[2] | this.words[3]) == 0;
+    }
+
+    public boolean isNegative() {
+        return this.words[0] < 0;
+    }
+
+    public Word256 add(Word256 word) {
+        long carry = 0;
+
+        for (int k = NWORDS - 1; k >= 0; k--) {
+            long a = this.words[k];
+            long sum = a + word.words[k] + carry;
+
+            carry = (Long.compareUnsigned(sum, a) < 0 || (carry != 0 && sum == a)) ? 1 : 0;
+            this.words[k] = sum;
+        }
+
+        return this;
+    }
+
+    public Word256 sub(Word256 word) {
+        long borrow = 0;
+
+        for (int k = NWORDS - 1; k >= 0; k--) {
+            long a = this.words[k];
+            long b = word.words[k];
+            long diff = a - b - borrow;
+
+            borrow = (Long.compareUnsigned(a, b) < 0 || (borrow != 0 && a == b)) ? 1 : 0;
+            this.words[k] = diff;
+        }
+
+        return this;
+    }
+
+    // product modulo 2^256, schoolbook over the partial products that are not truncated
+    public Word256 mul(Word256 word) {
+        long a0 = this.words[3], a1 = this.words[2], a2 = this.words[1], a3 = this.words[0];
+        long b0 = word.words[3], b1 = word.words[2], b2 = word.words[1], b3 = word.words[0];
+
+        long r0 = a0 * b0;
+        long carry = multiplyHigh(a0, b0);
+
+        long lo = a0 * b1;
+        long r1 = lo + carry;
+        carry = multiplyHigh(a0, b1) + (Long.compareUnsigned(r1, lo) < 0 ? 1 : 0);
+
+        lo = a0 * b2;
+        long r2 = lo + carry;
+        carry = multiplyHigh(a0, b2) + (Long.compareUnsigned(r2, lo) < 0 ? 1 : 0);
+
+        long r3 = a0 * b3 + carry;
+
+        lo = a1 * b0;
+        long sum = r1 + lo;
+        carry = multiplyHigh(a1, b0) + (Long.compareUnsigned(sum, lo) < 0 ? 1 : 0);
+        r1 = sum;
+
+        lo = a1 * b1;
+        sum = r2 + lo;
+        long hi = multiplyHigh(a1, b1) + (Long.compareUnsigned(sum, lo) < 0 ? 1 : 0);
+        r2 = sum + carry;
+        carry = hi + (Long.compareUnsigned(r2, carry) < 0 ? 1 : 0);
+
+        r3 += a1 * b2 + carry;
+
+        lo = a2 * b0;
+        sum = r2 + lo;
+        carry = multiplyHigh(a2, b0) + (Long.compareUnsigned(sum, lo) < 0 ? 1 : 0);
+        r2 = sum;
+
+        r3 += a2 * b1 + carry + a3 * b0;
+
+        this.words[0] = r3;
+        this.words[1] = r2;
+        this.words[2] = r1;
+        this.words[3] = r0;
+
+        return this;
+    }
+
+    public Word256 div(Word256 word) {
+        return this.divide(word, false);
+    }
+
+    public Word256 mod(Word256 word) {
+        return this.divide(word, true);
+    }
+
+    // truncated division, the sign of the remainder follows the dividend
+    public Word256 sdiv(Word256 word) {
+        boolean negative = this.isNegative() != word.isNegative();
+
+        this.abs().divide(word.isNegative() ? new Word256(word).negate() : word, false);
+
+        return negative ? this.negate() : this;
+    }
+
+    public Word256 smod(Word256 word) {
+        boolean negative = this.isNegative();
+
+        this.abs().divide(word.isNegative() ? new Word256(word).negate() : word, true);
+
+        return negative ? this.negate() : this;
+    }
+
+    // power modulo 2^256, by square and multiply
+    public Word256 exp(Word256 word) {
+        Word256 base = new Word256(this);
+        int nbits = MAX_POW - word.numberOfLeadingZeros();
+
+        this.setUnsignedLong(1);
+
+        for (int k = 0; k < nbits; k++) {
+            if (word.testBit(k))
+                this.mul(base);
+
+            if (k < nbits - 1)
+                base.mul(base);
+        }
+
+        return this;
+    }
+
+    public Word256 and(Word256 word) {
+        for (int k = 0; k < NWORDS; k++)
+            this.words[k] &= word.words[k];
+
+        return this;
+    }
+
+    public Word256 or(Word256 word) {
+        for (int k = 0; k < NWORDS; k++)
+            this.words[k] |= word.words[k];
+
+        return this;
+    }
+
+    public Word256 xor(Word256 word) {
+        for (int k = 0; k < NWORDS; k++)
+            this.words[k] ^= word.words[k];
+
+        return this;
+    }
+
+    public Word256 not() {
+        for (int k = 0; k < NWORDS; k++)
+            this.words[k] = ~this.words[k];
+
+        return this;
+    }
+
+    public Word256 negate() {
+        this.not();
+
+        for (int k = NWORDS - 1; k >= 0; k--)
+            if (++this.words[k] != 0)
+                break;
+
+        return this;
+    }
+
+    // shifts with the same rules as DataWord: a shift that is not an unsigned integer gives zero
+    public Word256 shiftLeft(Word256 word) {
+        if (!word.isUnsignedInteger() || word.asUnsignedInteger() >= MAX_POW)
+            return this.setZero();
+
+        return this.shiftLeft(word.asUnsignedInteger());
+    }
+
+    public Word256 shiftRight(Word256 word) {
+        if (!word.isUnsignedInteger() || word.asUnsignedInteger() >= MAX_POW)
+            return this.setZero();
+
+        return this.shiftRight(word.asUnsignedInteger(), false);
+    }
+
+    public Word256 shiftArithmeticRight(Word256 word) {
+        if (!word.isUnsignedInteger())
+            return this.setZero();
+
+        if (word.asUnsignedInteger() >= MAX_POW)
+            return this.isNegative() ? this.setZero().not() : this.setZero();
+
+        return this.shiftRight(word.asUnsignedInteger(), true);
+    }
+
+    public Word256 shiftLeft(int nbits) {
+        int nwords = nbits >>> 6;
+        int shift = nbits & 63;
+
+        for (int k = 0; k < NWORDS; k++) {
+            int source = k + nwords;
+
+            if (source >= NWORDS)
+                this.words[k] = 0;
+            else if (shift == 0)
+                this.words[k] = this.words[source];
+            else
+                this.words[k] = (this.words[source] << shift) | (source + 1 < NWORDS ? this.words[source + 1] >>> (64 - shift) : 0);
+        }
+
+        return this;
+    }
+
+    public Word256 shiftRight(int nbits, boolean arithmetic) {
+        int nwords = nbits >>> 6;
+        int shift = nbits & 63;
+        long fill = arithmetic && this.isNegative() ? -1L : 0;
+
+        for (int k = NWORDS - 1; k >= 0; k--) {
+            int source = k - nwords;
+
+            if (source < 0)
+                this.words[k] = fill;
+            else if (shift == 0)
+                this.words[k] = this.words[source];
+            else
+                this.words[k] = (this.words[source] >>> shift) | ((source > 0 ? this.words[source - 1] : fill) << (64 - shift));
+        }
+
+        return this;
+    }
+
+    @Override
+    public int compareTo(Word256 word) {
+        for (int k = 0; k < NWORDS; k++) {
+            int result = Long.compareUnsigned(this.words[k], word.words[k]);
+
+            if (result != 0)
+                return result;
+        }
+
+        return 0;
+    }
+
+    public int compareToSigned(Word256 word) {
+        int result = Long.compare(this.words[0], word.words[0]);
+
+        if (result != 0)
+            return result;
+
+        for (int k = 1; k < NWORDS; k++) {
+            result = Long.compareUnsigned(this.words[k], word.words[k]);
+
+            if (result != 0)
+                return result;
+        }
+
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Word256))
+            return false;
+
+        return Arrays.equals(this.words, ((Word256)obj).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.words);
+    }
+
+    @Override
+    public String toString() {
+        return HexUtils.bytesToHexString(this.toBytes(), true);
+    }
+
+    private Word256 abs() {
+        return this.isNegative() ? this.negate() : this;
+    }
+
+    private boolean testBit(int nbit) {
+        return (this.words[NWORDS - 1 - (nbit >>> 6)] & (1L << (nbit & 63))) != 0;
+    }
+
+    private int numberOfLeadingZeros() {
+        for (int k = 0; k < NWORDS; k++)
+            if (this.words[k] != 0)
+                return (k << 6) + Long.numberOfLeadingZeros(this.words[k]);
+
+        return MAX_POW;
+    }
+
+    // unsigned division by a non zero divisor, keeping the quotient or the remainder
+    private Word256 divide(Word256 divisor, boolean remainder) {
+        if (this.compareTo(divisor) < 0)
+            return remainder ? this : this.setZero();
+
+        if (this.words[0] == 0 && this.words[1] == 0 && this.words[2] == 0) {
+            long dividend = this.words[3];
+            long value = divisor.words[3];
+
+            return this.setUnsignedLong(remainder ? Long.remainderUnsigned(dividend, value) : Long.divideUnsigned(dividend, value));
+        }
+
+        Word256 rest = new Word256();
+        Word256 quotient = new Word256();
+
+        for (int k = MAX_POW - 1 - this.numberOfLeadingZeros(); k >= 0; k--) {
+            rest.shiftLeft(1);
+
+            if (this.testBit(k))
+                rest.words[NWORDS - 1] |= 1;
+
+            if (rest.compareTo(divisor) >= 0) {
+                rest.sub(divisor);
+                quotient.words[NWORDS - 1 - (k >>> 6)] |= 1L << (k & 63);
+            }
+        }
+
+        return this.set(remainder ? rest : quotient);
+    }
+
+    // high 64 bits of the unsigned 128-bit product
+    private static long multiplyHigh(long x, long y) {
+        long x0 = x & INT_MASK;
+        long x1 = x >>> 32;
+        long y0 = y & INT_MASK;
+        long y1 = y >>> 32;
+
+        long w0 = x0 * y0;
+        long t = x1 * y0 + (w0 >>> 32);
+        long w1 = (t & INT_MASK) + x0 * y1;
+
+        return x1 * y1 + (t >>> 32) + (w1 >>> 32);
+    }
+}
@@ -30,7 +30,7 @@ public class BlockChainTest {
     }
 
     @Test
-    public void noBlockByHash() {
+    public void noBlockByHash() throws IOException {
         Stores stores = new MemoryStores();
         BlockChain blockChain = new BlockChain(stores);
 
@@ -217,4 +217,45 @@ public class BlockChainTest {
 
         Assert.assertNull(blockChain.getBlockByNumber(3));
     }
+
+    @Test
+    public void noBestBlockToLoad() throws IOException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = new BlockChain(stores);
+
+        Assert.assertFalse(blockChain.loadBestBlock());
+        Assert.assertNull(blockChain.getBestBlock());
+    }
+
+    @Test
+    public void loadBestBlockFromStores() throws IOException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 10, 0);
+
+        Block bestBlock = blockChain.getBestBlock();
+
+        BlockChain blockChain2 = new BlockChain(stores);
+
+        Assert.assertTrue(blockChain2.loadBestBlock());
+        Assert.assertEquals(bestBlock, blockChain2.getBestBlock());
+        Assert.assertEquals(10, blockChain2.getBestBlockNumber());
+
+        FactoryHelper.extendBlockChainWithBlocks(blockChain2, 1);
+
+        Assert.assertEquals(11, blockChain2.getBestBlockNumber());
+    }
+
+    @Test
+    public void getBlockHeaderByHash() throws IOException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 3, 2);
+
+        Block block = blockChain.getBlockByNumber(2);
+
+        BlockHeader result = blockChain.getBlockHeaderByHash(block.getHash());
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(block.getHeader(), result);
+        Assert.assertNull(blockChain.getBlockHeaderByHash(FactoryHelper.createRandomBlockHash()));
+    }
 }
@@ -0,0 +1,58 @@
+package com.ajlopez.blockchain.bc;
+
+import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.BlockHeader;
+import com.ajlopez.blockchain.store.HashMapStore;
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class BlockHashStoreTest {
+    @Test
+    public void unknownBlock() throws IOException {
+        BlockHashStore blockHashStore = new BlockHashStore(new HashMapStore(), new HashMapStore());
+
+        Assert.assertNull(blockHashStore.getBlock(FactoryHelper.createRandomBlockHash()));
+        Assert.assertNull(blockHashStore.getBlockHeader(FactoryHelper.createRandomBlockHash()));
+        Assert.assertFalse(blockHashStore.containsBlock(FactoryHelper.createRandomBlockHash()));
+    }
+
+    @Test
+    public void saveAndGetBlock() throws IOException {
+        BlockHashStore blockHashStore = new BlockHashStore(new HashMapStore(), new HashMapStore());
+
+        Block genesis = GenesisGenerator.generateGenesis();
+        Block block = FactoryHelper.createBlock(genesis, FactoryHelper.createRandomAddress(), 3);
+
+        blockHashStore.saveBlock(block);
+
+        Assert.assertTrue(blockHashStore.containsBlock(block.getHash()));
+
+        Block result = blockHashStore.getBlock(block.getHash());
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(block, result);
+        Assert.assertEquals(block.getTransactions(), result.getTransactions());
+    }
+
+    @Test
+    public void saveBlockAndGetHeader() throws IOException {
+        HashMapStore blockStore = new HashMapStore();
+        HashMapStore headerStore = new HashMapStore();
+        BlockHashStore blockHashStore = new BlockHashStore(blockStore, headerStore);
+
+        Block genesis = GenesisGenerator.generateGenesis();
+        Block block = FactoryHelper.createBlock(genesis, FactoryHelper.createRandomAddress(), 3);
+
+        blockHashStore.saveBlock(block);
+
+        BlockHeader result = blockHashStore.getBlockHeader(block.getHash());
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(block.getHeader(), result);
+        Assert.assertEquals(block.getHash(), result.getHash());
+        Assert.assertTrue(headerStore.getValue(block.getHash().getBytes()).length < blockStore.getValue(block.getHash().getBytes()).length);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ajlopez.blockchain.config;
+
+import com.ajlopez.blockchain.state.Trie;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExecutionConfigurationTest {
+    @Test
+    public void defaultConfiguration() {
+        ExecutionConfiguration executionConfiguration = new ExecutionConfiguration();
+
+        Assert.assertFalse(executionConfiguration.isBlockGasAccounting());
+        Assert.assertEquals(0, executionConfiguration.getCompileThreshold());
+        Assert.assertEquals(Trie.DEFAULT_PARALLEL_HASH_THRESHOLD, executionConfiguration.getParallelHashThreshold());
+        Assert.assertEquals(0, executionConfiguration.getParallelExecutionThreads());
+    }
+
+    @Test
+    public void configurationWithParallelExecutionThreads() {
+        ExecutionConfiguration executionConfiguration = new ExecutionConfiguration(false, 0, Trie.DEFAULT_PARALLEL_HASH_THRESHOLD, 4);
+
+        Assert.assertEquals(4, executionConfiguration.getParallelExecutionThreads());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeParallelExecutionThreads() {
+        new ExecutionConfiguration(false, 0, Trie.DEFAULT_PARALLEL_HASH_THRESHOLD, -1);
+    }
+
+    @Test
+    public void configurationWithParallelHashThreshold() {
+        ExecutionConfiguration executionConfiguration = new ExecutionConfiguration(false, 0, 16);
+
+        Assert.assertEquals(16, executionConfiguration.getParallelHashThreshold());
+    }
+
+    @Test
+    public void configurationWithBlockGasAccountingAndCompilation() {
+        ExecutionConfiguration executionConfiguration = new ExecutionConfiguration(true, 1000);
+
+        Assert.assertTrue(executionConfiguration.isBlockGasAccounting());
+        Assert.assertEquals(1000, executionConfiguration.getCompileThreshold());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compilationRequiresBlockGasAccounting() {
+        new ExecutionConfiguration(false, 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCompileThreshold() {
+        new ExecutionConfiguration(true, -1);
+    }
+}
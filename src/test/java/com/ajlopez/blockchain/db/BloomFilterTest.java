@@ -0,0 +1,83 @@
+package com.ajlopez.blockchain.db;
+
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BloomFilterTest {
+    @Test
+    public void emptyFilter() {
+        BloomFilter filter = new BloomFilter(1000);
+
+        Assert.assertFalse(filter.mightContain(FactoryHelper.createRandomBytes(32)));
+        Assert.assertEquals(0, filter.getCount());
+        Assert.assertEquals(1000, filter.getCapacity());
+        Assert.assertFalse(filter.isFull());
+        Assert.assertEquals(0.0, filter.getFalsePositiveRate(), 0.0);
+    }
+
+    @Test
+    public void addKeysWithoutFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000);
+        List<byte[]> keys = new ArrayList<>();
+
+        for (int k = 0; k < 1000; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            keys.add(key);
+            filter.add(key);
+        }
+
+        for (byte[] key : keys)
+            Assert.assertTrue(filter.mightContain(key));
+
+        Assert.assertEquals(1000, filter.getCount());
+        Assert.assertTrue(filter.isFull());
+    }
+
+    @Test
+    public void falsePositiveRateNearEstimation() {
+        BloomFilter filter = new BloomFilter(10000);
+
+        for (int k = 0; k < 10000; k++)
+            filter.add(FactoryHelper.createRandomBytes(32));
+
+        int positives = 0;
+
+        for (int k = 0; k < 10000; k++)
+            if (filter.mightContain(FactoryHelper.createRandomBytes(32)))
+                positives++;
+
+        double rate = filter.getFalsePositiveRate();
+
+        Assert.assertTrue(rate > 0.005 && rate < 0.02);
+        Assert.assertTrue(positives < 10000 * rate * 2 + 20);
+    }
+
+    @Test
+    public void saveAndLoadFilter() throws IOException {
+        BloomFilter filter = new BloomFilter(100);
+        byte[] key = FactoryHelper.createRandomBytes(8);
+
+        filter.add(key);
+        filter.save("bftest1.bloom");
+
+        BloomFilter result = BloomFilter.load("bftest1.bloom");
+
+        Assert.assertNotNull(result);
+        Assert.assertTrue(result.mightContain(key));
+        Assert.assertEquals(1, result.getCount());
+        Assert.assertEquals(100, result.getCapacity());
+    }
+
+    @Test
+    public void loadMissingFilterAsNull() throws IOException {
+        new File("bftest2.bloom").delete();
+
+        Assert.assertNull(BloomFilter.load("bftest2.bloom"));
+    }
+}
@@ -6,7 +6,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by ajlopez on 21/10/2019.
@@ -134,4 +138,209 @@ public class KeyFileTest {
 
         keyFile.writeKey(key, 0L, 42);
     }
+
+    @Test
+    public void writeManyKeysCloseAndReopenFileAndReadTheKeys() throws IOException {
+        KeyFile keyFile = new KeyFile("kftest6.data", 32);
+
+        int nkeys = 5000;
+        byte[][] keys = new byte[nkeys][];
+
+        for (int k = 0; k < nkeys; k++) {
+            keys[k] = FactoryHelper.createRandomBytes(32);
+            keyFile.writeKey(keys[k], k * 42L, k);
+        }
+
+        keyFile.close();
+
+        KeyFile keyFile2 = new KeyFile("kftest6.data", 32);
+
+        Assert.assertTrue(keyFile2.size() >= nkeys);
+
+        for (int k = 0; k < nkeys; k++) {
+            ValueInfo result = keyFile2.readKey(keys[k]);
+
+            Assert.assertNotNull(result);
+            Assert.assertEquals(k * 42L, result.position);
+            Assert.assertEquals(k, result.length);
+        }
+
+        Assert.assertNull(keyFile2.readKey(FactoryHelper.createRandomBytes(32)));
+    }
+
+    @Test
+    public void cannotReopenFileWithAnotherKeyLength() throws IOException {
+        KeyFile keyFile = new KeyFile("kftest7.data", 32);
+
+        keyFile.writeKey(FactoryHelper.createRandomBytes(32), 0L, 42);
+        keyFile.close();
+
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("invalid key length");
+
+        new KeyFile("kftest7.data", 20);
+    }
+
+    @Test
+    public void updateKey() throws IOException {
+        KeyFile keyFile = new KeyFile("kftest8.data", 32);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+
+        keyFile.writeKey(key, 0L, 42);
+        keyFile.updateKey(key, 100L, 10);
+
+        ValueInfo result = keyFile.readKey(key);
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(100L, result.position);
+        Assert.assertEquals(10, result.length);
+    }
+
+    @Test
+    public void keepValuesEndOnReopen() throws IOException {
+        new File("kftest15.data").delete();
+
+        KeyFile keyFile = new KeyFile("kftest15.data", 32);
+
+        byte[] key1 = FactoryHelper.createRandomBytes(32);
+        byte[] key2 = FactoryHelper.createRandomBytes(32);
+
+        Assert.assertEquals(0L, keyFile.getValuesEnd());
+
+        keyFile.writeKey(key1, 0L, 42);
+        keyFile.writeKey(key2, 42L, 10);
+        keyFile.updateKey(key1, 52L, 100);
+
+        Assert.assertEquals(152L, keyFile.getValuesEnd());
+
+        keyFile.removeKey(key1);
+
+        Assert.assertEquals(152L, keyFile.getValuesEnd());
+
+        keyFile.close();
+
+        KeyFile keyFile2 = new KeyFile("kftest15.data", 32);
+
+        Assert.assertEquals(152L, keyFile2.getValuesEnd());
+    }
+
+    @Test
+    public void cannotUpdateUnknownKey() throws IOException {
+        KeyFile keyFile = new KeyFile("kftest9.data", 32);
+
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("unknown key");
+
+        keyFile.updateKey(FactoryHelper.createRandomBytes(32), 0L, 42);
+    }
+
+    @Test
+    public void removeKey() throws IOException {
+        KeyFile keyFile = new KeyFile("kftest10.data", 32);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+
+        keyFile.writeKey(key, 0L, 42);
+
+        Assert.assertTrue(keyFile.removeKey(key));
+        Assert.assertFalse(keyFile.containsKey(key));
+        Assert.assertNull(keyFile.readKey(key));
+        Assert.assertFalse(keyFile.removeKey(key));
+
+        keyFile.writeKey(key, 100L, 10);
+
+        ValueInfo result = keyFile.readKey(key);
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(100L, result.position);
+        Assert.assertEquals(10, result.length);
+    }
+
+    @Test
+    public void removeManyKeysCloseAndReopenFile() throws IOException {
+        new File("kftest11.data").delete();
+
+        KeyFile keyFile = new KeyFile("kftest11.data", 32);
+        List<byte[]> keys = new ArrayList<>();
+
+        for (int k = 0; k < 3000; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            keys.add(key);
+            keyFile.writeKey(key, k, 42);
+
+            if (k % 2 == 1)
+                keyFile.removeKey(keys.get(k - 1));
+        }
+
+        Assert.assertEquals(1500, keyFile.size());
+
+        keyFile.close();
+
+        KeyFile keyFile2 = new KeyFile("kftest11.data", 32);
+        List<byte[]> result = new ArrayList<>();
+
+        keyFile2.forEachKey(result::add);
+
+        Assert.assertEquals(1500, keyFile2.size());
+        Assert.assertEquals(1500, result.size());
+
+        for (int k = 0; k < keys.size(); k++)
+            if (k % 2 == 0)
+                Assert.assertNull(keyFile2.readKey(keys.get(k)));
+            else
+                Assert.assertEquals(k, keyFile2.readKey(keys.get(k)).position);
+    }
+
+    @Test
+    public void readKeysWhileUpdatingThem() throws IOException, InterruptedException {
+        new File("kftest12.data").delete();
+
+        KeyFile keyFile = new KeyFile("kftest12.data", 32);
+        byte[] key = FactoryHelper.createRandomBytes(32);
+
+        keyFile.writeKey(key, 0L, 0);
+
+        Thread writer = new Thread(() -> {
+            try {
+                for (int k = 1; k <= 100000; k++)
+                    keyFile.updateKey(key, k, k);
+            }
+            catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+
+        writer.start();
+
+        // position and length are always read from the same update
+        while (writer.isAlive()) {
+            ValueInfo result = keyFile.readKey(key);
+
+            Assert.assertEquals(result.position, result.length);
+        }
+
+        writer.join();
+
+        Assert.assertEquals(100000, keyFile.readKey(key).length);
+
+        keyFile.close();
+    }
+
+    @Test
+    public void cannotReopenFileWithUnsupportedVersion() throws IOException {
+        new File("kftest14.data").delete();
+
+        new KeyFile("kftest14.data", 32).close();
+
+        try (RandomAccessFile file = new RandomAccessFile("kftest14.data", "rw")) {
+            file.seek(Integer.BYTES);
+            file.writeInt(99);
+        }
+
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("unsupported key file version 99");
+
+        new KeyFile("kftest14.data", 32);
+    }
 }
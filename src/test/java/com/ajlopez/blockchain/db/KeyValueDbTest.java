@@ -1,12 +1,21 @@
 package com.ajlopez.blockchain.db;
 
+import com.ajlopez.blockchain.store.WriteBatch;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by ajlopez on 30/10/2019.
@@ -70,4 +79,364 @@ public class KeyValueDbTest {
 
         Assert.assertNull(keyValueDb.getValue(key));
     }
+
+    @Test
+    public void saveCloseReopenAndRetrieveKeyValue() throws IOException {
+        KeyValueDb keyValueDb = new KeyValueDb("data4", 32);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key, value);
+        keyValueDb.close();
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data4", 32);
+
+        Assert.assertArrayEquals(value, keyValueDb2.getValue(key));
+    }
+
+    @Test
+    public void saveAndRetrieveValueSlice() throws IOException {
+        KeyValueDb keyValueDb = new KeyValueDb("data5", 32);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key, value);
+
+        ByteBuffer result = keyValueDb.getValueSlice(key);
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(value.length, result.remaining());
+
+        byte[] bytes = new byte[value.length];
+        result.get(bytes);
+
+        Assert.assertArrayEquals(value, bytes);
+        Assert.assertNull(keyValueDb.getValueSlice(FactoryHelper.createRandomBytes(32)));
+    }
+
+    @Test
+    public void retrieveValuesFromManyThreads() throws Exception {
+        KeyValueDb keyValueDb = new KeyValueDb("data6", 32);
+
+        int nvalues = 1000;
+        byte[][] keys = new byte[nvalues][];
+        byte[][] values = new byte[nvalues][];
+
+        for (int k = 0; k < nvalues; k++) {
+            keys[k] = FactoryHelper.createRandomBytes(32);
+            values[k] = FactoryHelper.createRandomBytes(1 + k % 100);
+            keyValueDb.setValue(keys[k], values[k]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++)
+            futures.add(executor.submit(() -> {
+                for (int k = 0; k < nvalues; k++)
+                    if (!Arrays.equals(values[k], keyValueDb.getValue(keys[k])))
+                        return false;
+
+                return true;
+            }));
+
+        for (Future<Boolean> future : futures)
+            Assert.assertTrue(future.get());
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void writeBatchAndRetrieveValues() throws IOException {
+        KeyValueDb keyValueDb = new KeyValueDb("data7", 32);
+
+        byte[] key1 = FactoryHelper.createRandomBytes(32);
+        byte[] value1 = FactoryHelper.createRandomBytes(42);
+        byte[] key2 = FactoryHelper.createRandomBytes(32);
+        byte[] value2 = FactoryHelper.createRandomBytes(100);
+
+        WriteBatch batch = new WriteBatch();
+
+        batch.setValue(key1, value1);
+        batch.setValue(key2, value2);
+
+        keyValueDb.writeBatch(batch);
+
+        Assert.assertArrayEquals(value1, keyValueDb.getValue(key1));
+        Assert.assertArrayEquals(value2, keyValueDb.getValue(key2));
+    }
+
+    @Test
+    public void cannotChangeValueForKeyInBatch() throws IOException {
+        KeyValueDb keyValueDb = new KeyValueDb("data8", 32);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+
+        keyValueDb.setValue(key, FactoryHelper.createRandomBytes(42));
+
+        WriteBatch batch = new WriteBatch();
+
+        batch.setValue(key, FactoryHelper.createRandomBytes(42));
+
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("cannot change value for key");
+        keyValueDb.writeBatch(batch);
+    }
+
+    @Test
+    public void recoverBatchFromLogOnReopen() throws IOException {
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + key.length + Integer.BYTES + value.length);
+        record.putInt(1);
+        record.put(key);
+        record.putInt(value.length);
+        record.put(value);
+
+        WriteAheadLog log = new WriteAheadLog("data9.log");
+        log.append(record.array());
+        log.close();
+
+        KeyValueDb keyValueDb = new KeyValueDb("data9", 32);
+
+        Assert.assertArrayEquals(value, keyValueDb.getValue(key));
+    }
+
+    @Test
+    public void recoverValueFromLogForExistingKeyOnReopen() throws IOException {
+        deleteFiles("data17");
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+        byte[] loggedValue = FactoryHelper.createRandomBytes(42);
+
+        KeyValueDb keyValueDb = new KeyValueDb("data17", 32);
+
+        keyValueDb.setValue(key, value);
+        keyValueDb.close();
+
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + key.length + Integer.BYTES + loggedValue.length);
+        record.putInt(1);
+        record.put(key);
+        record.putInt(loggedValue.length);
+        record.put(loggedValue);
+
+        WriteAheadLog log = new WriteAheadLog("data17.log");
+        log.append(record.array());
+        log.close();
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data17", 32);
+
+        Assert.assertArrayEquals(loggedValue, keyValueDb2.getValue(key));
+    }
+
+    @Test
+    public void recoverValuesEndOnReopenAfterCrash() throws IOException {
+        deleteFiles("data18");
+
+        KeyValueDb keyValueDb = new KeyValueDb("data18", 32);
+
+        byte[] key1 = FactoryHelper.createRandomBytes(32);
+        byte[] key2 = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key1, value);
+
+        // not closed, as after a crash
+        KeyValueDb keyValueDb2 = new KeyValueDb("data18", 32);
+
+        keyValueDb2.setValue(key2, value);
+
+        Assert.assertArrayEquals(value, keyValueDb2.getValue(key1));
+        Assert.assertArrayEquals(value, keyValueDb2.getValue(key2));
+
+        keyValueDb2.close();
+
+        Assert.assertEquals(value.length * 2, new File("data18.values").length());
+    }
+
+    @Test
+    public void changeValueForKeyInUpdatableDb() throws IOException {
+        KeyValueDb keyValueDb = new KeyValueDb("data10", 8, true);
+
+        byte[] key = FactoryHelper.createRandomBytes(8);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+        byte[] value2 = FactoryHelper.createRandomBytes(100);
+
+        keyValueDb.setValue(key, value);
+        keyValueDb.setValue(key, value2);
+
+        Assert.assertArrayEquals(value2, keyValueDb.getValue(key));
+
+        keyValueDb.close();
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data10", 8, true);
+
+        Assert.assertArrayEquals(value2, keyValueDb2.getValue(key));
+    }
+
+    @Test
+    public void retrieveValuesWithBloomFilter() throws IOException {
+        KeyValueDb keyValueDb = new KeyValueDb("data11", 32, false, true);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key, value);
+
+        Assert.assertNotNull(keyValueDb.getBloomFilter());
+        Assert.assertTrue(keyValueDb.containsKey(key));
+        Assert.assertArrayEquals(value, keyValueDb.getValue(key));
+        Assert.assertFalse(keyValueDb.containsKey(FactoryHelper.createRandomBytes(32)));
+        Assert.assertNull(keyValueDb.getValue(FactoryHelper.createRandomBytes(32)));
+        Assert.assertNull(keyValueDb.getValueSlice(FactoryHelper.createRandomBytes(32)));
+    }
+
+    @Test
+    public void growBloomFilterAndReopen() throws IOException {
+        deleteFiles("data12");
+
+        KeyValueDb keyValueDb = new KeyValueDb("data12", 32, false, true);
+        List<byte[]> keys = new ArrayList<>();
+
+        for (int k = 0; k < 3000; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            keys.add(key);
+            keyValueDb.setValue(key, key);
+        }
+
+        Assert.assertEquals(3000, keyValueDb.getBloomFilter().getCount());
+        Assert.assertTrue(keyValueDb.getBloomFilter().getCapacity() > 3000);
+
+        keyValueDb.close();
+
+        Assert.assertTrue(new File("data12.bloom").exists());
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data12", 32, false, true);
+
+        Assert.assertEquals(3000, keyValueDb2.getBloomFilter().getCount());
+        Assert.assertTrue(keyValueDb2.getBloomFilter().getFalsePositiveRate() < 0.02);
+
+        for (byte[] key : keys)
+            Assert.assertArrayEquals(key, keyValueDb2.getValue(key));
+    }
+
+    @Test
+    public void rebuildMissingBloomFilterOnReopen() throws IOException {
+        deleteFiles("data13");
+
+        KeyValueDb keyValueDb = new KeyValueDb("data13", 32);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key, value);
+        keyValueDb.close();
+
+        Assert.assertFalse(new File("data13.bloom").exists());
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data13", 32, false, true);
+
+        Assert.assertEquals(1, keyValueDb2.getBloomFilter().getCount());
+        Assert.assertArrayEquals(value, keyValueDb2.getValue(key));
+    }
+
+    @Test
+    public void rebuildStaleBloomFilterOnReopen() throws IOException {
+        deleteFiles("data14");
+
+        KeyValueDb keyValueDb = new KeyValueDb("data14", 32, false, true);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key, value);
+        keyValueDb.close();
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data14", 32);
+
+        byte[] key2 = FactoryHelper.createRandomBytes(32);
+
+        keyValueDb2.setValue(key2, value);
+        keyValueDb2.close();
+
+        KeyValueDb keyValueDb3 = new KeyValueDb("data14", 32, false, true);
+
+        Assert.assertEquals(2, keyValueDb3.getBloomFilter().getCount());
+        Assert.assertArrayEquals(value, keyValueDb3.getValue(key));
+        Assert.assertArrayEquals(value, keyValueDb3.getValue(key2));
+    }
+
+    @Test
+    public void rebuildBloomFilterOnReopenAfterCrash() throws IOException {
+        deleteFiles("data16");
+
+        KeyValueDb keyValueDb = new KeyValueDb("data16", 32, false, true);
+
+        byte[] key1 = FactoryHelper.createRandomBytes(32);
+        byte[] key2 = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key1, value);
+        keyValueDb.close();
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data16", 32, false, true);
+
+        keyValueDb2.setValue(key2, value);
+        keyValueDb2.removeValue(key1);
+
+        // not closed, as after a crash
+        KeyValueDb keyValueDb3 = new KeyValueDb("data16", 32, false, true);
+
+        Assert.assertTrue(keyValueDb3.containsKey(key2));
+        Assert.assertFalse(keyValueDb3.containsKey(key1));
+    }
+
+    @Test
+    public void removeValueAndIterateKeys() throws IOException {
+        deleteFiles("data15");
+
+        KeyValueDb keyValueDb = new KeyValueDb("data15", 32, false, true);
+
+        byte[] key1 = FactoryHelper.createRandomBytes(32);
+        byte[] key2 = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        keyValueDb.setValue(key1, value);
+        keyValueDb.setValue(key2, value);
+
+        keyValueDb.removeValue(key1);
+
+        Assert.assertNull(keyValueDb.getValue(key1));
+        Assert.assertFalse(keyValueDb.containsKey(key1));
+        Assert.assertArrayEquals(value, keyValueDb.getValue(key2));
+
+        List<byte[]> keys = new ArrayList<>();
+
+        keyValueDb.forEachKey(keys::add);
+
+        Assert.assertEquals(1, keys.size());
+        Assert.assertArrayEquals(key2, keys.get(0));
+
+        keyValueDb.close();
+
+        KeyValueDb keyValueDb2 = new KeyValueDb("data15", 32, false, true);
+
+        Assert.assertNull(keyValueDb2.getValue(key1));
+        Assert.assertArrayEquals(value, keyValueDb2.getValue(key2));
+
+        keyValueDb2.setValue(key1, value);
+
+        Assert.assertArrayEquals(value, keyValueDb2.getValue(key1));
+    }
+
+    private static void deleteFiles(String name) {
+        new File(name + ".keys").delete();
+        new File(name + ".values").delete();
+        new File(name + ".log").delete();
+        new File(name + ".bloom").delete();
+    }
 }
@@ -4,7 +4,9 @@ import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Created by ajlopez on 20/10/2019.
@@ -72,4 +74,73 @@ public class ValueFileTest {
         Assert.assertEquals(value2.length, nread2);
         Assert.assertArrayEquals(value2, result2);
     }
+
+    @Test
+    public void truncateAndWriteValue() throws IOException {
+        new File("vftest6.data").delete();
+
+        ValueFile valueFile = new ValueFile("vftest6.data");
+
+        byte[] value1 = FactoryHelper.createRandomBytes(42);
+        byte[] value2 = FactoryHelper.createRandomBytes(100);
+
+        valueFile.writeValue(value1);
+        valueFile.writeValue(value2);
+
+        valueFile.truncate(value1.length);
+        valueFile.truncate(1000);
+
+        Assert.assertEquals(value1.length, valueFile.writeValue(value2));
+
+        valueFile.close();
+
+        Assert.assertEquals(value1.length + value2.length, new File("vftest6.data").length());
+    }
+
+    @Test
+    public void writeAndReadValuesAcrossSegments() throws IOException {
+        ValueFile valueFile = new ValueFile("vftest4.data", 64);
+
+        byte[] value1 = FactoryHelper.createRandomBytes(42);
+        byte[] value2 = FactoryHelper.createRandomBytes(100);
+
+        long position1 = valueFile.writeValue(value1);
+        long position2 = valueFile.writeValue(value2);
+
+        Assert.assertEquals(0L, position1);
+        Assert.assertEquals(value1.length, position2);
+
+        valueFile.close();
+
+        ValueFile valueFile2 = new ValueFile("vftest4.data", 64);
+
+        byte[] result2 = new byte[value2.length];
+
+        Assert.assertEquals(value2.length, valueFile2.readValue(position2, result2));
+        Assert.assertArrayEquals(value2, result2);
+
+        Assert.assertEquals(position2 + value2.length, valueFile2.writeValue(value1));
+    }
+
+    @Test
+    public void writeAndReadSlice() throws IOException {
+        ValueFile valueFile = new ValueFile("vftest5.data");
+
+        byte[] value1 = FactoryHelper.createRandomBytes(42);
+        byte[] value2 = FactoryHelper.createRandomBytes(100);
+
+        valueFile.writeValue(value1);
+        long position2 = valueFile.writeValue(value2);
+
+        ByteBuffer slice = valueFile.readSlice(position2, value2.length);
+
+        Assert.assertNotNull(slice);
+        Assert.assertTrue(slice.isReadOnly());
+        Assert.assertEquals(value2.length, slice.remaining());
+
+        byte[] result = new byte[value2.length];
+        slice.get(result);
+
+        Assert.assertArrayEquals(value2, result);
+    }
 }
@@ -0,0 +1,66 @@
+package com.ajlopez.blockchain.db;
+
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+public class WriteAheadLogTest {
+    @Test
+    public void appendAndReadRecords() throws IOException {
+        WriteAheadLog log = new WriteAheadLog("waltest1.data");
+
+        byte[] record1 = FactoryHelper.createRandomBytes(42);
+        byte[] record2 = FactoryHelper.createRandomBytes(100);
+
+        log.append(record1);
+        log.append(record2);
+
+        List<byte[]> result = log.readRecords();
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(2, result.size());
+        Assert.assertArrayEquals(record1, result.get(0));
+        Assert.assertArrayEquals(record2, result.get(1));
+    }
+
+    @Test
+    public void clearLog() throws IOException {
+        WriteAheadLog log = new WriteAheadLog("waltest2.data");
+
+        log.append(FactoryHelper.createRandomBytes(42));
+        log.clear();
+
+        Assert.assertEquals(0, log.size());
+        Assert.assertTrue(log.readRecords().isEmpty());
+    }
+
+    @Test
+    public void discardTornRecord() throws IOException {
+        WriteAheadLog log = new WriteAheadLog("waltest3.data");
+
+        byte[] record = FactoryHelper.createRandomBytes(42);
+
+        log.append(record);
+        log.close();
+
+        RandomAccessFile file = new RandomAccessFile("waltest3.data", "rw");
+        long length = file.length();
+        file.seek(length);
+        file.writeInt(100);
+        file.writeLong(0);
+        file.write(new byte[10]);
+        file.close();
+
+        WriteAheadLog log2 = new WriteAheadLog("waltest3.data");
+
+        List<byte[]> result = log2.readRecords();
+
+        Assert.assertEquals(1, result.size());
+        Assert.assertArrayEquals(record, result.get(0));
+        Assert.assertEquals(length, log2.size());
+    }
+}
@@ -1,6 +1,7 @@
 package com.ajlopez.blockchain.execution;
 
 import com.ajlopez.blockchain.bc.GenesisGenerator;
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.core.Account;
 import com.ajlopez.blockchain.core.Block;
 import com.ajlopez.blockchain.core.Transaction;
@@ -11,6 +12,7 @@ import com.ajlopez.blockchain.test.builders.ExecutorBuilder;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import com.ajlopez.blockchain.utils.HashUtils;
 import com.ajlopez.blockchain.vms.eth.BlockData;
+import com.ajlopez.blockchain.vms.eth.FeeSchedule;
 import com.ajlopez.blockchain.vms.eth.OpCodes;
 import com.ajlopez.blockchain.vms.eth.Storage;
 import org.junit.Assert;
@@ -176,4 +178,48 @@ public class BlockExecutorTest {
 
         Assert.assertEquals(genesis.getStateRootHash(), result);
     }
+
+    @Test
+    public void executeBlockWithAndWithoutBlockGasAccounting() throws IOException {
+        // counter = 10; do { counter-- } while (counter != 0); storage[0] = gas
+        byte[] code = new byte[] {
+                OpCodes.PUSH1, 0x0a,
+                OpCodes.JUMPDEST, OpCodes.PUSH1, 0x01, OpCodes.SWAP1, OpCodes.SUB, OpCodes.DUP1, OpCodes.PUSH1, 0x02, OpCodes.JUMPI,
+                OpCodes.GAS, OpCodes.PUSH1, 0x00, OpCodes.SSTORE
+        };
+
+        ExecutorBuilder builder = new ExecutorBuilder();
+
+        AccountStore accountStore = builder.getAccountStore();
+
+        Address senderAddress = FactoryHelper.createAccountWithBalance(accountStore, 10000000);
+        Address receiverAddress = FactoryHelper.createRandomAddress();
+
+        FactoryHelper.createAccountWithCode(accountStore, builder.getCodeStore(), receiverAddress, code);
+
+        Block genesis = GenesisGenerator.generateGenesis(accountStore);
+
+        // some transactions run out of gas in the middle of the loop or at the store
+        long[] extraGas = new long[] { 0, 10, 50, 100, 150, 200, 250, 300, 20000, 30000, 40000 };
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (int k = 0; k < extraGas.length; k++)
+            transactions.add(new Transaction(senderAddress, receiverAddress, Coin.ONE, k, null, FeeSchedule.TRANSFER.getValue() + extraGas[k], Coin.ONE));
+
+        Block block = new Block(genesis.getNumber() + 1, genesis.getHash(), null, transactions, genesis.getStateRootHash(), System.currentTimeMillis() / 1000, FactoryHelper.createRandomAddress(), Difficulty.ONE);
+
+        Hash result = builder.buildBlockExecutor(new ExecutionConfiguration(false)).executeBlock(block, genesis.getStateRootHash());
+        Hash blockResult = builder.buildBlockExecutor(new ExecutionConfiguration(true)).executeBlock(block, genesis.getStateRootHash());
+
+        Assert.assertNotEquals(genesis.getStateRootHash(), result);
+        Assert.assertEquals(result, blockResult);
+
+        AccountStore resultAccountStore = builder.getAccountStoreProvider().retrieve(result);
+        Account receiver = resultAccountStore.getAccount(receiverAddress);
+
+        // only the transactions with enough gas transfer their value
+        Assert.assertEquals(Coin.TWO, receiver.getBalance());
+        Assert.assertNotNull(receiver.getStorageHash());
+        Assert.assertFalse(builder.getTrieStorageProvider().retrieve(receiver.getStorageHash()).getValue(DataWord.ZERO).isZero());
+    }
 }
@@ -0,0 +1,146 @@
+package com.ajlopez.blockchain.execution;
+
+import com.ajlopez.blockchain.bc.GenesisGenerator;
+import com.ajlopez.blockchain.core.Account;
+import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.Transaction;
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.Coin;
+import com.ajlopez.blockchain.core.types.DataWord;
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.store.AccountStore;
+import com.ajlopez.blockchain.test.builders.ExecutorBuilder;
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import com.ajlopez.blockchain.vms.eth.OpCodes;
+import com.ajlopez.blockchain.vms.eth.Storage;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ParallelTransactionExecutorTest {
+    private static final long BALANCE = 10000000;
+
+    // increments the value at slot zero
+    private static final byte[] COUNTER = new byte[] {
+            OpCodes.PUSH1, 0x00, OpCodes.SLOAD, OpCodes.PUSH1, 0x01, OpCodes.ADD, OpCodes.PUSH1, 0x00, OpCodes.SSTORE
+    };
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void executeIndependentTransfers() throws IOException {
+        List<Address> senders = FactoryHelper.createRandomAddresses(10);
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (Address sender : senders)
+            transactions.add(new Transaction(sender, FactoryHelper.createRandomAddress(), Coin.fromUnsignedLong(1000), 0, null, 100000, Coin.ONE));
+
+        executeAndCompare(createBuilder(senders, null), senders, null, transactions);
+    }
+
+    @Test
+    public void executeTransfersFromTheSameSender() throws IOException {
+        List<Address> senders = FactoryHelper.createRandomAddresses(1);
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (int k = 0; k < 5; k++)
+            transactions.add(new Transaction(senders.get(0), FactoryHelper.createRandomAddress(), Coin.fromUnsignedLong(1000), k, null, 100000, Coin.ONE));
+
+        executeAndCompare(createBuilder(senders, null), senders, null, transactions);
+    }
+
+    @Test
+    public void executeTransferFromFundedReceiver() throws IOException {
+        List<Address> senders = FactoryHelper.createRandomAddresses(1);
+        Address receiver = FactoryHelper.createRandomAddress();
+        List<Transaction> transactions = new ArrayList<>();
+
+        transactions.add(new Transaction(senders.get(0), receiver, Coin.fromUnsignedLong(1000000), 0, null, 100000, Coin.ONE));
+        transactions.add(new Transaction(receiver, FactoryHelper.createRandomAddress(), Coin.fromUnsignedLong(1000), 0, null, 100000, Coin.ONE));
+
+        AccountStore accountStore = executeAndCompare(createBuilder(senders, null), senders, null, transactions);
+
+        Assert.assertEquals(1, accountStore.getAccount(receiver).getNonce());
+    }
+
+    @Test
+    public void executeConflictingContractCalls() throws IOException {
+        List<Address> senders = FactoryHelper.createRandomAddresses(8);
+        Address contract = FactoryHelper.createRandomAddress();
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (Address sender : senders)
+            transactions.add(new Transaction(sender, contract, Coin.ZERO, 0, null, 100000, Coin.ONE));
+
+        ExecutorBuilder builder = createBuilder(senders, contract);
+        AccountStore accountStore = executeAndCompare(builder, senders, contract, transactions);
+
+        Account account = accountStore.getAccount(contract);
+        Storage storage = builder.getTrieStorageProvider().retrieve(account.getStorageHash());
+
+        Assert.assertEquals(DataWord.fromUnsignedInteger(senders.size()), storage.getValue(DataWord.ZERO));
+    }
+
+    @Test
+    public void creditGasPaymentsToCoinbase() throws IOException {
+        List<Address> senders = FactoryHelper.createRandomAddresses(4);
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (Address sender : senders)
+            transactions.add(new Transaction(sender, FactoryHelper.createRandomAddress(), Coin.fromUnsignedLong(1000), 0, null, 100000, Coin.TWO));
+
+        ExecutorBuilder builder = createBuilder(senders, null);
+        Block block = createBlock(builder, transactions);
+
+        Hash result = builder.buildBlockExecutor(executor).executeBlock(block, builder.getAccountStore().getRootHash());
+
+        AccountStore accountStore = builder.getAccountStoreProvider().retrieve(result);
+        long gasCost = transactions.get(0).getGasCost();
+
+        Assert.assertEquals(Coin.fromUnsignedLong(gasCost * 2 * senders.size()), accountStore.getAccount(block.getCoinbase()).getBalance());
+    }
+
+    // executes the block serially and in parallel, returning the account store after the parallel execution
+    private static AccountStore executeAndCompare(ExecutorBuilder parallelBuilder, List<Address> senders, Address contract, List<Transaction> transactions) throws IOException {
+        ExecutorBuilder builder = createBuilder(senders, contract);
+
+        Block block = createBlock(builder, transactions);
+
+        Hash expected = builder.buildBlockExecutor().executeBlock(block, builder.getAccountStore().getRootHash());
+        Hash result = parallelBuilder.buildBlockExecutor(executor).executeBlock(block, parallelBuilder.getAccountStore().getRootHash());
+
+        Assert.assertEquals(expected, result);
+
+        return parallelBuilder.getAccountStoreProvider().retrieve(result);
+    }
+
+    private static ExecutorBuilder createBuilder(List<Address> senders, Address contract) throws IOException {
+        ExecutorBuilder builder = new ExecutorBuilder();
+        AccountStore accountStore = builder.getAccountStore();
+
+        for (Address sender : senders)
+            FactoryHelper.createAccountWithBalance(accountStore, sender, BALANCE);
+
+        if (contract != null)
+            FactoryHelper.createAccountWithCode(accountStore, builder.getCodeStore(), contract, COUNTER);
+
+        return builder;
+    }
+
+    private static Block createBlock(ExecutorBuilder builder, List<Transaction> transactions) throws IOException {
+        Block genesis = GenesisGenerator.generateGenesis(builder.getAccountStore());
+
+        return new Block(genesis.getNumber() + 1, genesis.getHash(), null, transactions, genesis.getStateRootHash(), System.currentTimeMillis() / 1000, FactoryHelper.createRandomAddress(), null);
+    }
+}
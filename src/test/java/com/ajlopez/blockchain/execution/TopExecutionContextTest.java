@@ -157,6 +157,44 @@ public class TopExecutionContextTest {
         Assert.assertEquals(tresult.getRootHash(), account.getStorageHash());
     }
 
+    @Test
+    public void storageIsKeptUntilCommit() throws IOException {
+        Address address = FactoryHelper.createRandomAddress();
+        AccountStore accountStore = new AccountStore(new Trie());
+        KeyValueStore keyValueStore = new HashMapStore();
+        TrieStore trieStore = new TrieStore(keyValueStore);
+        TrieStorageProvider trieStorageProvider = new TrieStorageProvider(trieStore);
+
+        TopExecutionContext executionContext = new TopExecutionContext(accountStore, trieStorageProvider, null);
+
+        DataWord key = FactoryHelper.createRandomDataWord();
+        DataWord value = FactoryHelper.createRandomDataWord();
+
+        ExecutionContext childExecutionContext = executionContext.createChildExecutionContext();
+        childExecutionContext.getAccountStorage(address).setValue(key, value);
+        childExecutionContext.commit();
+
+        TrieStorage storage = (TrieStorage)executionContext.getAccountStorage(address);
+
+        Assert.assertTrue(storage.isWarm(key));
+        Assert.assertTrue(storage.hasChanges());
+        Assert.assertEquals(value, executionContext.createChildExecutionContext().getAccountStorage(address).getValue(key));
+
+        executionContext.commit();
+
+        Assert.assertFalse(storage.hasChanges());
+
+        Hash storageHash = accountStore.getAccount(address).getStorageHash();
+
+        Assert.assertNotNull(keyValueStore.getValue(storageHash.getBytes()));
+        Assert.assertEquals(value, trieStorageProvider.retrieve(storageHash).getValue(key));
+
+        TrieStorage newStorage = (TrieStorage)executionContext.getAccountStorage(address);
+
+        Assert.assertNotSame(storage, newStorage);
+        Assert.assertFalse(newStorage.isWarm(key));
+    }
+
     @Test
     public void getStorageFromNewAccountAndSetKeyValueAndRollback() throws IOException {
         Address address = FactoryHelper.createRandomAddress();
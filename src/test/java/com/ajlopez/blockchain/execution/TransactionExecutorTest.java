@@ -1,5 +1,6 @@
 package com.ajlopez.blockchain.execution;
 
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.core.Account;
 import com.ajlopez.blockchain.core.Transaction;
 import com.ajlopez.blockchain.core.types.Address;
@@ -339,6 +340,51 @@ public class TransactionExecutorTest {
         Assert.assertEquals(DataWord.ONE, storage.getValue(DataWord.ZERO));
     }
 
+    @Test
+    public void executeTransactionsInvokingContractCodeUsingCodeAnalysisCache() throws IOException {
+        byte[] code = new byte[] { OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x00, OpCodes.SSTORE };
+
+        CodeStore codeStore = new CodeStore(new HashMapStore());
+        TrieStorageProvider trieStorageProvider = new TrieStorageProvider(new TrieStore(new HashMapStore()));
+        AccountStore accountStore = new AccountStore(new Trie());
+        Address senderAddress = FactoryHelper.createRandomAddress();
+        Address receiverAddress = FactoryHelper.createRandomAddress();
+
+        FactoryHelper.createAccountWithBalance(accountStore, senderAddress, 1000000);
+        FactoryHelper.createAccountWithCode(accountStore, codeStore, receiverAddress, code);
+
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(new Transaction(senderAddress, receiverAddress, Coin.ZERO, 0, null, 200000, Coin.ZERO));
+        transactions.add(new Transaction(senderAddress, receiverAddress, Coin.ZERO, 1, null, 200000, Coin.ZERO));
+
+        CodeAnalysisCache codeAnalysisCache = new CodeAnalysisCache(10);
+        TransactionExecutor executor = new TransactionExecutor(new TopExecutionContext(accountStore, trieStorageProvider, codeStore), codeAnalysisCache);
+
+        List<TransactionResult> result = executor.executeTransactions(transactions, new BlockData(1, 2, FactoryHelper.createRandomAddress(), Difficulty.ONE));
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertTrue(result.get(0).getExecutionResult().wasSuccesful());
+        Assert.assertTrue(result.get(1).getExecutionResult().wasSuccesful());
+
+        Assert.assertEquals(1, codeAnalysisCache.getSize());
+        Assert.assertEquals(1, codeAnalysisCache.getMisses());
+        Assert.assertEquals(1, codeAnalysisCache.getHits());
+    }
+
+    @Test
+    public void executeTransactionsInvokingContractCodeWithoutCompilingIt() throws IOException {
+        CodeAnalysis codeAnalysis = executeTransactionsInvokingContractCode(new ExecutionConfiguration(true));
+
+        Assert.assertNull(codeAnalysis.getCompiledCode());
+    }
+
+    @Test
+    public void executeTransactionsInvokingContractCodeCompilingIt() throws IOException {
+        CodeAnalysis codeAnalysis = executeTransactionsInvokingContractCode(new ExecutionConfiguration(true, 2));
+
+        Assert.assertNotNull(codeAnalysis.getCompiledCode());
+    }
+
     @Test
     public void executeTransactionCreatingContract() throws IOException {
         CodeStore codeStore = new CodeStore(new HashMapStore());
@@ -509,6 +555,36 @@ public class TransactionExecutorTest {
         return trieStorageProvider.retrieve(receiver.getStorageHash());
     }
 
+    private static CodeAnalysis executeTransactionsInvokingContractCode(ExecutionConfiguration executionConfiguration) throws IOException {
+        byte[] code = new byte[] { OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x00, OpCodes.SSTORE };
+
+        CodeStore codeStore = new CodeStore(new HashMapStore());
+        TrieStorageProvider trieStorageProvider = new TrieStorageProvider(new TrieStore(new HashMapStore()));
+        AccountStore accountStore = new AccountStore(new Trie());
+        Address senderAddress = FactoryHelper.createRandomAddress();
+        Address receiverAddress = FactoryHelper.createRandomAddress();
+
+        FactoryHelper.createAccountWithBalance(accountStore, senderAddress, 1000000);
+        FactoryHelper.createAccountWithCode(accountStore, codeStore, receiverAddress, code);
+
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (int k = 0; k < 3; k++)
+            transactions.add(new Transaction(senderAddress, receiverAddress, Coin.ZERO, k, null, 200000, Coin.ZERO));
+
+        CodeAnalysisCache codeAnalysisCache = new CodeAnalysisCache(10);
+        TransactionExecutor executor = new TransactionExecutor(new TopExecutionContext(accountStore, trieStorageProvider, codeStore), codeAnalysisCache, executionConfiguration);
+
+        List<TransactionResult> result = executor.executeTransactions(transactions, new BlockData(1, 2, FactoryHelper.createRandomAddress(), Difficulty.ONE));
+
+        Assert.assertEquals(3, result.size());
+
+        for (TransactionResult transactionResult : result)
+            Assert.assertTrue(transactionResult.getExecutionResult().wasSuccesful());
+
+        return codeAnalysisCache.getCodeAnalysis(HashUtils.calculateHash(code), code);
+    }
+
     private static void executeTransactionCreatingContract(Address senderAddress, byte[] code, AccountStore accountStore, CodeStore codeStore) throws IOException {
         Address coinbase = FactoryHelper.createRandomAddress();
         TrieStorageProvider trieStorageProvider = new TrieStorageProvider(new TrieStore(new HashMapStore()));
@@ -1,7 +1,6 @@
 package com.ajlopez.blockchain.net.http;
 
 import com.ajlopez.blockchain.jsonrpc.TopProcessor;
-import jdk.internal.util.xml.impl.Input;
 import org.junit.Assert;
 import org.junit.Test;
 
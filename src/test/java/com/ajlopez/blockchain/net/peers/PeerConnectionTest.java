@@ -1,23 +1,87 @@
 package com.ajlopez.blockchain.net.peers;
 
+import com.ajlopez.blockchain.bc.GenesisGenerator;
+import com.ajlopez.blockchain.net.messages.BlockMessage;
 import com.ajlopez.blockchain.net.messages.GetBlockByHashMessage;
 import com.ajlopez.blockchain.net.messages.Message;
 import com.ajlopez.blockchain.net.messages.MessageEncoder;
+import com.ajlopez.blockchain.net.messages.TransactionMessage;
 import com.ajlopez.blockchain.test.simples.SimpleMessageChannel;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import com.ajlopez.blockchain.utils.HashUtilsTest;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 
 /**
  * Created by ajlopez on 19/11/2018.
  */
 public class PeerConnectionTest {
+    @Test
+    public void dropMessagesPostedToFullQueue() {
+        PeerConnection peerConnection = new PeerConnection((short)1, FactoryHelper.createRandomPeer(), new PipedInputStream(), new ByteArrayOutputStream(), null);
+        Peer sender = FactoryHelper.createRandomPeer();
+        Message transactionMessage = new TransactionMessage(FactoryHelper.createTransaction(100));
+
+        for (int k = 0; k < PeerConnection.QUEUE_CAPACITY; k++)
+            peerConnection.postMessage(sender, transactionMessage);
+
+        Assert.assertEquals(0, peerConnection.getDroppedMessages());
+
+        peerConnection.postMessage(sender, transactionMessage);
+
+        Assert.assertEquals(1, peerConnection.getDroppedMessages());
+
+        long startTime = System.currentTimeMillis();
+
+        peerConnection.postMessage(sender, new BlockMessage(GenesisGenerator.generateGenesis()));
+
+        Assert.assertTrue(System.currentTimeMillis() - startTime >= PeerConnection.POST_TIMEOUT);
+        Assert.assertEquals(2, peerConnection.getDroppedMessages());
+    }
+
+    @Test
+    public void blockMessageWaitsForSpaceInFullQueue() throws IOException, InterruptedException {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream inputStream = new PipedInputStream();
+        inputStream.connect(outputStream);
+
+        PeerConnection peerConnection = new PeerConnection((short)1, FactoryHelper.createRandomPeer(), inputStream, new ByteArrayOutputStream(), null);
+        Peer sender = FactoryHelper.createRandomPeer();
+        Message transactionMessage = new TransactionMessage(FactoryHelper.createTransaction(100));
+
+        for (int k = 0; k < PeerConnection.QUEUE_CAPACITY; k++)
+            peerConnection.postMessage(sender, transactionMessage);
+
+        Thread starter = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException ex) {
+                return;
+            }
+
+            peerConnection.start();
+        });
+
+        starter.start();
+
+        peerConnection.postMessage(sender, new BlockMessage(GenesisGenerator.generateGenesis()));
+
+        starter.join();
+        peerConnection.stop();
+        outputStream.close();
+
+        Assert.assertEquals(0, peerConnection.getDroppedMessages());
+    }
+
     @Test
     public void writeAndReadMessage() throws IOException, InterruptedException {
         PipedOutputStream outputStream1 = new PipedOutputStream();
@@ -58,4 +122,50 @@ public class PeerConnectionTest {
         Assert.assertEquals(peer1.getId(), inputChannel.getPeerMessages().get(0).getKey().getId());
         Assert.assertArrayEquals(MessageEncoder.encode(message), MessageEncoder.encode(inputChannel.getPeerMessages().get(0).getValue()));
     }
+
+    @Test
+    public void writeAndReadMessagesUsingVirtualThreads() throws IOException, InterruptedException {
+        PipedOutputStream outputStream1 = new PipedOutputStream();
+        PipedInputStream inputStream1 = new PipedInputStream();
+        inputStream1.connect(outputStream1);
+
+        PipedOutputStream outputStream2 = new PipedOutputStream();
+        PipedInputStream inputStream2 = new PipedInputStream();
+        inputStream2.connect(outputStream2);
+
+        Peer peer1 = FactoryHelper.createRandomPeer();
+        Peer peer2 = FactoryHelper.createRandomPeer();
+
+        SimpleMessageChannel inputChannel = new SimpleMessageChannel();
+
+        PeerConnection peerConnection1 = new PeerConnection((short)1, peer2, inputStream1, outputStream2, null, true);
+        PeerConnection peerConnection2 = new PeerConnection((short)1, peer1, inputStream2, outputStream1, inputChannel, true);
+
+        List<Message> messages = new ArrayList<>();
+
+        for (int k = 0; k < 10; k++)
+            messages.add(new GetBlockByHashMessage(FactoryHelper.createRandomBlockHash()));
+
+        Semaphore semaphore = new Semaphore(0, true);
+
+        inputChannel.onMessage((pair) -> {
+            semaphore.release();
+        });
+
+        peerConnection1.start();
+        peerConnection2.start();
+
+        for (Message message : messages)
+            peerConnection1.postMessage(FactoryHelper.createRandomPeer(), message);
+
+        semaphore.acquire(messages.size());
+
+        peerConnection1.stop();
+        peerConnection2.stop();
+
+        Assert.assertEquals(messages.size(), inputChannel.getPeerMessages().size());
+
+        for (int k = 0; k < messages.size(); k++)
+            Assert.assertArrayEquals(MessageEncoder.encode(messages.get(k)), MessageEncoder.encode(inputChannel.getPeerMessages().get(k).getValue()));
+    }
 }
@@ -29,7 +29,7 @@ public class BlockProcessorTest {
     }
 
     @Test
-    public void noBlockByHash() {
+    public void noBlockByHash() throws IOException {
         BlockProcessor processor = FactoryHelper.createBlockProcessor();
 
         Assert.assertNull(processor.getBlockByHash(FactoryHelper.createRandomBlockHash()));
@@ -43,7 +43,7 @@ public class BlockProcessorTest {
     }
 
     @Test
-    public void notChainedBlock() {
+    public void notChainedBlock() throws IOException {
         BlockProcessor processor = FactoryHelper.createBlockProcessor();
 
         Assert.assertFalse(processor.isChainedBlock(FactoryHelper.createRandomBlockHash()));
@@ -57,7 +57,7 @@ public class BlockProcessorTest {
     }
 
     @Test
-    public void unknownBlock() {
+    public void unknownBlock() throws IOException {
         BlockProcessor processor = FactoryHelper.createBlockProcessor();
 
         Assert.assertFalse(processor.isKnownBlock(FactoryHelper.createRandomBlockHash()));
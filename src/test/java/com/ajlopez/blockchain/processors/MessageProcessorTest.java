@@ -13,12 +13,12 @@ import com.ajlopez.blockchain.state.Trie;
 import com.ajlopez.blockchain.store.*;
 import com.ajlopez.blockchain.test.simples.SimpleMessageChannel;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
-import javafx.util.Pair;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -126,7 +126,7 @@ public class MessageProcessorTest {
         Assert.assertNotNull(result);
         Assert.assertEquals(block.getHash(), result.getHash());
 
-        List<Pair<Peer, Message>> peerMessages1 = channel1.getPeerMessages();
+        List<Map.Entry<Peer, Message>> peerMessages1 = channel1.getPeerMessages();
 
         Assert.assertNotNull(peerMessages1);
         Assert.assertTrue(peerMessages1.isEmpty());
@@ -410,7 +410,7 @@ public class MessageProcessorTest {
     }
 
     public static void expectedMessage(SimpleMessageChannel channel, Peer expectedSender, Message expectedMessage) {
-        List<Pair<Peer,Message>> peerMessages = channel.getPeerMessages();
+        List<Map.Entry<Peer, Message>> peerMessages = channel.getPeerMessages();
 
         Assert.assertNotNull(peerMessages);
         Assert.assertEquals(1, peerMessages.size());
@@ -354,4 +354,75 @@ public class MinerProcessorTest {
 
         Assert.assertTrue(transactionPool.getTransactions().isEmpty());
     }
+
+    @Test
+    public void mineBlockTwiceAddingNewTransactionsToTheTemplate() throws IOException {
+        Transaction tx = FactoryHelper.createTransaction(100);
+        Transaction tx2 = FactoryHelper.createTransaction(200);
+
+        TransactionPool transactionPool = new TransactionPool();
+        transactionPool.addTransaction(tx);
+
+        Stores stores = new MemoryStores();
+        AccountStore accountStore = stores.getAccountStoreProvider().retrieve(Trie.EMPTY_TRIE_HASH);
+
+        FactoryHelper.createAccountWithBalance(accountStore, tx.getSender(), 1000);
+        FactoryHelper.createAccountWithBalance(accountStore, tx2.getSender(), 1000);
+
+        Address coinbase = FactoryHelper.createRandomAddress();
+        Block parent = new Block(1L, FactoryHelper.createRandomBlockHash(), accountStore.getRootHash(), System.currentTimeMillis() / 1000, coinbase, Difficulty.ONE);
+
+        MinerProcessor processor = new MinerProcessor(null, transactionPool, stores, coinbase);
+
+        Block block = processor.mineBlock(parent);
+
+        Assert.assertEquals(1, block.getTransactions().size());
+
+        transactionPool.addTransaction(tx2);
+
+        Block block2 = processor.mineBlock(parent);
+
+        Assert.assertEquals(2, block2.getTransactions().size());
+        Assert.assertSame(tx, block2.getTransactions().get(0));
+        Assert.assertSame(tx2, block2.getTransactions().get(1));
+        Assert.assertEquals(block.getTimestamp(), block2.getTimestamp());
+
+        AccountStore newAccountStore = stores.getAccountStoreProvider().retrieve(block2.getStateRootHash());
+
+        Assert.assertEquals(1, newAccountStore.getAccount(tx.getSender()).getNonce());
+        Assert.assertEquals(Coin.fromUnsignedLong(900), newAccountStore.getAccount(tx.getSender()).getBalance());
+        Assert.assertEquals(1, newAccountStore.getAccount(tx2.getSender()).getNonce());
+        Assert.assertEquals(Coin.fromUnsignedLong(800), newAccountStore.getAccount(tx2.getSender()).getBalance());
+    }
+
+    @Test
+    public void resetTemplateOnNewParent() throws IOException {
+        Transaction tx = FactoryHelper.createTransaction(100);
+
+        TransactionPool transactionPool = new TransactionPool();
+        transactionPool.addTransaction(tx);
+
+        Stores stores = new MemoryStores();
+        AccountStore accountStore = stores.getAccountStoreProvider().retrieve(Trie.EMPTY_TRIE_HASH);
+
+        FactoryHelper.createAccountWithBalance(accountStore, tx.getSender(), 1000);
+
+        Address coinbase = FactoryHelper.createRandomAddress();
+        Block parent = new Block(1L, FactoryHelper.createRandomBlockHash(), accountStore.getRootHash(), System.currentTimeMillis() / 1000, coinbase, Difficulty.ONE);
+
+        MinerProcessor processor = new MinerProcessor(null, transactionPool, stores, coinbase);
+
+        Block block = processor.mineBlock(parent);
+
+        Assert.assertEquals(1, block.getTransactions().size());
+
+        transactionPool.removeTransaction(tx);
+
+        Block block2 = processor.mineBlock(block);
+
+        Assert.assertEquals(3, block2.getNumber());
+        Assert.assertEquals(block.getHash(), block2.getParentHash());
+        Assert.assertTrue(block2.getTransactions().isEmpty());
+        Assert.assertEquals(block.getStateRootHash(), block2.getStateRootHash());
+    }
 }
@@ -1,6 +1,7 @@
 package com.ajlopez.blockchain.processors;
 
 import com.ajlopez.blockchain.bc.BlockChain;
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.config.NetworkConfiguration;
 import com.ajlopez.blockchain.core.Block;
 import com.ajlopez.blockchain.core.Transaction;
@@ -74,6 +75,32 @@ public class NodeProcessorTest {
         Assert.assertEquals(block.getHash(), result.getHash());
     }
 
+    @Test
+    public void processBlockMessageWithParallelExecution() throws InterruptedException, IOException {
+        BlockChain blockChain = FactoryHelper.createBlockChainWithGenesis();
+        ExecutionConfiguration executionConfiguration = new ExecutionConfiguration(false, 0, Trie.DEFAULT_PARALLEL_HASH_THRESHOLD, 2);
+        NodeProcessor nodeProcessor = new NodeProcessor(new NetworkConfiguration((short)42), FactoryHelper.createRandomPeer(), blockChain, new MemoryStores(), FactoryHelper.createRandomAddress(), executionConfiguration);
+        Address coinbase = FactoryHelper.createRandomAddress();
+
+        Assert.assertNotNull(nodeProcessor.getBlockExecutionWorkers());
+
+        Block block = new Block(1, blockChain.getBestBlock().getHash(), Trie.EMPTY_TRIE_HASH, System.currentTimeMillis() / 1000, coinbase, Difficulty.ONE);
+
+        nodeProcessor.postMessage(FactoryHelper.createRandomPeer(), new BlockMessage(block));
+
+        NodesHelper.runNodeProcessors(nodeProcessor);
+
+        Assert.assertEquals(block.getHash(), blockChain.getBestBlock().getHash());
+        Assert.assertTrue(nodeProcessor.getBlockExecutionWorkers().isShutdown());
+    }
+
+    @Test
+    public void noBlockExecutionWorkersByDefault() throws IOException {
+        NodeProcessor nodeProcessor = FactoryHelper.createNodeProcessor(FactoryHelper.createBlockChainWithGenesis());
+
+        Assert.assertNull(nodeProcessor.getBlockExecutionWorkers());
+    }
+
     @Test
     public void mineBlock() throws InterruptedException, IOException {
         BlockChain blockChain = FactoryHelper.createBlockChainWithGenesis();
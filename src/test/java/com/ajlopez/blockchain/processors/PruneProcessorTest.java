@@ -0,0 +1,170 @@
+package com.ajlopez.blockchain.processors;
+
+import com.ajlopez.blockchain.bc.BlockChain;
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.store.MemoryStores;
+import com.ajlopez.blockchain.store.Stores;
+import com.ajlopez.blockchain.store.TrieNodeCache;
+import com.ajlopez.blockchain.store.TrieStore;
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class PruneProcessorTest {
+    // https://www.infoq.com/news/2009/07/junit-4.7-rules
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void pruneKeepingRecentStates() throws IOException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 10, 2);
+        TrieStore accountTrieStore = stores.getAccountTrieStore();
+
+        PruneProcessor pruneProcessor = new PruneProcessor(blockChain, stores, 3);
+
+        long nnodes = countNodes(accountTrieStore);
+        long removed = pruneProcessor.prune(blockChain.getBestBlockNumber());
+
+        Assert.assertTrue(removed > 0);
+        Assert.assertEquals(removed, pruneProcessor.getPrunedNodes());
+        Assert.assertEquals(nnodes - removed, countNodes(accountTrieStore));
+
+        for (long number = 8; number <= 10; number++)
+            assertCompleteTrie(accountTrieStore, blockChain.getBlockByNumber(number).getStateRootHash());
+
+        Assert.assertFalse(accountTrieStore.exists(blockChain.getBlockByNumber(1).getStateRootHash()));
+    }
+
+    @Test
+    public void pruneTwiceWithTheSameBestBlock() throws IOException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 10, 2);
+
+        PruneProcessor pruneProcessor = new PruneProcessor(blockChain, stores, 3);
+
+        Assert.assertTrue(pruneProcessor.prune(blockChain.getBestBlockNumber()) > 0);
+        Assert.assertEquals(0, pruneProcessor.prune(blockChain.getBestBlockNumber()));
+    }
+
+    @Test
+    public void pruneInBackgroundWhenBlocksAreConnected() throws IOException, InterruptedException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 1, 2);
+
+        PruneProcessor pruneProcessor = new PruneProcessor(blockChain, stores, 2);
+
+        pruneProcessor.start();
+
+        FactoryHelper.extendBlockChainWithBlocks(blockChain, 4);
+
+        for (int k = 0; k < 100 && pruneProcessor.getPrunedNodes() == 0; k++)
+            Thread.sleep(10);
+
+        pruneProcessor.stop();
+
+        Assert.assertTrue(pruneProcessor.getPrunedNodes() > 0);
+        assertCompleteTrie(stores.getAccountTrieStore(), blockChain.getBestBlock().getStateRootHash());
+    }
+
+    @Test
+    public void keepStateSavedBeforeItsBlockIsConnected() throws IOException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 10, 2);
+        TrieStore accountTrieStore = stores.getAccountTrieStore();
+
+        PruneProcessor pruneProcessor = new PruneProcessor(blockChain, stores, 3);
+
+        pruneProcessor.start();
+
+        // as the state of a block being validated or mined
+        Trie trie = new Trie(accountTrieStore).put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+        trie.save();
+
+        Assert.assertTrue(pruneProcessor.prune(blockChain.getBestBlockNumber()) > 0);
+
+        pruneProcessor.stop();
+
+        assertCompleteTrie(accountTrieStore, trie.getHash());
+    }
+
+    @Test
+    public void cannotKeepLessThanOneBlock() throws IOException {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("at least one block state should be kept");
+
+        new PruneProcessor(FactoryHelper.createBlockChain(1), new MemoryStores(), 0);
+    }
+
+    @Test
+    public void reportErrorInBackgroundPruning() throws IOException, InterruptedException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 3, 2);
+
+        // the next blocks keep this state, so marking them fails
+        stores.getAccountTrieStore().remove(blockChain.getBestBlock().getStateRootHash());
+
+        PruneProcessor pruneProcessor = new PruneProcessor(blockChain, stores, 2);
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+
+        pruneProcessor.onError(errors::add);
+        pruneProcessor.start();
+
+        FactoryHelper.extendBlockChainWithBlocks(blockChain, 2);
+
+        for (int k = 0; k < 100 && errors.isEmpty(); k++)
+            Thread.sleep(10);
+
+        pruneProcessor.stop();
+
+        Assert.assertEquals(1, errors.size());
+        Assert.assertEquals("Unknown trie", errors.get(0).getMessage());
+        Assert.assertEquals(0, pruneProcessor.getPrunedNodes());
+    }
+
+    @Test
+    public void pruneWithoutChangingNodeCache() throws IOException {
+        Stores stores = new MemoryStores();
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 10, 2);
+        TrieStore accountTrieStore = stores.getAccountTrieStore();
+        TrieNodeCache cache = accountTrieStore.getCache();
+
+        accountTrieStore.retrieve(blockChain.getBestBlock().getStateRootHash());
+
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        PruneProcessor pruneProcessor = new PruneProcessor(blockChain, stores, 3);
+
+        Assert.assertTrue(pruneProcessor.prune(blockChain.getBestBlockNumber()) > 0);
+
+        Assert.assertEquals(hits, cache.getHits());
+        Assert.assertEquals(misses, cache.getMisses());
+        Assert.assertTrue(cache.contains(blockChain.getBestBlock().getStateRootHash()));
+    }
+
+    private static long countNodes(TrieStore trieStore) throws IOException {
+        long[] count = new long[1];
+
+        trieStore.forEachHash(hash -> count[0]++);
+
+        return count[0];
+    }
+
+    private static void assertCompleteTrie(TrieStore trieStore, Hash hash) throws IOException {
+        if (hash == null || hash.equals(Trie.EMPTY_TRIE_HASH))
+            return;
+
+        Assert.assertTrue(trieStore.exists(hash));
+
+        for (Hash subhash : trieStore.retrieve(hash).getSubHashes())
+            assertCompleteTrie(trieStore, subhash);
+    }
+}
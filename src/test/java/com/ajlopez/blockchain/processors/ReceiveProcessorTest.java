@@ -5,15 +5,25 @@ import com.ajlopez.blockchain.core.Transaction;
 import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.core.types.Difficulty;
 import com.ajlopez.blockchain.net.messages.BlockMessage;
+import com.ajlopez.blockchain.net.messages.GetBlockByNumberMessage;
 import com.ajlopez.blockchain.net.messages.Message;
+import com.ajlopez.blockchain.net.messages.MessageType;
 import com.ajlopez.blockchain.net.messages.TransactionMessage;
+import com.ajlopez.blockchain.net.messages.TrieNodeMessage;
+import com.ajlopez.blockchain.net.messages.TrieType;
+import com.ajlopez.blockchain.net.peers.Peer;
 import com.ajlopez.blockchain.state.Trie;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by ajlopez on 28/01/2018.
@@ -191,4 +201,114 @@ public class ReceiveProcessorTest {
         Assert.assertNotNull(result);
         Assert.assertEquals(transaction.getHash(), result.getHash());
     }
+
+    @Test
+    public void processTransactionMessagesInWorkers() throws InterruptedException {
+        TransactionPool pool = new TransactionPool();
+        TransactionProcessor transactionProcessor = new TransactionProcessor(pool);
+        MessageProcessor messageProcessor = FactoryHelper.createMessageProcessor(transactionProcessor);
+
+        ReceiveProcessor processor = new ReceiveProcessor(messageProcessor, 4);
+
+        Semaphore sem = new Semaphore(0, true);
+        processor.onEmpty(() -> {
+            sem.release();
+        });
+
+        for (int k = 0; k < 100; k++)
+            processor.postMessage(null, new TransactionMessage(FactoryHelper.createTransaction(100 + k)));
+
+        processor.start();
+
+        sem.acquire();
+
+        processor.stop();
+
+        Assert.assertEquals(100, pool.size());
+    }
+
+    @Test
+    public void processTransactionMessagesPostedConcurrentlyInWorkers() throws InterruptedException {
+        TransactionPool pool = new TransactionPool();
+        TransactionProcessor transactionProcessor = new TransactionProcessor(pool);
+        MessageProcessor messageProcessor = FactoryHelper.createMessageProcessor(transactionProcessor);
+
+        ReceiveProcessor processor = new ReceiveProcessor(messageProcessor, 4);
+
+        Semaphore sem = new Semaphore(0, true);
+        processor.onEmpty(() -> {
+            sem.release();
+        });
+
+        processor.start();
+
+        // the senders are shared by the posting threads, so the workers add transactions of the same senders at the same time
+        List<Address> senders = FactoryHelper.createRandomAddresses(16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int k = 0; k < 8; k++) {
+            int thread = k;
+
+            executor.submit(() -> {
+                for (int j = 0; j < 50; j++)
+                    for (Address sender : senders)
+                        processor.postMessage(null, new TransactionMessage(FactoryHelper.createTransaction(100, sender, thread * 50 + j)));
+            });
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // only an empty notification after all the posts means that all the messages were processed
+        sem.drainPermits();
+        sem.acquire();
+
+        processor.stop();
+
+        Assert.assertEquals(8 * 50 * senders.size(), pool.size());
+
+        for (Address sender : senders)
+            Assert.assertEquals(8 * 50, pool.getTransactionsWithSenderFromNonce(sender, 0).size());
+    }
+
+    @Test
+    public void processMessagesByPriority() throws InterruptedException {
+        List<MessageType> processed = Collections.synchronizedList(new ArrayList<>());
+
+        MessageProcessor messageProcessor = new MessageProcessor(null, null, null, null, null) {
+            @Override
+            public void processMessage(Message message, Peer sender) {
+                processed.add(message.getMessageType());
+            }
+        };
+
+        ReceiveProcessor processor = new ReceiveProcessor(messageProcessor, 0);
+
+        Semaphore sem = new Semaphore(0, true);
+        processor.onEmpty(() -> {
+            sem.release();
+        });
+
+        processor.postMessage(null, new TrieNodeMessage(FactoryHelper.createRandomHash(), TrieType.ACCOUNT, new byte[] { 0x01 }));
+        processor.postMessage(null, new TransactionMessage(FactoryHelper.createTransaction(100)));
+        processor.postMessage(null, new GetBlockByNumberMessage(1));
+        processor.postMessage(null, new TransactionMessage(FactoryHelper.createTransaction(200)));
+
+        processor.start();
+
+        sem.acquire();
+
+        processor.stop();
+
+        Assert.assertEquals(4, processed.size());
+        Assert.assertEquals(MessageType.GET_BLOCK_BY_NUMBER, processed.get(0));
+        Assert.assertEquals(MessageType.TRANSACTION, processed.get(1));
+        Assert.assertEquals(MessageType.TRANSACTION, processed.get(2));
+        Assert.assertEquals(MessageType.TRIE_NODE, processed.get(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createWithNegativeNumberOfWorkers() {
+        new ReceiveProcessor(null, -1);
+    }
 }
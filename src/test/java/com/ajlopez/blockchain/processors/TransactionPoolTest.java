@@ -2,13 +2,15 @@ package com.ajlopez.blockchain.processors;
 
 import com.ajlopez.blockchain.core.Transaction;
 import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.Coin;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by ajlopez on 21/01/2018.
@@ -315,4 +317,266 @@ public class TransactionPoolTest {
         Assert.assertNotNull(result3);
         Assert.assertTrue(result3.isEmpty());
     }
+
+    @Test
+    public void transactionsOrderedByGasPrice() {
+        TransactionPool pool = new TransactionPool();
+        Transaction transaction1 = FactoryHelper.createTransaction(100, 0, null, 100000, 1);
+        Transaction transaction2 = FactoryHelper.createTransaction(100, 0, null, 100000, 3);
+        Transaction transaction3 = FactoryHelper.createTransaction(100, 0, null, 100000, 2);
+
+        pool.addTransaction(transaction1);
+        pool.addTransaction(transaction2);
+        pool.addTransaction(transaction3);
+
+        List<Transaction> result = pool.getTransactions();
+
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(transaction2, result.get(0));
+        Assert.assertEquals(transaction3, result.get(1));
+        Assert.assertEquals(transaction1, result.get(2));
+    }
+
+    @Test
+    public void executableTransactionsByGasPriceAndNonce() {
+        Address sender = FactoryHelper.createRandomAddress();
+        TransactionPool pool = new TransactionPool();
+        Transaction transaction1 = createTransaction(sender, 0, 1);
+        Transaction transaction2 = createTransaction(sender, 1, 5);
+        Transaction transaction2b = createTransaction(sender, 1, 4);
+        Transaction transaction3 = createTransaction(sender, 3, 10);
+        Transaction otherTransaction = FactoryHelper.createTransaction(100, 0, null, 100000, 2);
+
+        pool.addTransaction(transaction3);
+        pool.addTransaction(transaction2b);
+        pool.addTransaction(transaction2);
+        pool.addTransaction(otherTransaction);
+        pool.addTransaction(transaction1);
+
+        List<Transaction> result = pool.getExecutableTransactions(10);
+
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(otherTransaction, result.get(0));
+        Assert.assertEquals(transaction1, result.get(1));
+        Assert.assertEquals(transaction2, result.get(2));
+
+        List<Transaction> result2 = pool.getExecutableTransactions(2);
+
+        Assert.assertEquals(2, result2.size());
+        Assert.assertEquals(otherTransaction, result2.get(0));
+        Assert.assertEquals(transaction1, result2.get(1));
+    }
+
+    @Test
+    public void executableTransactionsAfterChangingSenderFirstTransaction() {
+        Address sender = FactoryHelper.createRandomAddress();
+        TransactionPool pool = new TransactionPool();
+        Transaction transaction0 = createTransaction(sender, 0, 1);
+        Transaction transaction1 = createTransaction(sender, 1, 5);
+        Transaction transaction2 = createTransaction(sender, 2, 3);
+        Transaction otherTransaction = FactoryHelper.createTransaction(100, 0, null, 100000, 2);
+
+        pool.addTransaction(transaction1);
+        pool.addTransaction(transaction2);
+        pool.addTransaction(otherTransaction);
+
+        List<Transaction> result = pool.getExecutableTransactions(10);
+
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(transaction1, result.get(0));
+        Assert.assertEquals(transaction2, result.get(1));
+        Assert.assertEquals(otherTransaction, result.get(2));
+
+        pool.addTransaction(transaction0);
+
+        List<Transaction> result2 = pool.getExecutableTransactions(10);
+
+        Assert.assertEquals(4, result2.size());
+        Assert.assertEquals(otherTransaction, result2.get(0));
+        Assert.assertEquals(transaction0, result2.get(1));
+        Assert.assertEquals(transaction1, result2.get(2));
+        Assert.assertEquals(transaction2, result2.get(3));
+
+        pool.updateTransactions(Arrays.asList(transaction0, otherTransaction), Collections.emptyList());
+
+        List<Transaction> result3 = pool.getExecutableTransactions(10);
+
+        Assert.assertEquals(2, result3.size());
+        Assert.assertEquals(transaction1, result3.get(0));
+        Assert.assertEquals(transaction2, result3.get(1));
+
+        pool.removeTransaction(transaction1);
+        pool.removeTransaction(transaction2);
+
+        Assert.assertTrue(pool.getExecutableTransactions(10).isEmpty());
+    }
+
+    @Test
+    public void executableTransactionsFromManySenders() {
+        Random random = new Random(42);
+        TransactionPool pool = new TransactionPool();
+        List<Address> senders = FactoryHelper.createRandomAddresses(50);
+        List<Transaction> transactions = new ArrayList<>();
+        List<Integer> gasPrices = new ArrayList<>();
+
+        for (int k = 1; k <= 300; k++)
+            gasPrices.add(k);
+
+        // different gas prices, so the expected order does not depend on the transaction hashes
+        Collections.shuffle(gasPrices, random);
+
+        for (int k = 0; k < gasPrices.size(); k++) {
+            Transaction transaction = createTransaction(senders.get(random.nextInt(senders.size())), random.nextInt(8), gasPrices.get(k));
+            transactions.add(transaction);
+            pool.addTransaction(transaction);
+        }
+
+        for (int k = 0; k < 50; k++)
+            pool.removeTransaction(transactions.remove(random.nextInt(transactions.size())));
+
+        Assert.assertEquals(getExecutableTransactions(transactions, 20), pool.getExecutableTransactions(20));
+        Assert.assertEquals(getExecutableTransactions(transactions, transactions.size()), pool.getExecutableTransactions(transactions.size()));
+    }
+
+    @Test
+    public void evictLowestGasPriceWhenPoolIsFull() {
+        TransactionPool pool = new TransactionPool(2, 10);
+        Transaction transaction1 = FactoryHelper.createTransaction(100, 0, null, 100000, 2);
+        Transaction transaction2 = FactoryHelper.createTransaction(100, 0, null, 100000, 1);
+        Transaction transaction3 = FactoryHelper.createTransaction(100, 0, null, 100000, 3);
+
+        pool.addTransaction(transaction1);
+        pool.addTransaction(transaction2);
+
+        Assert.assertEquals(1, pool.addTransaction(transaction3).size());
+
+        List<Transaction> result = pool.getTransactions();
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(transaction3, result.get(0));
+        Assert.assertEquals(transaction1, result.get(1));
+        Assert.assertTrue(pool.getTransactionsWithSender(transaction2.getSender()).isEmpty());
+    }
+
+    @Test
+    public void rejectLowestGasPriceWhenPoolIsFull() {
+        TransactionPool pool = new TransactionPool(2, 10);
+        Transaction transaction1 = FactoryHelper.createTransaction(100, 0, null, 100000, 2);
+        Transaction transaction2 = FactoryHelper.createTransaction(100, 0, null, 100000, 3);
+        Transaction transaction3 = FactoryHelper.createTransaction(100, 0, null, 100000, 1);
+
+        pool.addTransaction(transaction1);
+        pool.addTransaction(transaction2);
+
+        Assert.assertTrue(pool.addTransaction(transaction3).isEmpty());
+        Assert.assertEquals(2, pool.size());
+        Assert.assertTrue(pool.getTransactionsWithSender(transaction3.getSender()).isEmpty());
+    }
+
+    @Test
+    public void keepLowestNoncesWhenSenderIsFull() {
+        Address sender = FactoryHelper.createRandomAddress();
+        TransactionPool pool = new TransactionPool(10, 2);
+        Transaction transaction1 = createTransaction(sender, 1, 1);
+        Transaction transaction2 = createTransaction(sender, 2, 1);
+        Transaction transaction0 = createTransaction(sender, 0, 1);
+        Transaction transaction3 = createTransaction(sender, 3, 1);
+
+        pool.addTransaction(transaction1);
+        pool.addTransaction(transaction2);
+
+        Assert.assertEquals(1, pool.addTransaction(transaction0).size());
+        Assert.assertTrue(pool.addTransaction(transaction3).isEmpty());
+
+        List<Transaction> result = pool.getTransactionsWithSender(sender);
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(transaction0, result.get(0));
+        Assert.assertEquals(transaction1, result.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createPoolWithInvalidSize() {
+        new TransactionPool(0, 10);
+    }
+
+    @Test
+    public void addTransactionsConcurrently() throws InterruptedException {
+        TransactionPool pool = new TransactionPool();
+        List<Address> senders = FactoryHelper.createRandomAddresses(8);
+        ExecutorService executor = Executors.newFixedThreadPool(senders.size());
+
+        for (Address sender : senders)
+            executor.submit(() -> {
+                for (int k = 0; k < 100; k++)
+                    pool.addTransaction(createTransaction(sender, k, k % 7));
+            });
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(senders.size() * 100, pool.size());
+        Assert.assertEquals(senders.size() * 100, pool.getTransactions().size());
+
+        for (Address sender : senders)
+            Assert.assertEquals(100, pool.getTransactionsWithSenderFromNonce(sender, 0).size());
+
+        Assert.assertEquals(senders.size() * 100, pool.getExecutableTransactions(senders.size() * 100).size());
+    }
+
+    @Test
+    public void evictTransactionsAddedConcurrently() throws InterruptedException {
+        TransactionPool pool = new TransactionPool(100, 1000);
+        List<Address> senders = FactoryHelper.createRandomAddresses(8);
+        ExecutorService executor = Executors.newFixedThreadPool(senders.size());
+
+        for (Address sender : senders)
+            executor.submit(() -> {
+                for (int k = 0; k < 100; k++)
+                    pool.addTransaction(createTransaction(sender, k, 1000 - k));
+            });
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(100, pool.size());
+        Assert.assertEquals(100, pool.getTransactions().size());
+
+        int total = 0;
+
+        for (Address sender : senders)
+            total += pool.getTransactionsWithSender(sender).size();
+
+        Assert.assertEquals(100, total);
+    }
+
+    // picks the highest gas price among the next nonce of each sender, one transaction at a time
+    private static List<Transaction> getExecutableTransactions(List<Transaction> transactions, int maxTransactions) {
+        Map<Address, Long> nextNonces = new HashMap<>();
+
+        for (Transaction transaction : transactions)
+            nextNonces.merge(transaction.getSender(), transaction.getNonce(), Math::min);
+
+        List<Transaction> result = new ArrayList<>();
+
+        while (result.size() < maxTransactions) {
+            Transaction best = null;
+
+            for (Transaction transaction : transactions)
+                if (nextNonces.get(transaction.getSender()) == transaction.getNonce() && (best == null || transaction.getGasPrice().compareTo(best.getGasPrice()) > 0))
+                    best = transaction;
+
+            if (best == null)
+                return result;
+
+            result.add(best);
+            nextNonces.put(best.getSender(), best.getNonce() + 1);
+        }
+
+        return result;
+    }
+
+    private static Transaction createTransaction(Address sender, long nonce, long gasPrice) {
+        return new Transaction(sender, FactoryHelper.createRandomAddress(), Coin.ONE, nonce, null, 100000, Coin.fromUnsignedLong(gasPrice));
+    }
 }
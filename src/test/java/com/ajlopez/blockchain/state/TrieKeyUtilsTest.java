@@ -81,4 +81,10 @@ public class TrieKeyUtilsTest {
         Assert.assertArrayEquals(result3, TrieKeyUtils.concatenateKeys(key13, 0, 15, key23, 0));
         Assert.assertArrayEquals(result4, TrieKeyUtils.concatenateKeys(key14, 3, 4, key24, 1));
     }
+
+    @Test
+    public void getSharedLengthWithOddLengthSharedKey() {
+        Assert.assertEquals(1, TrieKeyUtils.getSharedLength(new byte[] { 0x10 }, 1, new byte[] { 0x10, 0x10 }, 0));
+        Assert.assertEquals(3, TrieKeyUtils.getSharedLength(new byte[] { 0x12, 0x30 }, 3, new byte[] { 0x12, 0x30 }, 0));
+    }
 }
@@ -4,14 +4,21 @@ import com.ajlopez.blockchain.core.types.Address;
 import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.store.HashMapStore;
 import com.ajlopez.blockchain.store.TrieStore;
+import com.ajlopez.blockchain.store.WriteBatch;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import com.ajlopez.blockchain.utils.ByteUtils;
 import com.ajlopez.blockchain.utils.HashUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Created by ajlopez on 12/08/2017.
@@ -527,4 +534,251 @@ public class TrieTest {
         Assert.assertArrayEquals(value2, trie.get(key1));
         Assert.assertEquals(1, trie.nodesSize());
     }
+
+    @Test
+    public void getHashInParallel() throws IOException {
+        Trie trie1 = new Trie();
+        Trie trie2 = new Trie();
+
+        for (int k = 0; k < 2000; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            byte[] value = FactoryHelper.createRandomBytes(42);
+
+            trie1 = trie1.put(key, value);
+            trie2 = trie2.put(key, value);
+        }
+
+        Hash hash = trie2.getHash(16);
+
+        Assert.assertEquals(trie1.getHash(), hash);
+        Assert.assertArrayEquals(trie1.getEncoded(), trie2.getEncoded());
+        Assert.assertSame(hash, trie2.getHash());
+    }
+
+    @Test
+    public void getHashInParallelAfterChangingSavedTrie() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store);
+
+        for (int k = 0; k < 1000; k++)
+            trie = trie.put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        trie.save();
+
+        Trie trie1 = store.retrieve(trie.getHash());
+        Trie trie2 = store.retrieve(trie.getHash());
+
+        for (int k = 0; k < 500; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            byte[] value = FactoryHelper.createRandomBytes(42);
+
+            trie1 = trie1.put(key, value);
+            trie2 = trie2.put(key, value);
+        }
+
+        Assert.assertEquals(trie1.getHash(), trie2.getHash(1));
+    }
+
+    @Test
+    public void getHashBelowParallelThreshold() throws IOException {
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        Trie trie1 = new Trie().put(key, value);
+        Trie trie2 = new Trie().put(key, value);
+
+        Assert.assertEquals(trie1.getHash(), trie2.getHash(Trie.DEFAULT_PARALLEL_HASH_THRESHOLD));
+    }
+
+    @Test
+    public void putAllKeyValues() throws IOException {
+        Trie trie = new Trie();
+        SortedMap<byte[], byte[]> values = new TreeMap<>(ByteUtils::compareUnsigned);
+
+        for (int k = 0; k < 1000; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            byte[] value = FactoryHelper.createRandomBytes(42);
+
+            trie = trie.put(key, value);
+            values.put(key, value);
+        }
+
+        Trie result = new Trie().putAll(values);
+
+        Assert.assertEquals(trie.getHash(), result.getHash());
+
+        for (Map.Entry<byte[], byte[]> entry : values.entrySet())
+            Assert.assertArrayEquals(entry.getValue(), result.get(entry.getKey()));
+    }
+
+    @Test
+    public void putAllKeyValuesWithSharedKeysAndRemovals() throws IOException {
+        for (int n = 0; n < 100; n++) {
+            Trie trie = new Trie();
+            List<byte[]> keys = new ArrayList<>();
+
+            for (int k = 0; k < 20; k++) {
+                byte[] key = FactoryHelper.createRandomBytes(3);
+                key[0] &= 0x11;
+                key[1] &= 0x31;
+                keys.add(key);
+                trie = trie.put(key, FactoryHelper.createRandomBytes(1 + random.nextInt(4)));
+            }
+
+            Trie expected = trie;
+            SortedMap<byte[], byte[]> values = new TreeMap<>(ByteUtils::compareUnsigned);
+
+            for (int k = 0; k < 20; k++) {
+                byte[] key = random.nextBoolean() ? keys.get(random.nextInt(keys.size())) : FactoryHelper.createRandomBytes(3);
+                key[0] &= 0x11;
+                key[1] &= 0x31;
+                byte[] value = random.nextBoolean() ? null : FactoryHelper.createRandomBytes(1 + random.nextInt(4));
+
+                if (values.containsKey(key))
+                    continue;
+
+                values.put(key, value);
+                expected = expected.put(key, value);
+            }
+
+            Assert.assertEquals(expected.getHash(), trie.putAll(values).getHash());
+        }
+    }
+
+    @Test
+    public void putAllRemovingAllKeys() throws IOException {
+        byte[] key1 = new byte[] { 0x01, 0x02 };
+        byte[] key2 = new byte[] { 0x01, 0x03 };
+
+        Trie trie = new Trie().put(key1, new byte[] { 0x01 }).put(key2, new byte[] { 0x02 });
+
+        SortedMap<byte[], byte[]> values = new TreeMap<>(ByteUtils::compareUnsigned);
+        values.put(key1, null);
+        values.put(key2, null);
+
+        Trie result = trie.putAll(values);
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(Trie.EMPTY_TRIE_HASH, result.getHash());
+    }
+
+    @Test
+    public void putAllKeyValuesIntoSavedTrie() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store);
+
+        for (int k = 0; k < 1000; k++)
+            trie = trie.put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        trie.save();
+
+        Trie expected = store.retrieve(trie.getHash());
+        SortedMap<byte[], byte[]> values = new TreeMap<>(ByteUtils::compareUnsigned);
+
+        for (int k = 0; k < 100; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            byte[] value = FactoryHelper.createRandomBytes(42);
+
+            expected = expected.put(key, value);
+            values.put(key, value);
+        }
+
+        Assert.assertEquals(expected.getHash(), store.retrieve(trie.getHash()).putAll(values).getHash());
+    }
+
+    @Test
+    public void putAllWithoutChanges() throws IOException {
+        byte[] key = new byte[] { 0x01, 0x02 };
+        byte[] value = new byte[] { 0x03 };
+
+        Trie trie = new Trie().put(key, value);
+
+        SortedMap<byte[], byte[]> values = new TreeMap<>(ByteUtils::compareUnsigned);
+        values.put(key, value);
+        values.put(new byte[] { 0x04 }, null);
+
+        Assert.assertSame(trie, trie.putAll(values));
+        Assert.assertSame(trie, trie.putAll(new TreeMap<>(ByteUtils::compareUnsigned)));
+    }
+
+    @Test
+    public void getAllValues() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store);
+        List<byte[]> keys = new ArrayList<>();
+
+        for (int k = 0; k < 1000; k++) {
+            byte[] key = FactoryHelper.createRandomBytes(32);
+            keys.add(key);
+            trie = trie.put(key, key);
+        }
+
+        trie.save();
+
+        keys.add(FactoryHelper.createRandomBytes(32));
+        keys.add(new byte[0]);
+
+        List<byte[]> values = store.retrieve(trie.getHash()).getAll(keys);
+
+        Assert.assertEquals(keys.size(), values.size());
+
+        for (int k = 0; k < 1000; k++)
+            Assert.assertArrayEquals(keys.get(k), values.get(k));
+
+        Assert.assertNull(values.get(1000));
+        Assert.assertNull(values.get(1001));
+    }
+
+    @Test
+    public void putKeyValuesInAnyOrder() throws IOException {
+        byte[] key1 = new byte[] { 0x11, 0x11 };
+        byte[] key2 = new byte[] { 0x10, 0x10 };
+        byte[] value1 = new byte[] { 0x01 };
+        byte[] value2 = new byte[] { 0x02 };
+
+        Trie trie1 = new Trie().put(key1, value1).put(key2, value2);
+        Trie trie2 = new Trie().put(key2, value2).put(key1, value1);
+
+        Assert.assertEquals(trie1.getHash(), trie2.getHash());
+        Assert.assertArrayEquals(value1, trie1.get(key1));
+        Assert.assertArrayEquals(value2, trie1.get(key2));
+    }
+
+    @Test
+    public void saveAgainAfterFailedCommit() throws IOException {
+        HashMapStore keyValueStore = new HashMapStore() {
+            private boolean failed;
+
+            @Override
+            public void writeBatch(WriteBatch batch) throws IOException {
+                if (!this.failed) {
+                    this.failed = true;
+                    throw new IOException("write failed");
+                }
+
+                super.writeBatch(batch);
+            }
+        };
+
+        TrieStore store = new TrieStore(keyValueStore);
+        Trie trie = new Trie(store);
+
+        for (int k = 0; k < 100; k++)
+            trie = trie.put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        try {
+            trie.save();
+            Assert.fail();
+        }
+        catch (IOException ex) {
+            Assert.assertEquals("write failed", ex.getMessage());
+        }
+
+        Assert.assertTrue(keyValueStore.isEmpty());
+
+        trie.save();
+
+        Assert.assertTrue(store.exists(trie.getHash()));
+        Assert.assertEquals(trie.getHash(), store.retrieve(trie.getHash()).getHash());
+    }
 }
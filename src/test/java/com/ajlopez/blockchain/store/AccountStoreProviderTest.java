@@ -87,4 +87,27 @@ public class AccountStoreProviderTest {
         Assert.assertEquals(Coin.TEN, account2b.getBalance());
         Assert.assertEquals(42, account2b.getNonce());
     }
+
+    @Test
+    public void retrieveAccountStoreWithParallelHashThreshold() throws IOException {
+        TrieStore accountTrieStore = new TrieStore(new HashMapStore());
+        AccountStoreProvider provider = new AccountStoreProvider(accountTrieStore, 1);
+
+        AccountStore accountStore = provider.retrieve(Trie.EMPTY_TRIE_HASH);
+        AccountStore accountStore2 = new AccountStoreProvider(accountTrieStore).retrieve(Trie.EMPTY_TRIE_HASH);
+
+        for (int k = 0; k < 100; k++) {
+            Address address = FactoryHelper.createRandomAddress();
+            Account account = new Account(Coin.fromUnsignedLong(k), k, null, null);
+
+            accountStore.putAccount(address, account);
+            accountStore2.putAccount(address, account);
+        }
+
+        Assert.assertEquals(accountStore2.getRootHash(), accountStore.getRootHash());
+
+        accountStore.save();
+
+        Assert.assertTrue(accountTrieStore.exists(accountStore.getRootHash()));
+    }
 }
@@ -10,6 +10,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by ajlopez on 26/11/2018.
@@ -44,6 +46,28 @@ public class AccountStoreTest {
         Assert.assertArrayEquals(AccountEncoder.encode(account), AccountEncoder.encode(result));
     }
 
+    @Test
+    public void putAndGetAccounts() throws IOException {
+        AccountStore store = new AccountStore(new Trie());
+        AccountStore store2 = new AccountStore(new Trie());
+        Map<Address, Account> accounts = new HashMap<>();
+
+        for (int k = 0; k < 100; k++) {
+            Address address = FactoryHelper.createRandomAddress();
+            Account account = new Account(Coin.fromUnsignedLong(k + 1), k, null, null);
+
+            accounts.put(address, account);
+            store2.putAccount(address, account);
+        }
+
+        store.putAccounts(accounts);
+
+        Assert.assertEquals(store2.getRootHash(), store.getRootHash());
+
+        for (Map.Entry<Address, Account> entry : accounts.entrySet())
+            Assert.assertArrayEquals(AccountEncoder.encode(entry.getValue()), AccountEncoder.encode(store.getAccount(entry.getKey())));
+    }
+
     @Test
     public void createTenMillionAccounts() throws IOException {
         int naccounts = 10000000;
@@ -66,4 +90,22 @@ public class AccountStoreTest {
         System.out.println("KB: " + (double) (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / 1024);
         System.out.println("Trie size: " + store.getTrie().nodesSize());
     }
+
+    @Test
+    public void getRootHashWithParallelHashThresholds() throws IOException {
+        Map<Address, Account> accounts = new HashMap<>();
+
+        for (int k = 0; k < 1000; k++)
+            accounts.put(FactoryHelper.createRandomAddress(), new Account(Coin.fromUnsignedLong(k), k, null, null));
+
+        AccountStore store = new AccountStore(new Trie(), 0);
+        store.putAccounts(accounts);
+
+        for (int threshold : new int[] { 1, 16, Trie.DEFAULT_PARALLEL_HASH_THRESHOLD, Integer.MAX_VALUE }) {
+            AccountStore store2 = new AccountStore(new Trie(), threshold);
+            store2.putAccounts(accounts);
+
+            Assert.assertEquals(store.getRootHash(), store2.getRootHash());
+        }
+    }
 }
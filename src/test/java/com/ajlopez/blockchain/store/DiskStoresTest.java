@@ -0,0 +1,72 @@
+package com.ajlopez.blockchain.store;
+
+import com.ajlopez.blockchain.bc.BlockChain;
+import com.ajlopez.blockchain.core.Account;
+import com.ajlopez.blockchain.core.Block;
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class DiskStoresTest {
+    @Test
+    public void createStores() throws IOException {
+        DiskStores stores = new DiskStores("dstest1");
+
+        Assert.assertNotNull(stores.getAccountTrieStore());
+        Assert.assertNotNull(stores.getStorageTrieStore());
+        Assert.assertNotNull(stores.getCodeStore());
+        Assert.assertNotNull(stores.getBlockHashStore());
+        Assert.assertNotNull(stores.getBlocksInformationStore());
+        Assert.assertNotNull(stores.getAccountStoreProvider());
+        Assert.assertNotNull(stores.getTrieStorageProvider());
+
+        stores.close();
+    }
+
+    @Test
+    public void saveAccountsCloseReopenAndRetrieveAccounts() throws IOException {
+        DiskStores stores = new DiskStores("dstest2");
+        AccountStore accountStore = stores.getAccountStoreProvider().retrieve(null);
+
+        Address address = FactoryHelper.createAccountWithBalance(accountStore, 1000);
+        accountStore.save();
+
+        Hash rootHash = accountStore.getRootHash();
+
+        stores.close();
+
+        DiskStores stores2 = new DiskStores("dstest2");
+        AccountStore accountStore2 = stores2.getAccountStoreProvider().retrieve(rootHash);
+
+        Account result = accountStore2.getAccount(address);
+
+        Assert.assertNotNull(result);
+        Assert.assertEquals(1000, result.getBalance().asBigInteger().longValue());
+
+        stores2.close();
+    }
+
+    @Test
+    public void createBlockChainCloseReopenAndLoadBestBlock() throws IOException {
+        DiskStores stores = new DiskStores("dstest3");
+        BlockChain blockChain = FactoryHelper.createBlockChain(stores, 10, 2);
+
+        Block bestBlock = blockChain.getBestBlock();
+
+        stores.close();
+
+        DiskStores stores2 = new DiskStores("dstest3");
+        BlockChain blockChain2 = new BlockChain(stores2);
+
+        Assert.assertTrue(blockChain2.loadBestBlock());
+        Assert.assertEquals(bestBlock, blockChain2.getBestBlock());
+        Assert.assertEquals(2, blockChain2.getBestBlock().getTransactions().size());
+        Assert.assertEquals(bestBlock.getParentHash(), blockChain2.getBlockByNumber(9).getHash());
+
+        stores2.close();
+    }
+}
@@ -3,6 +3,9 @@ package com.ajlopez.blockchain.store;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Created by ajlopez on 06/01/2018.
  */
@@ -24,4 +27,35 @@ public class HashMapStoreTest {
         store.setValue(key, value);
         Assert.assertArrayEquals(value, store.getValue(key));
     }
+
+    @Test
+    public void removeValue() {
+        HashMapStore store = new HashMapStore();
+
+        byte[] key = new byte[] { 0x01, 0x02, 0x03 };
+        byte[] value = new byte[] { 0x04, 0x05, 0x06 };
+
+        store.setValue(key, value);
+        store.removeValue(key);
+
+        Assert.assertNull(store.getValue(key));
+        Assert.assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void iterateKeys() {
+        HashMapStore store = new HashMapStore();
+
+        byte[] key = new byte[] { 0x01, 0x02, 0x03 };
+        byte[] value = new byte[] { 0x04, 0x05, 0x06 };
+
+        store.setValue(key, value);
+
+        List<byte[]> keys = new ArrayList<>();
+
+        store.forEachKey(keys::add);
+
+        Assert.assertEquals(1, keys.size());
+        Assert.assertArrayEquals(key, keys.get(0));
+    }
 }
@@ -0,0 +1,68 @@
+package com.ajlopez.blockchain.store;
+
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.state.Trie;
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class TrieNodeCacheTest {
+    @Test
+    public void getUnknownNode() {
+        TrieNodeCache cache = new TrieNodeCache(1 << 20);
+
+        Assert.assertNull(cache.get(FactoryHelper.createRandomHash()));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(0, cache.getEvictions());
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void putAndGetNode() throws IOException {
+        TrieNodeCache cache = new TrieNodeCache(1 << 20);
+        Trie trie = new Trie().put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        cache.put(trie.getHash(), trie);
+
+        Assert.assertTrue(cache.contains(trie.getHash()));
+        Assert.assertSame(trie, cache.get(trie.getHash()));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(0, cache.getMisses());
+        Assert.assertTrue(cache.getSize() > trie.getEncoded().length);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedNodes() throws IOException {
+        TrieNodeCache cache = new TrieNodeCache(16 * 1024);
+        Trie first = null;
+        int nnodes = 1000;
+
+        for (int k = 0; k < nnodes; k++) {
+            Trie trie = new Trie().put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+            if (first == null)
+                first = trie;
+
+            cache.put(trie.getHash(), trie);
+        }
+
+        Assert.assertTrue(cache.getEvictions() > 0);
+        Assert.assertTrue(cache.getSize() <= 16 * 1024);
+        Assert.assertFalse(cache.contains(first.getHash()));
+    }
+
+    @Test
+    public void skipNodeLargerThanCache() throws IOException {
+        TrieNodeCache cache = new TrieNodeCache(16 * 64);
+        Trie trie = new Trie().put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(1024));
+        Hash hash = trie.getHash();
+
+        cache.put(hash, trie);
+
+        Assert.assertFalse(cache.contains(hash));
+        Assert.assertEquals(0, cache.getSize());
+    }
+}
@@ -1,11 +1,14 @@
 package com.ajlopez.blockchain.store;
 
+import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.state.Trie;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -126,4 +129,120 @@ public class TrieStoreTest {
         Assert.assertTrue(store.exists(null));
         Assert.assertTrue(store.exists(Trie.EMPTY_TRIE_HASH));
     }
+
+    @Test
+    public void retrieveNodeFromCache() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+
+        Trie trie = new Trie(store).put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        trie.save();
+
+        Trie result1 = store.retrieve(trie.getHash());
+        Trie result2 = store.retrieve(trie.getHash());
+
+        Assert.assertNotNull(result1);
+        Assert.assertNotNull(result2);
+        Assert.assertNotSame(result1, result2);
+        Assert.assertEquals(trie.getHash(), result1.getHash());
+        Assert.assertEquals(trie.getHash(), result2.getHash());
+        Assert.assertArrayEquals(trie.getEncoded(), result2.getEncoded());
+
+        Assert.assertEquals(1, store.getCache().getMisses());
+        Assert.assertEquals(1, store.getCache().getHits());
+        Assert.assertTrue(store.exists(trie.getHash()));
+    }
+
+    @Test
+    public void retrieveTrieWithCachedNodes() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store);
+
+        byte[] key = FactoryHelper.createRandomBytes(32);
+        byte[] value = FactoryHelper.createRandomBytes(42);
+
+        for (int k = 0; k < 100; k++)
+            trie = trie.put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        trie = trie.put(key, value);
+        trie.save();
+
+        Assert.assertArrayEquals(value, store.retrieve(trie.getHash()).get(key));
+
+        long misses = store.getCache().getMisses();
+
+        Assert.assertArrayEquals(value, store.retrieve(trie.getHash()).get(key));
+
+        Assert.assertEquals(misses, store.getCache().getMisses());
+        Assert.assertTrue(store.getCache().getHits() > 1);
+    }
+
+    @Test
+    public void removeNode() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store).put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        trie.save();
+
+        store.retrieve(trie.getHash());
+
+        Assert.assertTrue(store.remove(trie.getHash()));
+        Assert.assertFalse(store.exists(trie.getHash()));
+    }
+
+    @Test
+    public void keepNodesSavedWhilePruning() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store).put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        store.startPruning();
+
+        trie.save();
+
+        Assert.assertFalse(store.remove(trie.getHash()));
+        Assert.assertTrue(store.exists(trie.getHash()));
+
+        store.stopPruning();
+
+        Assert.assertTrue(store.remove(trie.getHash()));
+        Assert.assertFalse(store.exists(trie.getHash()));
+    }
+
+    @Test
+    public void keepNodesSavedBeforePruningWhenTrackingSaves() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store).put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        store.trackSaves();
+
+        trie.save();
+
+        store.startPruning();
+
+        Assert.assertFalse(store.remove(trie.getHash()));
+        Assert.assertTrue(store.exists(trie.getHash()));
+
+        store.stopPruning();
+        store.startPruning();
+
+        Assert.assertTrue(store.remove(trie.getHash()));
+        Assert.assertFalse(store.exists(trie.getHash()));
+
+        store.stopPruning();
+    }
+
+    @Test
+    public void iterateHashes() throws IOException {
+        TrieStore store = new TrieStore(new HashMapStore());
+        Trie trie = new Trie(store).put(FactoryHelper.createRandomBytes(32), FactoryHelper.createRandomBytes(42));
+
+        trie.save();
+
+        List<Hash> hashes = new ArrayList<>();
+
+        store.forEachHash(hashes::add);
+
+        Assert.assertEquals(1, hashes.size());
+        Assert.assertEquals(trie.getHash(), hashes.get(0));
+    }
 }
@@ -0,0 +1,60 @@
+package com.ajlopez.blockchain.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class WriteBatchTest {
+    @Test
+    public void createEmptyBatch() {
+        WriteBatch batch = new WriteBatch();
+
+        Assert.assertTrue(batch.isEmpty());
+        Assert.assertEquals(0, batch.size());
+        Assert.assertNull(batch.getValue(new byte[] { 0x01 }));
+    }
+
+    @Test
+    public void setAndGetValue() {
+        WriteBatch batch = new WriteBatch();
+
+        byte[] key = new byte[] { 0x01, 0x02, 0x03 };
+        byte[] value = new byte[] { 0x04, 0x05, 0x06 };
+
+        batch.setValue(key, value);
+
+        Assert.assertFalse(batch.isEmpty());
+        Assert.assertEquals(1, batch.size());
+        Assert.assertArrayEquals(value, batch.getValue(key));
+    }
+
+    @Test
+    public void writeBatchIntoStore() throws IOException {
+        WriteBatch batch = new WriteBatch();
+        HashMapStore store = new HashMapStore();
+
+        byte[] key1 = new byte[] { 0x01, 0x02, 0x03 };
+        byte[] value1 = new byte[] { 0x04, 0x05, 0x06 };
+        byte[] key2 = new byte[] { 0x07, 0x08, 0x09 };
+        byte[] value2 = new byte[] { 0x0a, 0x0b, 0x0c };
+
+        batch.setValue(key1, value1);
+        batch.setValue(key2, value2);
+
+        store.writeBatch(batch);
+
+        Assert.assertArrayEquals(value1, store.getValue(key1));
+        Assert.assertArrayEquals(value2, store.getValue(key2));
+    }
+
+    @Test
+    public void clearBatch() {
+        WriteBatch batch = new WriteBatch();
+
+        batch.setValue(new byte[] { 0x01 }, new byte[] { 0x02 });
+        batch.clear();
+
+        Assert.assertTrue(batch.isEmpty());
+    }
+}
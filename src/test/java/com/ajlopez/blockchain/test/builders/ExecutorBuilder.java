@@ -1,14 +1,17 @@
 package com.ajlopez.blockchain.test.builders;
 
+import com.ajlopez.blockchain.config.ExecutionConfiguration;
 import com.ajlopez.blockchain.execution.BlockExecutor;
 import com.ajlopez.blockchain.execution.ExecutionContext;
 import com.ajlopez.blockchain.execution.TopExecutionContext;
 import com.ajlopez.blockchain.execution.TransactionExecutor;
 import com.ajlopez.blockchain.state.Trie;
 import com.ajlopez.blockchain.store.*;
+import com.ajlopez.blockchain.vms.eth.CodeAnalysisCache;
 import com.ajlopez.blockchain.vms.eth.TrieStorageProvider;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Created by ajlopez on 17/12/2019.
@@ -90,4 +93,24 @@ public class ExecutorBuilder {
             this.getCodeStore()
         );
     }
+
+    public BlockExecutor buildBlockExecutor(ExecutorService executor) {
+        return new BlockExecutor(
+            this.getAccountStoreProvider(),
+            this.getTrieStorageProvider(),
+            this.getCodeStore(),
+            executor
+        );
+    }
+
+    public BlockExecutor buildBlockExecutor(ExecutionConfiguration executionConfiguration) {
+        return new BlockExecutor(
+            this.getAccountStoreProvider(),
+            this.getTrieStorageProvider(),
+            this.getCodeStore(),
+            null,
+            new CodeAnalysisCache(CodeAnalysisCache.DEFAULT_SIZE),
+            executionConfiguration
+        );
+    }
 }
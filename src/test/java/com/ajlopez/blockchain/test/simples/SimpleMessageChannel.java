@@ -3,30 +3,31 @@ package com.ajlopez.blockchain.test.simples;
 import com.ajlopez.blockchain.net.MessageChannel;
 import com.ajlopez.blockchain.net.peers.Peer;
 import com.ajlopez.blockchain.net.messages.Message;
-import javafx.util.Pair;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 /**
  * Created by ajlopez on 19/11/2018.
  */
 public class SimpleMessageChannel implements MessageChannel {
-    private List<Consumer<Pair<Peer, Message>>> consumers = new ArrayList<>();
-    private List<Pair<Peer, Message>> peerMessages = new ArrayList<>();
+    private List<Consumer<Map.Entry<Peer, Message>>> consumers = new ArrayList<>();
+    private List<Map.Entry<Peer, Message>> peerMessages = new ArrayList<>();
 
     public void postMessage(Peer peer, Message message) {
-        Pair<Peer, Message> peerMessage = new Pair(peer, message);
+        Map.Entry<Peer, Message> peerMessage = new AbstractMap.SimpleImmutableEntry<>(peer, message);
         this.peerMessages.add(peerMessage);
         this.consumers.forEach(consumer -> consumer.accept(peerMessage));
     }
 
-    public void onMessage(Consumer<Pair<Peer, Message>> consumer) {
+    public void onMessage(Consumer<Map.Entry<Peer, Message>> consumer) {
         this.consumers.add(consumer);
     }
 
-    public List<Pair<Peer, Message>> getPeerMessages() {
+    public List<Map.Entry<Peer, Message>> getPeerMessages() {
         return this.peerMessages;
     }
 
@@ -512,4 +512,13 @@ public class ByteUtilsTest {
         Assert.assertEquals(255, ByteUtils.bytesToUnsignedShort(new byte[] { 0x01, 0x00, (byte)0xff, 0x01 }, 1));
         Assert.assertEquals(256 * 256 - 1, ByteUtils.bytesToUnsignedShort(new byte[] { 0x01, (byte)0xff, (byte)0xff, 0x01 }, 1));
     }
+
+    @Test
+    public void compareUnsigned() {
+        Assert.assertEquals(0, ByteUtils.compareUnsigned(new byte[] { 0x01, 0x02 }, new byte[] { 0x01, 0x02 }));
+        Assert.assertTrue(ByteUtils.compareUnsigned(new byte[] { 0x01, 0x02 }, new byte[] { 0x01, (byte)0x80 }) < 0);
+        Assert.assertTrue(ByteUtils.compareUnsigned(new byte[] { (byte)0xff }, new byte[] { 0x01, 0x02 }) > 0);
+        Assert.assertTrue(ByteUtils.compareUnsigned(new byte[] { 0x01 }, new byte[] { 0x01, 0x02 }) < 0);
+        Assert.assertTrue(ByteUtils.compareUnsigned(new byte[0], new byte[] { 0x00 }) < 0);
+    }
 }
@@ -7,6 +7,14 @@ import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * Created by ajlopez on 28/10/2017.
  */
@@ -68,4 +76,98 @@ public class HashUtilsTest {
         // TODO Check with ethereum implementation
         Assert.assertEquals(HashUtils.calculateAddress(rlp), result);
     }
+
+    @Test
+    public void getKeccak256HashOfEmptyInput() {
+        byte[] hash = HashUtils.keccak256(new byte[0]);
+
+        Assert.assertEquals("c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470", HexUtils.bytesToHexString(hash, false));
+    }
+
+    @Test
+    public void getKeccak256HashOfRange() {
+        byte[] bytes = FactoryHelper.createRandomBytes(100);
+        byte[] expected = HashUtils.keccak256(Arrays.copyOfRange(bytes, 10, 52));
+
+        Assert.assertArrayEquals(expected, HashUtils.keccak256(bytes, 10, 42));
+
+        byte[] output = new byte[HashUtils.HASH_BYTES + 8];
+
+        HashUtils.keccak256(bytes, 10, 42, output, 8);
+
+        Assert.assertArrayEquals(expected, Arrays.copyOfRange(output, 8, output.length));
+    }
+
+    @Test
+    public void getKeccak256HashAfterOutOfRangeCalls() {
+        byte[] bytes = FactoryHelper.createRandomBytes(300);
+        byte[] expected = HashUtils.keccak256(bytes);
+
+        try {
+            HashUtils.keccak256(bytes, 100, 300);
+            Assert.fail();
+        }
+        catch (IndexOutOfBoundsException ex) {
+        }
+
+        Assert.assertArrayEquals(expected, HashUtils.keccak256(bytes));
+
+        try {
+            HashUtils.keccak256(bytes, 0, bytes.length, new byte[HashUtils.HASH_BYTES], 8);
+            Assert.fail();
+        }
+        catch (IndexOutOfBoundsException ex) {
+        }
+
+        Assert.assertArrayEquals(expected, HashUtils.keccak256(ByteBuffer.wrap(bytes)));
+        Assert.assertArrayEquals(expected, HashUtils.keccak256(bytes));
+    }
+
+    @Test
+    public void getKeccak256HashOfByteBuffers() {
+        byte[] bytes = FactoryHelper.createRandomBytes(10000);
+        byte[] expected = HashUtils.keccak256(Arrays.copyOfRange(bytes, 100, bytes.length));
+
+        ByteBuffer heapBuffer = ByteBuffer.wrap(bytes);
+        heapBuffer.position(100);
+
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+        directBuffer.put(bytes);
+        directBuffer.position(100);
+
+        Assert.assertArrayEquals(expected, HashUtils.keccak256(heapBuffer));
+        Assert.assertArrayEquals(expected, HashUtils.keccak256(directBuffer.asReadOnlyBuffer()));
+        Assert.assertEquals(100, heapBuffer.position());
+        Assert.assertEquals(100, directBuffer.position());
+    }
+
+    @Test
+    public void getKeccak256HashesFromManyThreads() throws Exception {
+        List<byte[]> inputs = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+
+        for (int k = 0; k < 100; k++) {
+            byte[] bytes = FactoryHelper.createRandomBytes(1 + k * 10);
+            inputs.add(bytes);
+            expected.add(HashUtils.keccak256(bytes));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++)
+            futures.add(executor.submit(() -> {
+                for (int n = 0; n < 100; n++)
+                    for (int k = 0; k < inputs.size(); k++)
+                        if (!Arrays.equals(expected.get(k), HashUtils.keccak256(inputs.get(k))))
+                            return false;
+
+                return true;
+            }));
+
+        for (Future<Boolean> future : futures)
+            Assert.assertTrue(future.get());
+
+        executor.shutdown();
+    }
 }
@@ -0,0 +1,55 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import com.ajlopez.blockchain.core.types.Hash;
+import com.ajlopez.blockchain.utils.HashUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CodeAnalysisCacheTest {
+    @Test
+    public void getCodeAnalysis() {
+        CodeAnalysisCache cache = new CodeAnalysisCache(10);
+        byte[] code = new byte[] { OpCodes.PUSH1, 0x03, OpCodes.JUMP, OpCodes.JUMPDEST };
+        Hash codeHash = HashUtils.calculateHash(code);
+
+        CodeAnalysis codeAnalysis = cache.getCodeAnalysis(codeHash, code);
+
+        Assert.assertNotNull(codeAnalysis);
+        Assert.assertTrue(codeAnalysis.isValidJumpDestination(3));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void getCachedCodeAnalysis() {
+        CodeAnalysisCache cache = new CodeAnalysisCache(10);
+        byte[] code = new byte[] { OpCodes.PUSH1, 0x03, OpCodes.JUMP, OpCodes.JUMPDEST };
+        Hash codeHash = HashUtils.calculateHash(code);
+
+        CodeAnalysis codeAnalysis = cache.getCodeAnalysis(codeHash, code);
+
+        Assert.assertSame(codeAnalysis, cache.getCodeAnalysis(codeHash, code));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedAnalysis() {
+        CodeAnalysisCache cache = new CodeAnalysisCache(2);
+
+        byte[] code1 = new byte[] { OpCodes.PUSH1, 0x01 };
+        byte[] code2 = new byte[] { OpCodes.PUSH1, 0x02 };
+        byte[] code3 = new byte[] { OpCodes.PUSH1, 0x03 };
+
+        CodeAnalysis codeAnalysis1 = cache.getCodeAnalysis(HashUtils.calculateHash(code1), code1);
+        CodeAnalysis codeAnalysis2 = cache.getCodeAnalysis(HashUtils.calculateHash(code2), code2);
+
+        cache.getCodeAnalysis(HashUtils.calculateHash(code1), code1);
+        cache.getCodeAnalysis(HashUtils.calculateHash(code3), code3);
+
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertSame(codeAnalysis1, cache.getCodeAnalysis(HashUtils.calculateHash(code1), code1));
+        Assert.assertNotSame(codeAnalysis2, cache.getCodeAnalysis(HashUtils.calculateHash(code2), code2));
+    }
+}
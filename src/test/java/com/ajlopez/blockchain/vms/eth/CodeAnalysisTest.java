@@ -0,0 +1,81 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CodeAnalysisTest {
+    @Test
+    public void analyzeEmptyCode() {
+        CodeAnalysis codeAnalysis = new CodeAnalysis(new byte[0]);
+
+        Assert.assertEquals(0, codeAnalysis.getLength());
+        Assert.assertEquals(0, codeAnalysis.getBlockCount());
+        Assert.assertFalse(codeAnalysis.isValidJumpDestination(0));
+    }
+
+    @Test
+    public void jumpDestinations() {
+        CodeAnalysis codeAnalysis = new CodeAnalysis(new byte[] { OpCodes.JUMPDEST, OpCodes.PUSH1, 0x00, OpCodes.JUMPDEST });
+
+        Assert.assertTrue(codeAnalysis.isValidJumpDestination(0));
+        Assert.assertFalse(codeAnalysis.isValidJumpDestination(1));
+        Assert.assertFalse(codeAnalysis.isValidJumpDestination(2));
+        Assert.assertTrue(codeAnalysis.isValidJumpDestination(3));
+        Assert.assertFalse(codeAnalysis.isValidJumpDestination(4));
+        Assert.assertFalse(codeAnalysis.isValidJumpDestination(-1));
+    }
+
+    @Test
+    public void jumpDestinationInsidePushDataIsInvalid() {
+        CodeAnalysis codeAnalysis = new CodeAnalysis(new byte[] { OpCodes.PUSH2, OpCodes.JUMPDEST, OpCodes.JUMPDEST, OpCodes.JUMPDEST });
+
+        Assert.assertFalse(codeAnalysis.isValidJumpDestination(1));
+        Assert.assertFalse(codeAnalysis.isValidJumpDestination(2));
+        Assert.assertTrue(codeAnalysis.isValidJumpDestination(3));
+    }
+
+    @Test
+    public void straightLineCodeIsOneBlock() {
+        CodeAnalysis codeAnalysis = new CodeAnalysis(new byte[] { OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x02, OpCodes.ADD, OpCodes.POP });
+
+        Assert.assertEquals(1, codeAnalysis.getBlockCount());
+        Assert.assertTrue(codeAnalysis.isBlockStart(0));
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 3 + FeeSchedule.BASE.getValue(), codeAnalysis.getBlockGasCost(0));
+    }
+
+    @Test
+    public void jumpsAndJumpDestinationsSplitBlocks() {
+        byte[] bytecodes = new byte[] {
+                OpCodes.PUSH1, 0x05, OpCodes.JUMP,
+                OpCodes.PUSH1, 0x01,
+                OpCodes.JUMPDEST, OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x05, OpCodes.JUMPI,
+                OpCodes.STOP
+        };
+
+        CodeAnalysis codeAnalysis = new CodeAnalysis(bytecodes);
+
+        Assert.assertEquals(4, codeAnalysis.getBlockCount());
+
+        Assert.assertTrue(codeAnalysis.isBlockStart(0));
+        Assert.assertTrue(codeAnalysis.isBlockStart(3));
+        Assert.assertTrue(codeAnalysis.isBlockStart(5));
+        Assert.assertTrue(codeAnalysis.isBlockStart(11));
+        Assert.assertFalse(codeAnalysis.isBlockStart(1));
+        Assert.assertFalse(codeAnalysis.isBlockStart(6));
+
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() + FeeSchedule.MID.getValue(), codeAnalysis.getBlockGasCost(0));
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue(), codeAnalysis.getBlockGasCost(3));
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 2 + FeeSchedule.HIGH.getValue(), codeAnalysis.getBlockGasCost(5));
+        Assert.assertEquals(0, codeAnalysis.getBlockGasCost(11));
+    }
+
+    @Test
+    public void gasEndsBlock() {
+        CodeAnalysis codeAnalysis = new CodeAnalysis(new byte[] { OpCodes.PUSH1, 0x01, OpCodes.GAS, OpCodes.ADD });
+
+        Assert.assertEquals(2, codeAnalysis.getBlockCount());
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() + FeeSchedule.BASE.getValue(), codeAnalysis.getBlockGasCost(0));
+        Assert.assertTrue(codeAnalysis.isBlockStart(3));
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue(), codeAnalysis.getBlockGasCost(3));
+    }
+}
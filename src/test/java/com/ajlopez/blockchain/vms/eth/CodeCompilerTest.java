@@ -0,0 +1,268 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import com.ajlopez.blockchain.core.types.Coin;
+import com.ajlopez.blockchain.core.types.DataWord;
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+public class CodeCompilerTest {
+    private static final byte[] LOOP = new byte[] {
+            OpCodes.PUSH1, 0x0a,
+            OpCodes.JUMPDEST, OpCodes.PUSH1, 0x01, OpCodes.SWAP1, OpCodes.SUB, OpCodes.DUP1, OpCodes.PUSH1, 0x02, OpCodes.JUMPI,
+            OpCodes.GAS
+    };
+
+    @Test
+    public void compileEmptyCode() {
+        byte[] bytecodes = new byte[0];
+
+        Assert.assertNull(CodeCompiler.compile(bytecodes, new CodeAnalysis(bytecodes)));
+    }
+
+    @Test
+    public void compileLoop() {
+        Assert.assertNotNull(CodeCompiler.compile(LOOP, new CodeAnalysis(LOOP)));
+    }
+
+    @Test
+    public void supportedOpcodes() {
+        Assert.assertTrue(CodeCompiler.isSupported(new byte[] { OpCodes.ADD }, 0));
+        Assert.assertTrue(CodeCompiler.isSupported(new byte[] { OpCodes.JUMPDEST }, 0));
+        Assert.assertTrue(CodeCompiler.isSupported(new byte[] { OpCodes.PUSH1, 0x01 }, 0));
+        Assert.assertFalse(CodeCompiler.isSupported(new byte[] { OpCodes.PUSH2, 0x01 }, 0));
+        Assert.assertFalse(CodeCompiler.isSupported(new byte[] { OpCodes.CODESIZE }, 0));
+        Assert.assertFalse(CodeCompiler.isSupported(new byte[] { OpCodes.LOG0 }, 0));
+        Assert.assertFalse(CodeCompiler.isSupported(new byte[] { (byte)0xfe }, 0));
+    }
+
+    @Test
+    public void executeLoop() throws IOException {
+        executeAndCompare(LOOP, 100000);
+    }
+
+    @Test
+    public void executeArithmeticAndMemory() throws IOException {
+        executeAndCompare(new byte[] {
+                OpCodes.PUSH32, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32,
+                OpCodes.PUSH8, (byte)0xff, 2, 3, 4, 5, 6, 7, 8,
+                OpCodes.DUP2, OpCodes.DUP2, OpCodes.MUL, OpCodes.SWAP2, OpCodes.DIV, OpCodes.EXP,
+                OpCodes.PUSH2, 0x01, 0x00, OpCodes.MSTORE,
+                OpCodes.PUSH1, 0x03, OpCodes.PUSH1, 0x07, OpCodes.SDIV, OpCodes.ISZERO, OpCodes.NOT,
+                OpCodes.PUSH1, 0x04, OpCodes.SHL, OpCodes.PUSH1, 0x1f, OpCodes.BYTE,
+                OpCodes.PUSH2, 0x01, 0x00, OpCodes.MLOAD, OpCodes.PC, OpCodes.MSIZE,
+                OpCodes.PUSH1, 0x40, OpCodes.PUSH2, 0x00, (byte)0xf0, OpCodes.RETURN
+        }, 100000);
+    }
+
+    @Test
+    public void executeMemoryExpansion() throws IOException {
+        executeAndCompare(new byte[] {
+                OpCodes.PUSH1, 0x2a, OpCodes.PUSH2, 0x10, 0x00, OpCodes.MSTORE8,
+                OpCodes.PUSH2, 0x20, 0x00, OpCodes.MLOAD,
+                OpCodes.PUSH2, 0x10, 0x00, OpCodes.PUSH2, 0x30, 0x00, OpCodes.RETURN
+        }, 100000);
+    }
+
+    @Test
+    public void executeMemoryStoreWithHugeAddress() throws IOException {
+        executeAndCompare(new byte[] { OpCodes.PUSH1, 0x2a, OpCodes.PUSH4, 0x7f, 0x00, 0x00, 0x00, OpCodes.MSTORE }, 100000);
+    }
+
+    @Test
+    public void executeStorage() throws IOException {
+        executeAndCompare(new byte[] {
+                OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x01, OpCodes.SSTORE,
+                OpCodes.PUSH1, 0x01, OpCodes.SLOAD, OpCodes.PUSH1, 0x02, OpCodes.SLOAD
+        }, 100000);
+    }
+
+    @Test
+    public void executeCallData() throws IOException {
+        executeAndCompare(new byte[] {
+                OpCodes.CALLDATASIZE, OpCodes.PUSH1, 0x00, OpCodes.CALLDATALOAD, OpCodes.PUSH1, 0x10, OpCodes.CALLDATALOAD,
+                OpCodes.CALLER, OpCodes.ADDRESS, OpCodes.CALLVALUE
+        }, 100000);
+    }
+
+    @Test
+    public void executeRevert() throws IOException {
+        executeAndCompare(new byte[] { OpCodes.PUSH1, 0x20, OpCodes.PUSH1, 0x00, OpCodes.REVERT, OpCodes.PUSH1, 0x01 }, 100000);
+    }
+
+    @Test
+    public void executeJumpiAtEndOfCode() throws IOException {
+        executeAndCompare(new byte[] { OpCodes.PUSH1, 0x00, OpCodes.PUSH1, 0x00, OpCodes.JUMPI }, 100000);
+    }
+
+    @Test
+    public void executeUnsupportedOpcodeInTheInterpreter() throws IOException {
+        executeAndCompare(new byte[] {
+                OpCodes.PUSH1, 0x01, OpCodes.CODESIZE, OpCodes.ADD,
+                OpCodes.PUSH1, 0x09, OpCodes.JUMP,
+                OpCodes.PUSH1, 0x02,
+                OpCodes.JUMPDEST, OpCodes.CODESIZE, OpCodes.PUSH1, 0x20, OpCodes.PUSH1, 0x00, OpCodes.LOG0
+        }, 100000);
+    }
+
+    @Test
+    public void executeInvalidOpcode() throws IOException {
+        executeAndCompare(new byte[] { OpCodes.PUSH1, 0x01, (byte)0xfe, OpCodes.PUSH1, 0x02 }, 100000);
+    }
+
+    @Test
+    public void executeInvalidJump() throws IOException {
+        executeAndCompare(new byte[] { OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x04, OpCodes.JUMP, OpCodes.JUMPDEST }, 100000);
+    }
+
+    @Test
+    public void executeWithInsufficientGas() throws IOException {
+        executeAndCompare(LOOP, 100);
+    }
+
+    @Test
+    public void compileWhenThresholdIsReached() throws IOException {
+        CodeAnalysis codeAnalysis = new CodeAnalysis(LOOP);
+
+        for (int k = 0; k < 3; k++) {
+            Assert.assertNull(codeAnalysis.getCompiledCode());
+
+            ExecutionResult executionResult = new VirtualMachine(createProgramEnvironment(100000), null, true, 3).execute(LOOP, codeAnalysis);
+
+            Assert.assertTrue(executionResult.wasSuccesful());
+        }
+
+        Assert.assertEquals(3, codeAnalysis.getExecutions());
+        Assert.assertNotNull(codeAnalysis.getCompiledCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compilationRequiresBlockGasAccounting() {
+        new VirtualMachine(null, null, false, 1);
+    }
+
+    @Test
+    public void executeRandomPrograms() throws IOException {
+        Random random = new Random(42);
+
+        for (int k = 0; k < 200; k++) {
+            byte[] bytecodes = createRandomProgram(random);
+
+            ExecutionResult executionResult = new VirtualMachine(createProgramEnvironment(100000), new MapStorage(), true).execute(bytecodes, new CodeAnalysis(bytecodes));
+            long gasUsed = executionResult.getGasUsed();
+
+            executeAndCompare(bytecodes, 100000);
+
+            if (gasUsed == 0)
+                continue;
+
+            executeAndCompare(bytecodes, gasUsed);
+            executeAndCompare(bytecodes, gasUsed - 1);
+
+            // out of gas at any point of the program
+            for (int j = 0; j < 4; j++)
+                executeAndCompare(bytecodes, random.nextInt((int)gasUsed));
+        }
+    }
+
+    // supported and unsupported opcodes, with small pushed values so jumps, memory and storage addresses hit
+    // an opcode is only emitted when the stack, as generated, has its operands
+    private static byte[] createRandomProgram(Random random) {
+        byte[] opcodes = new byte[] {
+                OpCodes.ADD, OpCodes.SUB, OpCodes.MUL, OpCodes.DIV, OpCodes.MOD, OpCodes.EXP,
+                OpCodes.LT, OpCodes.GT, OpCodes.EQ, OpCodes.AND, OpCodes.OR, OpCodes.XOR,
+                OpCodes.BYTE, OpCodes.SHL, OpCodes.SHR, OpCodes.ISZERO, OpCodes.NOT,
+                OpCodes.DUP1, OpCodes.DUP2, OpCodes.DUP3, OpCodes.SWAP1, OpCodes.SWAP2, OpCodes.POP,
+                OpCodes.MSTORE, OpCodes.MSTORE8, OpCodes.MLOAD, OpCodes.MSIZE, OpCodes.SSTORE, OpCodes.SLOAD,
+                OpCodes.ADDRESS, OpCodes.CALLER, OpCodes.CALLVALUE, OpCodes.CODESIZE, OpCodes.GAS, OpCodes.PC, OpCodes.CALLDATALOAD,
+                OpCodes.JUMPDEST, OpCodes.JUMP, OpCodes.JUMPI,
+                OpCodes.STOP, OpCodes.RETURN, OpCodes.REVERT
+        };
+
+        int[] pops = new int[] {
+                2, 2, 2, 2, 2, 2,
+                2, 2, 2, 2, 2, 2,
+                2, 2, 2, 1, 1,
+                1, 2, 3, 2, 3, 1,
+                2, 2, 1, 0, 2, 1,
+                0, 0, 0, 0, 0, 0, 1,
+                0, 1, 2,
+                0, 2, 2
+        };
+
+        int[] pushes = new int[] {
+                1, 1, 1, 1, 1, 1,
+                1, 1, 1, 1, 1, 1,
+                1, 1, 1, 1, 1,
+                2, 3, 4, 2, 3, 0,
+                0, 0, 1, 1, 0, 1,
+                1, 1, 1, 1, 1, 1, 1,
+                0, 0, 0,
+                0, 0, 0
+        };
+
+        int length = 8 + random.nextInt(56);
+        byte[] bytecodes = new byte[length];
+        int depth = 0;
+
+        for (int k = 0; k < length; k++) {
+            int n = random.nextInt(opcodes.length);
+
+            if (k + 1 < length && (pops[n] > depth || random.nextInt(4) == 0)) {
+                bytecodes[k++] = OpCodes.PUSH1;
+                bytecodes[k] = (byte)random.nextInt(length);
+                depth++;
+            }
+            else {
+                bytecodes[k] = opcodes[n];
+                depth += pushes[n] - pops[n];
+            }
+        }
+
+        return bytecodes;
+    }
+
+    private static void executeAndCompare(byte[] bytecodes, long gas) throws IOException {
+        ProgramEnvironment programEnvironment = createProgramEnvironment(gas);
+
+        Storage storage = new MapStorage();
+        VirtualMachine virtualMachine = new VirtualMachine(programEnvironment, storage, true);
+        ExecutionResult executionResult = virtualMachine.execute(bytecodes, new CodeAnalysis(bytecodes));
+
+        CodeAnalysis codeAnalysis = new CodeAnalysis(bytecodes);
+        Storage compiledStorage = new MapStorage();
+        VirtualMachine compiledVirtualMachine = new VirtualMachine(programEnvironment, compiledStorage, true, 1);
+        ExecutionResult compiledExecutionResult = compiledVirtualMachine.execute(bytecodes, codeAnalysis);
+
+        Assert.assertNotNull(codeAnalysis.getCompiledCode());
+
+        Assert.assertEquals(executionResult.wasSuccesful(), compiledExecutionResult.wasSuccesful());
+        Assert.assertEquals(executionResult.getGasUsed(), compiledExecutionResult.getGasUsed());
+        Assert.assertArrayEquals(executionResult.getReturnedData(), compiledExecutionResult.getReturnedData());
+        Assert.assertEquals(executionResult.getLogs() == null, compiledExecutionResult.getLogs() == null);
+
+        if (executionResult.getLogs() != null)
+            Assert.assertEquals(executionResult.getLogs().size(), compiledExecutionResult.getLogs().size());
+
+        if (executionResult.getException() == null)
+            Assert.assertNull(compiledExecutionResult.getException());
+        else
+            Assert.assertEquals(executionResult.getException().getMessage(), compiledExecutionResult.getException().getMessage());
+
+        Assert.assertEquals(virtualMachine.getStack(), compiledVirtualMachine.getStack());
+        Assert.assertArrayEquals(virtualMachine.getMemory().getBytes(0, virtualMachine.getMemory().size()), compiledVirtualMachine.getMemory().getBytes(0, compiledVirtualMachine.getMemory().size()));
+
+        for (int k = 0; k < 256; k++)
+            Assert.assertEquals(storage.getValue(DataWord.fromUnsignedInteger(k)), compiledStorage.getValue(DataWord.fromUnsignedInteger(k)));
+    }
+
+    private static ProgramEnvironment createProgramEnvironment(long gas) {
+        byte[] data = FactoryHelper.createRandomBytes(40);
+        MessageData messageData = new MessageData(FactoryHelper.createRandomAddress(), null, FactoryHelper.createRandomAddress(), Coin.TEN, gas, Coin.ZERO, data, false);
+
+        return new ProgramEnvironment(messageData, null, null);
+    }
+}
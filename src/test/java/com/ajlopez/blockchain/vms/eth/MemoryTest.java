@@ -4,12 +4,17 @@ import com.ajlopez.blockchain.core.types.DataWord;
 import com.ajlopez.blockchain.test.utils.FactoryHelper;
 import com.ajlopez.blockchain.utils.ByteUtils;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 /**
  * Created by ajlopez on 11/12/2018.
  */
 public class MemoryTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
     @Test
     public void initialSizeIsZero() {
         Memory memory = new Memory();
@@ -155,4 +160,72 @@ public class MemoryTest {
         Assert.assertEquals(data[41], bytes[0]);
         Assert.assertTrue(ByteUtils.areZero(bytes, 1, bytes.length - 1));
     }
+
+    @Test
+    public void readBytesExpandingMemory() {
+        Memory memory = new Memory();
+        byte[] data = FactoryHelper.createRandomBytes(42);
+        memory.setBytes(0, data, 0, data.length);
+
+        byte[] bytes = memory.readBytes(41, 42);
+
+        Assert.assertEquals(41 + 42, memory.size());
+        Assert.assertEquals(42, bytes.length);
+        Assert.assertEquals(data[41], bytes[0]);
+        Assert.assertTrue(ByteUtils.areZero(bytes, 1, bytes.length - 1));
+    }
+
+    @Test
+    public void setAndGetWord() {
+        Memory memory = new Memory();
+        Word256 word = Word256.fromDataWord(FactoryHelper.createRandomDataWord());
+        int address = Memory.CHUNK_SIZE - 10;
+
+        memory.setWord(address, word);
+
+        Assert.assertEquals(address + Word256.WORD_BYTES, memory.size());
+        Assert.assertEquals(word, memory.getWord(address, new Word256()));
+        Assert.assertEquals(word.toDataWord(), memory.getValue(address));
+    }
+
+    @Test
+    public void getWordExpandsMemory() {
+        Memory memory = new Memory();
+
+        Assert.assertTrue(memory.getWord(100, Word256.fromUnsignedLong(42)).isZero());
+        Assert.assertEquals(100 + Word256.WORD_BYTES, memory.size());
+    }
+
+    @Test
+    public void expansionGasCost() {
+        Memory memory = new Memory();
+
+        Assert.assertEquals(0, memory.getExpansionGasCost(Word256.fromUnsignedLong(1000), 0));
+        Assert.assertEquals(FeeSchedule.MEMORY.getValue(), memory.getExpansionGasCost(new Word256(), 1));
+        Assert.assertEquals(FeeSchedule.MEMORY.getValue() * 2, memory.getExpansionGasCost(Word256.fromUnsignedLong(1), Word256.fromUnsignedLong(32)));
+        Assert.assertEquals(FeeSchedule.MEMORY.getValue() * 1024 + 1024 * 1024 / Memory.QUADRATIC_DENOMINATOR, memory.getExpansionGasCost(new Word256(), 1024 * Word256.WORD_BYTES));
+
+        memory.setByte(40, (byte)1);
+
+        Assert.assertEquals(0, memory.getExpansionGasCost(new Word256(), 64));
+        Assert.assertEquals(FeeSchedule.MEMORY.getValue(), memory.getExpansionGasCost(Word256.fromUnsignedLong(64), 1));
+        Assert.assertEquals(FeeSchedule.MEMORY.getValue() * 1022 + 1024 * 1024 / Memory.QUADRATIC_DENOMINATOR - 2 * 2 / Memory.QUADRATIC_DENOMINATOR, memory.getExpansionGasCost(new Word256(), 1024 * Word256.WORD_BYTES));
+    }
+
+    @Test
+    public void expansionGasCostOfHugeRange() {
+        Memory memory = new Memory();
+
+        Assert.assertEquals(Long.MAX_VALUE, memory.getExpansionGasCost(Word256.fromUnsignedLong(1L << 32), 1));
+        Assert.assertEquals(Long.MAX_VALUE, memory.getExpansionGasCost(new Word256(), Word256.fromUnsignedLong(1L << 32)));
+        Assert.assertEquals(0, memory.getExpansionGasCost(Word256.fromUnsignedLong(1L << 32), new Word256()));
+    }
+
+    @Test
+    public void invalidRange() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Invalid memory range");
+
+        new Memory().setByte(-1, (byte)1);
+    }
 }
@@ -0,0 +1,126 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class OperandStackTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void newStackIsEmpty() {
+        OperandStack stack = new OperandStack();
+
+        Assert.assertTrue(stack.isEmpty());
+        Assert.assertEquals(0, stack.size());
+    }
+
+    @Test
+    public void pushAndPopWords() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+
+        stack.push(Word256.fromUnsignedLong(1));
+        stack.push().setUnsignedLong(2);
+
+        Assert.assertFalse(stack.isEmpty());
+        Assert.assertEquals(2, stack.size());
+
+        Assert.assertEquals(Word256.fromUnsignedLong(2), stack.pop());
+        Assert.assertEquals(Word256.fromUnsignedLong(1), stack.pop());
+        Assert.assertTrue(stack.isEmpty());
+    }
+
+    @Test
+    public void pushCopiesTheWord() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+        Word256 word = Word256.fromUnsignedLong(42);
+
+        stack.push(word);
+        word.setUnsignedLong(1);
+
+        Assert.assertEquals(Word256.fromUnsignedLong(42), stack.pop());
+    }
+
+    @Test
+    public void dupWords() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+
+        stack.push(Word256.fromUnsignedLong(1));
+        stack.push(Word256.fromUnsignedLong(2));
+
+        stack.dup(2);
+        stack.dup(1);
+
+        Assert.assertEquals(4, stack.size());
+        Assert.assertEquals(Word256.fromUnsignedLong(1), stack.pop());
+        Assert.assertEquals(Word256.fromUnsignedLong(1), stack.pop());
+        Assert.assertEquals(Word256.fromUnsignedLong(2), stack.pop());
+        Assert.assertEquals(Word256.fromUnsignedLong(1), stack.pop());
+    }
+
+    @Test
+    public void swapWords() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+
+        stack.push(Word256.fromUnsignedLong(1));
+        stack.push(Word256.fromUnsignedLong(2));
+        stack.push(Word256.fromUnsignedLong(3));
+
+        stack.swap(2);
+
+        Assert.assertEquals(Word256.fromUnsignedLong(3), stack.get(0));
+        Assert.assertEquals(Word256.fromUnsignedLong(2), stack.get(1));
+        Assert.assertEquals(Word256.fromUnsignedLong(1), stack.get(2));
+    }
+
+    @Test
+    public void popEmptyStack() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+
+        exception.expect(VirtualMachineException.class);
+        exception.expectMessage("Stack underflow");
+
+        stack.pop();
+    }
+
+    @Test
+    public void dupWithoutEnoughWords() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+
+        stack.push(Word256.fromUnsignedLong(1));
+
+        exception.expect(VirtualMachineException.class);
+        exception.expectMessage("Stack underflow");
+
+        stack.dup(2);
+    }
+
+    @Test
+    public void swapWithoutEnoughWords() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+
+        stack.push(Word256.fromUnsignedLong(1));
+
+        exception.expect(VirtualMachineException.class);
+        exception.expectMessage("Stack underflow");
+
+        stack.swap(1);
+    }
+
+    @Test
+    public void pushFullStack() throws VirtualMachineException {
+        OperandStack stack = new OperandStack();
+
+        for (int k = 0; k < OperandStack.MAX_SIZE; k++)
+            stack.push().setUnsignedLong(k);
+
+        Assert.assertEquals(OperandStack.MAX_SIZE, stack.size());
+
+        exception.expect(VirtualMachineException.class);
+        exception.expectMessage("Stack overflow");
+
+        stack.push();
+    }
+}
@@ -5,6 +5,7 @@ import com.ajlopez.blockchain.core.types.Hash;
 import com.ajlopez.blockchain.execution.AccountState;
 import com.ajlopez.blockchain.state.Trie;
 import com.ajlopez.blockchain.store.HashMapStore;
+import com.ajlopez.blockchain.store.KeyValueStore;
 import com.ajlopez.blockchain.store.TrieStore;
 import org.junit.Assert;
 import org.junit.Test;
@@ -101,4 +102,63 @@ public class TrieStorageTest {
         Assert.assertNotNull(result2);
         Assert.assertEquals(value, result2);
     }
+
+    @Test
+    public void readSlotsAreWarm() throws IOException {
+        TrieStorage storage = new TrieStorage(new Trie());
+        DataWord address = DataWord.fromHexadecimalString("0x010203");
+
+        Assert.assertFalse(storage.isWarm(address));
+        Assert.assertFalse(storage.hasValue(address));
+        Assert.assertTrue(storage.isWarm(address));
+        Assert.assertFalse(storage.hasChanges());
+
+        storage.setValue(DataWord.ONE, DataWord.ONE);
+
+        Assert.assertTrue(storage.isWarm(DataWord.ONE));
+        Assert.assertTrue(storage.hasValue(DataWord.ONE));
+        Assert.assertTrue(storage.hasChanges());
+    }
+
+    @Test
+    public void changesArePutIntoTheTrieInOneBatch() throws IOException {
+        Trie trie = new Trie();
+        TrieStorage storage = new TrieStorage(new Trie());
+
+        for (int k = 0; k < 100; k++) {
+            DataWord address = DataWord.fromUnsignedInteger(k);
+            DataWord value = DataWord.fromUnsignedInteger(k * 7 + 1);
+
+            storage.setValue(address, DataWord.fromUnsignedInteger(k + 1000));
+            storage.setValue(address, value);
+
+            trie = trie.put(address.getBytes(), value.toNormalizedBytes());
+        }
+
+        storage.setValue(DataWord.fromUnsignedInteger(200), DataWord.ONE);
+        storage.setValue(DataWord.fromUnsignedInteger(200), DataWord.ZERO);
+
+        Assert.assertTrue(storage.hasChanges());
+        Assert.assertEquals(trie.getHash(), storage.getRootHash());
+        Assert.assertFalse(storage.hasChanges());
+        Assert.assertEquals(DataWord.fromUnsignedInteger(15), storage.getValue(DataWord.fromUnsignedInteger(2)));
+    }
+
+    @Test
+    public void changesAreSavedOnCommit() throws IOException {
+        KeyValueStore keyValueStore = new HashMapStore();
+        TrieStore store = new TrieStore(keyValueStore);
+        TrieStorage storage = new TrieStorage(new Trie(store));
+
+        storage.setValue(DataWord.ONE, DataWord.fromUnsignedInteger(42));
+
+        Hash rootHash = storage.getRootHash();
+
+        Assert.assertNull(keyValueStore.getValue(rootHash.getBytes()));
+
+        storage.commit();
+
+        Assert.assertNotNull(keyValueStore.getValue(rootHash.getBytes()));
+        Assert.assertEquals(DataWord.fromUnsignedInteger(42), new TrieStorage(store.retrieve(rootHash)).getValue(DataWord.ONE));
+    }
 }
@@ -17,6 +17,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 
@@ -477,7 +478,7 @@ public class VirtualMachineTest {
 
         ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x01, OpCodes.MSTORE });
 
-        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 3, executionResult.getGasUsed());
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 3 + FeeSchedule.MEMORY.getValue() * 2, executionResult.getGasUsed());
 
         Stack<DataWord> stack = virtualMachine.getStack();
 
@@ -489,13 +490,36 @@ public class VirtualMachineTest {
         Assert.assertEquals(DataWord.fromUnsignedInteger(42), memory.getValue(1));
     }
 
+    @Test
+    public void executeMemoryStoreWithQuadraticExpansionGas() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x2a, OpCodes.PUSH2, 0x7f, (byte)0xe0, OpCodes.MSTORE, OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x00, OpCodes.MSTORE });
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+        Assert.assertEquals(6 * FeeSchedule.VERYLOW.getValue() + 1024 * FeeSchedule.MEMORY.getValue() + 1024 * 1024 / Memory.QUADRATIC_DENOMINATOR, executionResult.getGasUsed());
+        Assert.assertEquals(1024 * DataWord.DATAWORD_BYTES, virtualMachine.getMemory().size());
+    }
+
+    @Test
+    public void executeMemoryStoreWithHugeAddressRaiseException() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x2a, OpCodes.PUSH4, 0x7f, 0x00, 0x00, 0x00, OpCodes.MSTORE });
+
+        Assert.assertFalse(executionResult.wasSuccesful());
+        Assert.assertEquals(100000, executionResult.getGasUsed());
+        Assert.assertEquals("Insufficient gas", executionResult.getException().getMessage());
+        Assert.assertEquals(0, virtualMachine.getMemory().size());
+    }
+
     @Test
     public void executeMemoryStoreAndMemoryLoad() throws IOException {
         VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
 
         ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x01, OpCodes.MSTORE, OpCodes.PUSH1, 0x01, OpCodes.MLOAD });
 
-        Assert.assertEquals(5 * FeeSchedule.VERYLOW.getValue(), executionResult.getGasUsed());
+        Assert.assertEquals(5 * FeeSchedule.VERYLOW.getValue() + 2 * FeeSchedule.MEMORY.getValue(), executionResult.getGasUsed());
 
         Stack<DataWord> stack = virtualMachine.getStack();
 
@@ -515,7 +539,7 @@ public class VirtualMachineTest {
 
         ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x01, OpCodes.MSTORE, OpCodes.MSIZE });
 
-        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 3 + FeeSchedule.BASE.getValue(), executionResult.getGasUsed());
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 3 + FeeSchedule.BASE.getValue() + FeeSchedule.MEMORY.getValue() * 2, executionResult.getGasUsed());
 
         Stack<DataWord> stack = virtualMachine.getStack();
 
@@ -536,7 +560,7 @@ public class VirtualMachineTest {
 
         ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x01, OpCodes.MSTORE8 });
 
-        Assert.assertEquals(3 * FeeSchedule.VERYLOW.getValue(), executionResult.getGasUsed());
+        Assert.assertEquals(3 * FeeSchedule.VERYLOW.getValue() + FeeSchedule.MEMORY.getValue(), executionResult.getGasUsed());
 
         Stack<DataWord> stack = virtualMachine.getStack();
 
@@ -574,6 +598,38 @@ public class VirtualMachineTest {
         Assert.assertTrue(logs.get(0).getTopics().isEmpty());
     }
 
+    @Test
+    public void executeLog0ExpandingMemory() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        // the log expands the memory, so the store in the same range does not pay the expansion again
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x20, OpCodes.PUSH1, 0x00, OpCodes.LOG0, OpCodes.MSIZE, OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x00, OpCodes.MSTORE });
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 5 + FeeSchedule.BASE.getValue() + FeeSchedule.MEMORY.getValue(), executionResult.getGasUsed());
+
+        Stack<DataWord> stack = virtualMachine.getStack();
+
+        Assert.assertEquals(1, stack.size());
+        Assert.assertEquals(DataWord.fromUnsignedInteger(32), stack.pop());
+
+        Assert.assertEquals(32, virtualMachine.getMemory().size());
+        Assert.assertEquals(1, executionResult.getLogs().size());
+        Assert.assertTrue(ByteUtils.areZero(executionResult.getLogs().get(0).getData()));
+    }
+
+    @Test
+    public void executeReturnExpandingMemory() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x20, OpCodes.PUSH1, 0x00, OpCodes.RETURN });
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 2 + FeeSchedule.MEMORY.getValue(), executionResult.getGasUsed());
+        Assert.assertEquals(32, executionResult.getReturnedData().length);
+        Assert.assertEquals(32, virtualMachine.getMemory().size());
+    }
+
     @Test
     public void executeLog1() throws IOException {
         VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
@@ -973,6 +1029,26 @@ public class VirtualMachineTest {
         Assert.assertEquals(DataWord.ZERO, stack.pop());
     }
 
+    @Test
+    public void executeCallDataLoadWithHugeOffset() throws IOException {
+        byte[] data = FactoryHelper.createRandomBytes(42);
+        MessageData messageData = new MessageData(null, null, null, Coin.ONE, 100000, null, data, false);
+
+        ProgramEnvironment programEnvironment = new ProgramEnvironment(messageData, null, null);
+
+        VirtualMachine virtualMachine = new VirtualMachine(programEnvironment, null);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x00, OpCodes.NOT, OpCodes.CALLDATALOAD });
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+
+        Stack<DataWord> stack = virtualMachine.getStack();
+
+        Assert.assertNotNull(stack);
+        Assert.assertEquals(1, stack.size());
+        Assert.assertEquals(DataWord.ZERO, stack.pop());
+    }
+
     @Test
     public void executeCallDataCopy() throws IOException {
         byte[] data = FactoryHelper.createRandomBytes(42);
@@ -1071,6 +1147,26 @@ public class VirtualMachineTest {
         Assert.assertArrayEquals(expected, memory.getBytes(4, 16));
     }
 
+    @Test
+    public void executeCallDataCopyWithHugeOffset() throws IOException {
+        byte[] data = new byte[42];
+        Arrays.fill(data, (byte)0x01);
+        MessageData messageData = new MessageData(null, null, null, Coin.ONE, 100000, null, data, false);
+
+        VirtualMachine virtualMachine = new VirtualMachine(new ProgramEnvironment(messageData, null, null), null);
+
+        // the source offset is 2^32 + 2, it does not wrap to 2
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] {
+                OpCodes.PUSH1, 0x20,
+                OpCodes.PUSH5, 0x01, 0x00, 0x00, 0x00, 0x02,
+                OpCodes.PUSH1, 0x00,
+                OpCodes.CALLDATACOPY });
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+        Assert.assertEquals(32, virtualMachine.getMemory().size());
+        Assert.assertArrayEquals(new byte[32], virtualMachine.getMemory().getBytes(0, 32));
+    }
+
     @Test
     public void executeCodeCopy() throws IOException {
         byte[] code = FactoryHelper.createRandomBytes(42);
@@ -1141,7 +1237,7 @@ public class VirtualMachineTest {
         Assert.assertEquals(expected.length, executionResult.getReturnedData().length);
         Assert.assertArrayEquals(expected, executionResult.getReturnedData());
 
-        Assert.assertEquals(5 * FeeSchedule.VERYLOW.getValue(), executionResult.getGasUsed());
+        Assert.assertEquals(5 * FeeSchedule.VERYLOW.getValue() + 2 * FeeSchedule.MEMORY.getValue(), executionResult.getGasUsed());
 
         Stack<DataWord> stack = virtualMachine.getStack();
 
@@ -1182,7 +1278,7 @@ public class VirtualMachineTest {
         Assert.assertEquals(expected.length, executionResult.getReturnedData().length);
         Assert.assertArrayEquals(expected, executionResult.getReturnedData());
 
-        Assert.assertEquals(5 * FeeSchedule.VERYLOW.getValue(), executionResult.getGasUsed());
+        Assert.assertEquals(5 * FeeSchedule.VERYLOW.getValue() + 2 * FeeSchedule.MEMORY.getValue(), executionResult.getGasUsed());
 
         Stack<DataWord> stack = virtualMachine.getStack();
 
@@ -1231,6 +1327,26 @@ public class VirtualMachineTest {
         Assert.assertArrayEquals(expected, memory.getBytes(4, 16));
     }
 
+    @Test
+    public void executeCodeCopyWithHugeOffset() throws IOException {
+        byte[] code = new byte[42];
+        Arrays.fill(code, OpCodes.JUMPDEST);
+        byte[] copy = new byte[] {
+                OpCodes.PUSH1, 0x20,
+                OpCodes.PUSH5, 0x01, 0x00, 0x00, 0x00, 0x02,
+                OpCodes.PUSH1, 0x00,
+                OpCodes.CODECOPY, OpCodes.STOP };
+        System.arraycopy(copy, 0, code, 0, copy.length);
+
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        ExecutionResult executionResult = virtualMachine.execute(code);
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+        Assert.assertEquals(32, virtualMachine.getMemory().size());
+        Assert.assertArrayEquals(new byte[32], virtualMachine.getMemory().getBytes(0, 32));
+    }
+
     @Test
     public void executeCodeCopyBeyondCode() throws IOException {
         byte[] code = FactoryHelper.createRandomBytes(42);
@@ -1388,6 +1504,34 @@ public class VirtualMachineTest {
     }
 
 
+    @Test
+    public void executeExtCodeCopyOperationWithHugeOffset() throws IOException {
+        CodeStore codeStore = new CodeStore(new HashMapStore());
+        Hash codeHash = FactoryHelper.createRandomHash();
+        byte[] code = new byte[100];
+        Arrays.fill(code, (byte)0x01);
+        codeStore.putCode(codeHash, code);
+        AccountStore accountStore = new AccountStore(new Trie());
+        Address address = FactoryHelper.createRandomAddress();
+        accountStore.putAccount(address, new Account(Coin.ZERO, 0, codeHash, null));
+
+        TopExecutionContext executionContext = new TopExecutionContext(accountStore, null, codeStore);
+
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(executionContext), null);
+
+        byte[] bytecode = new byte[10 + 1 + 20 + 2];
+        System.arraycopy(new byte[] { OpCodes.PUSH1, 0x20, OpCodes.PUSH5, 0x01, 0x00, 0x00, 0x00, 0x02, OpCodes.PUSH1, 0x00, OpCodes.PUSH20 }, 0, bytecode, 0, 11);
+        System.arraycopy(address.getBytes(), 0, bytecode, 11, Address.ADDRESS_BYTES);
+        bytecode[31] = OpCodes.EXTCODECOPY;
+        bytecode[32] = OpCodes.STOP;
+
+        ExecutionResult executionResult = virtualMachine.execute(bytecode);
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+        Assert.assertEquals(32, virtualMachine.getMemory().size());
+        Assert.assertArrayEquals(new byte[32], virtualMachine.getMemory().getBytes(0, 32));
+    }
+
     @Test
     public void executeExtCodeCopyOperationForAccountWithCode() throws IOException {
         CodeStore codeStore = new CodeStore(new HashMapStore());
@@ -1492,6 +1636,35 @@ public class VirtualMachineTest {
         Assert.assertEquals("Invalid jump", executionResult.getException().getMessage());
     }
 
+    @Test
+    public void executeJumpIntoPushDataRaiseException() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x04, OpCodes.JUMP, OpCodes.PUSH1, OpCodes.JUMPDEST, OpCodes.PUSH1, 0x2a });
+
+        Assert.assertNotNull(executionResult);
+        Assert.assertFalse(executionResult.wasSuccesful());
+        Assert.assertNotNull(executionResult.getException());
+        Assert.assertTrue(executionResult.getException() instanceof  VirtualMachineException);
+        Assert.assertEquals("Invalid jump", executionResult.getException().getMessage());
+    }
+
+    @Test
+    public void executeJumpWithCodeAnalysis() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+        byte[] bytecodes = new byte[] { OpCodes.PUSH1, 0x04, OpCodes.JUMP, OpCodes.STOP, OpCodes.JUMPDEST, OpCodes.PUSH1, 0x2a };
+
+        ExecutionResult executionResult = virtualMachine.execute(bytecodes, new CodeAnalysis(bytecodes));
+
+        Assert.assertNotNull(executionResult);
+        Assert.assertTrue(executionResult.wasSuccesful());
+
+        Stack<DataWord> stack = virtualMachine.getStack();
+
+        Assert.assertEquals(1, stack.size());
+        Assert.assertEquals(DataWord.fromUnsignedInteger(42), stack.pop());
+    }
+
     @Test
     public void executeJumpWithNot32BitsIntegerTargetRaiseException() throws IOException {
         VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
@@ -1586,6 +1759,51 @@ public class VirtualMachineTest {
         Assert.assertEquals("Invalid opcode", executionResult.getException().getMessage());
     }
 
+    @Test
+    public void executeWithStackUnderflowRaiseException() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x01, OpCodes.ADD });
+
+        Assert.assertNotNull(executionResult);
+        Assert.assertFalse(executionResult.wasSuccesful());
+        Assert.assertEquals(100000, executionResult.getGasUsed());
+        Assert.assertNotNull(executionResult.getException());
+        Assert.assertTrue(executionResult.getException() instanceof  VirtualMachineException);
+        Assert.assertEquals("Stack underflow", executionResult.getException().getMessage());
+    }
+
+    @Test
+    public void executeSwapWithStackUnderflowRaiseException() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x02, OpCodes.SWAP2 });
+
+        Assert.assertNotNull(executionResult);
+        Assert.assertFalse(executionResult.wasSuccesful());
+        Assert.assertEquals("Stack underflow", executionResult.getException().getMessage());
+    }
+
+    @Test
+    public void executeWithStackOverflowRaiseException() throws IOException {
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+
+        byte[] bytecodes = new byte[2 + OperandStack.MAX_SIZE];
+        bytecodes[0] = OpCodes.PUSH1;
+        bytecodes[1] = 0x01;
+
+        for (int k = 2; k < bytecodes.length; k++)
+            bytecodes[k] = OpCodes.DUP1;
+
+        ExecutionResult executionResult = virtualMachine.execute(bytecodes);
+
+        Assert.assertNotNull(executionResult);
+        Assert.assertFalse(executionResult.wasSuccesful());
+        Assert.assertNotNull(executionResult.getException());
+        Assert.assertEquals("Stack overflow", executionResult.getException().getMessage());
+        Assert.assertEquals(OperandStack.MAX_SIZE, virtualMachine.getStack().size());
+    }
+
     @Test
     public void executeWithInsufficientGasRaiseException() throws IOException {
         MessageData messageData = new MessageData(null, null, null, Coin.ZERO, 0, Coin.ZERO, null, false);
@@ -1600,6 +1818,80 @@ public class VirtualMachineTest {
         Assert.assertEquals("Insufficient gas", executionResult.getException().getMessage());
     }
 
+    @Test
+    public void executeLoopWithBlockGasAccounting() throws IOException {
+        // counter = 10; do { counter-- } while (counter != 0)
+        byte[] bytecodes = new byte[] {
+                OpCodes.PUSH1, 0x0a,
+                OpCodes.JUMPDEST, OpCodes.PUSH1, 0x01, OpCodes.SWAP1, OpCodes.SUB, OpCodes.DUP1, OpCodes.PUSH1, 0x02, OpCodes.JUMPI,
+                OpCodes.GAS
+        };
+
+        VirtualMachine virtualMachine = new VirtualMachine(createProgramEnvironment(), null);
+        VirtualMachine blockVirtualMachine = new VirtualMachine(createProgramEnvironment(), null, true);
+
+        ExecutionResult executionResult = virtualMachine.execute(bytecodes);
+        ExecutionResult blockExecutionResult = blockVirtualMachine.execute(bytecodes, new CodeAnalysis(bytecodes));
+
+        Assert.assertTrue(executionResult.wasSuccesful());
+        Assert.assertTrue(blockExecutionResult.wasSuccesful());
+        Assert.assertEquals(executionResult.getGasUsed(), blockExecutionResult.getGasUsed());
+        Assert.assertEquals(virtualMachine.getStack(), blockVirtualMachine.getStack());
+        Assert.assertEquals(2, blockVirtualMachine.getStack().size());
+    }
+
+    @Test
+    public void executeWithInsufficientGasForBlockRaiseException() throws IOException {
+        MessageData messageData = new MessageData(null, null, null, Coin.ZERO, FeeSchedule.VERYLOW.getValue() * 2, Coin.ZERO, null, false);
+        VirtualMachine virtualMachine = new VirtualMachine(new ProgramEnvironment(messageData, null, null), null, true);
+
+        ExecutionResult executionResult = virtualMachine.execute(new byte[] { OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x02, OpCodes.ADD });
+
+        Assert.assertNotNull(executionResult);
+        Assert.assertFalse(executionResult.wasSuccesful());
+        Assert.assertEquals(FeeSchedule.VERYLOW.getValue() * 2, executionResult.getGasUsed());
+        Assert.assertNotNull(executionResult.getException());
+        Assert.assertTrue(executionResult.getException() instanceof  VirtualMachineException);
+        Assert.assertEquals("Insufficient gas", executionResult.getException().getMessage());
+        Assert.assertTrue(virtualMachine.getStack().isEmpty());
+    }
+
+    @Test
+    public void executeProgramsWithAndWithoutBlockGasAccounting() throws IOException {
+        // loop
+        executeWithAndWithoutBlockGasAccounting(new byte[] {
+                OpCodes.PUSH1, 0x0a,
+                OpCodes.JUMPDEST, OpCodes.PUSH1, 0x01, OpCodes.SWAP1, OpCodes.SUB, OpCodes.DUP1, OpCodes.PUSH1, 0x02, OpCodes.JUMPI,
+                OpCodes.GAS
+        });
+
+        // memory expansion in the middle of a block
+        executeWithAndWithoutBlockGasAccounting(new byte[] {
+                OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x00, OpCodes.MSTORE,
+                OpCodes.PUSH1, 0x2b, OpCodes.PUSH2, 0x01, 0x00, OpCodes.MSTORE,
+                OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x02, OpCodes.ADD, OpCodes.MSIZE
+        });
+
+        // storage in the middle of a block
+        executeWithAndWithoutBlockGasAccounting(new byte[] {
+                OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x00, OpCodes.SSTORE,
+                OpCodes.PUSH1, 0x02, OpCodes.PUSH1, 0x01, OpCodes.SSTORE,
+                OpCodes.PUSH1, 0x00, OpCodes.SLOAD
+        });
+
+        // revert after some work
+        executeWithAndWithoutBlockGasAccounting(new byte[] {
+                OpCodes.PUSH1, 0x2a, OpCodes.PUSH1, 0x00, OpCodes.MSTORE,
+                OpCodes.PUSH1, 0x20, OpCodes.PUSH1, 0x00, OpCodes.REVERT,
+                OpCodes.PUSH1, 0x01
+        });
+
+        // invalid jump at the end of a block
+        executeWithAndWithoutBlockGasAccounting(new byte[] {
+                OpCodes.PUSH1, 0x01, OpCodes.PUSH1, 0x02, OpCodes.ADD, OpCodes.PUSH1, 0x03, OpCodes.JUMP
+        });
+    }
+
     private static void executeUnaryOp(byte opcode, int expected, int operand, long expectedGasUsed) throws IOException {
         byte[] boperand = ByteUtils.normalizedBytes(ByteUtils.unsignedIntegerToBytes(operand));
 
@@ -1752,10 +2044,52 @@ public class VirtualMachineTest {
         Assert.assertEquals(DataWord.fromHexadecimalString(expected), stack.pop());
     }
 
+    // runs the code with every gas limit up to the full gas used, so the out of gas points are reached in each block
+    private static void executeWithAndWithoutBlockGasAccounting(byte[] bytecodes) throws IOException {
+        long fullGas = new VirtualMachine(createProgramEnvironment(100000), new MapStorage()).execute(bytecodes).getGasUsed();
+
+        for (long gas = 0; gas <= fullGas + 1; gas++) {
+            ProgramEnvironment programEnvironment = createProgramEnvironment(gas);
+
+            Storage storage = new MapStorage();
+            VirtualMachine virtualMachine = new VirtualMachine(programEnvironment, storage);
+            ExecutionResult executionResult = virtualMachine.execute(bytecodes);
+
+            Storage blockStorage = new MapStorage();
+            VirtualMachine blockVirtualMachine = new VirtualMachine(programEnvironment, blockStorage, true);
+            ExecutionResult blockExecutionResult = blockVirtualMachine.execute(bytecodes, new CodeAnalysis(bytecodes));
+
+            Assert.assertEquals(executionResult.wasSuccesful(), blockExecutionResult.wasSuccesful());
+            Assert.assertEquals(executionResult.getGasUsed(), blockExecutionResult.getGasUsed());
+            Assert.assertArrayEquals(executionResult.getReturnedData(), blockExecutionResult.getReturnedData());
+
+            if (executionResult.getException() == null)
+                Assert.assertNull(blockExecutionResult.getException());
+            else
+                Assert.assertEquals(executionResult.getException().getMessage(), blockExecutionResult.getException().getMessage());
+
+            // on failure the state is discarded, so it only has to match on success
+            if (!executionResult.wasSuccesful())
+                continue;
+
+            Assert.assertEquals(virtualMachine.getStack(), blockVirtualMachine.getStack());
+            Assert.assertArrayEquals(virtualMachine.getMemory().getBytes(0, virtualMachine.getMemory().size()), blockVirtualMachine.getMemory().getBytes(0, blockVirtualMachine.getMemory().size()));
+
+            for (int k = 0; k < 2; k++)
+                Assert.assertEquals(storage.getValue(DataWord.fromUnsignedInteger(k)), blockStorage.getValue(DataWord.fromUnsignedInteger(k)));
+        }
+    }
+
     private static ProgramEnvironment createProgramEnvironment() {
         return createProgramEnvironment((CodeProvider)null);
     }
 
+    private static ProgramEnvironment createProgramEnvironment(long gas) {
+        MessageData messageData = new MessageData(FactoryHelper.createRandomAddress(), null, null, Coin.ZERO, gas, Coin.ZERO, null, false);
+
+        return new ProgramEnvironment(messageData, null, null);
+    }
+
     private static ProgramEnvironment createProgramEnvironment(CodeProvider codeProvider) {
         MessageData messageData = new MessageData(FactoryHelper.createRandomAddress(), null, null, Coin.ZERO, 100000, Coin.ZERO, null, false);
 
@@ -0,0 +1,239 @@
+package com.ajlopez.blockchain.vms.eth;
+
+import com.ajlopez.blockchain.core.types.Address;
+import com.ajlopez.blockchain.core.types.DataWord;
+import com.ajlopez.blockchain.test.utils.FactoryHelper;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Random;
+
+public class Word256Test {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void newWordIsZero() {
+        Word256 word = new Word256();
+
+        Assert.assertTrue(word.isZero());
+        Assert.assertEquals(DataWord.ZERO, word.toDataWord());
+    }
+
+    @Test
+    public void fromAndToDataWord() {
+        DataWord dataWord = FactoryHelper.createRandomDataWord();
+
+        Word256 word = Word256.fromDataWord(dataWord);
+
+        Assert.assertEquals(dataWord, word.toDataWord());
+        Assert.assertEquals(dataWord.toString(), word.toString());
+    }
+
+    @Test
+    public void fromAndToAddress() {
+        Address address = FactoryHelper.createRandomAddress();
+
+        Word256 word = Word256.fromAddress(address);
+
+        Assert.assertEquals(DataWord.fromAddress(address), word.toDataWord());
+        Assert.assertEquals(address, word.toAddress());
+    }
+
+    @Test
+    public void setBytesToLeft() {
+        byte[] bytes = FactoryHelper.createRandomBytes(10);
+
+        Word256 word = new Word256().setBytesToLeft(bytes, 2, 8);
+
+        Assert.assertEquals(DataWord.fromBytesToLeft(bytes, 2, 8), word.toDataWord());
+    }
+
+    @Test
+    public void tooLargeByteArray() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Too large byte array");
+
+        new Word256().setBytes(new byte[Word256.WORD_BYTES + 1], 0, Word256.WORD_BYTES + 1);
+    }
+
+    @Test
+    public void getBytesIntoArray() {
+        DataWord dataWord = FactoryHelper.createRandomDataWord();
+        byte[] bytes = new byte[Word256.WORD_BYTES + 10];
+
+        Word256.fromDataWord(dataWord).getBytes(bytes, 10);
+
+        for (int k = 0; k < Word256.WORD_BYTES; k++)
+            Assert.assertEquals(dataWord.getBytes()[k], bytes[k + 10]);
+    }
+
+    @Test
+    public void operationsUpdateTheWordInPlace() {
+        Word256 word = Word256.fromUnsignedLong(40);
+        Word256 two = Word256.fromUnsignedLong(2);
+
+        Assert.assertSame(word, word.add(two));
+        Assert.assertEquals(Word256.fromUnsignedLong(42), word);
+        Assert.assertEquals(Word256.fromUnsignedLong(2), two);
+    }
+
+    @Test
+    public void addWithCarryAcrossLongs() {
+        Word256 word = Word256.fromDataWord(DataWord.fromHexadecimalString("ffffffffffffffffffffffffffffffff"));
+
+        word.add(Word256.fromUnsignedLong(1));
+
+        Assert.assertEquals(DataWord.fromHexadecimalString("0100000000000000000000000000000000"), word.toDataWord());
+    }
+
+    @Test
+    public void addOverflowWrapsAround() {
+        Word256 word = new Word256().not();
+
+        word.add(Word256.fromUnsignedLong(2));
+
+        Assert.assertEquals(Word256.fromUnsignedLong(1), word);
+    }
+
+    @Test
+    public void subWithBorrowAcrossLongs() {
+        Word256 word = Word256.fromDataWord(DataWord.fromHexadecimalString("0100000000000000000000000000000000"));
+
+        word.sub(Word256.fromUnsignedLong(1));
+
+        Assert.assertEquals(DataWord.fromHexadecimalString("ffffffffffffffffffffffffffffffff"), word.toDataWord());
+    }
+
+    @Test
+    public void subUnderflowWrapsAround() {
+        Word256 word = new Word256().sub(Word256.fromUnsignedLong(1));
+
+        Assert.assertEquals(new Word256().not(), word);
+    }
+
+    @Test
+    public void mulWithSameWord() {
+        Word256 word = Word256.fromDataWord(DataWord.fromHexadecimalString("ffffffffffffffffffffffffffffffff"));
+
+        word.mul(word);
+
+        Assert.assertEquals(DataWord.fromHexadecimalString("fffffffffffffffffffffffffffffffe00000000000000000000000000000001"), word.toDataWord());
+    }
+
+    @Test
+    public void divAndModWithSmallValues() {
+        Assert.assertEquals(Word256.fromUnsignedLong(14), Word256.fromUnsignedLong(42).div(Word256.fromUnsignedLong(3)));
+        Assert.assertEquals(Word256.fromUnsignedLong(2), Word256.fromUnsignedLong(42).mod(Word256.fromUnsignedLong(5)));
+        Assert.assertEquals(new Word256(), Word256.fromUnsignedLong(2).div(Word256.fromUnsignedLong(3)));
+        Assert.assertEquals(Word256.fromUnsignedLong(2), Word256.fromUnsignedLong(2).mod(Word256.fromUnsignedLong(3)));
+    }
+
+    @Test
+    public void signedDivAndMod() {
+        Word256 minusSeven = Word256.fromUnsignedLong(7).negate();
+        Word256 two = Word256.fromUnsignedLong(2);
+
+        Assert.assertEquals(Word256.fromUnsignedLong(3).negate(), new Word256(minusSeven).sdiv(two));
+        Assert.assertEquals(Word256.fromUnsignedLong(1).negate(), new Word256(minusSeven).smod(two));
+        Assert.assertEquals(Word256.fromUnsignedLong(3), new Word256(minusSeven).sdiv(new Word256(two).negate()));
+        Assert.assertEquals(Word256.fromUnsignedLong(1), Word256.fromUnsignedLong(7).smod(new Word256(two).negate()));
+    }
+
+    @Test
+    public void expModulo2256() {
+        Assert.assertEquals(Word256.fromUnsignedLong(1024), Word256.fromUnsignedLong(2).exp(Word256.fromUnsignedLong(10)));
+        Assert.assertEquals(Word256.fromUnsignedLong(1), Word256.fromUnsignedLong(42).exp(new Word256()));
+        Assert.assertEquals(new Word256(), Word256.fromUnsignedLong(2).exp(Word256.fromUnsignedLong(256)));
+    }
+
+    @Test
+    public void shifts() {
+        Word256 one = Word256.fromUnsignedLong(1);
+
+        Assert.assertEquals(DataWord.fromHexadecimalString("8000000000000000000000000000000000000000000000000000000000000000"), new Word256(one).shiftLeft(255).toDataWord());
+        Assert.assertEquals(one, new Word256(one).shiftLeft(255).shiftRight(255, false));
+        Assert.assertEquals(new Word256().not(), new Word256(one).shiftLeft(255).shiftRight(255, true));
+        Assert.assertEquals(new Word256(), new Word256(one).shiftLeft(Word256.fromUnsignedLong(256)));
+        Assert.assertEquals(new Word256().not(), new Word256().not().shiftArithmeticRight(Word256.fromUnsignedLong(4096)));
+    }
+
+    @Test
+    public void getByte() {
+        DataWord dataWord = FactoryHelper.createRandomDataWord();
+        Word256 word = Word256.fromDataWord(dataWord);
+
+        for (int k = 0; k < Word256.WORD_BYTES; k++)
+            Assert.assertEquals(dataWord.getBytes()[k], word.getByte(k));
+    }
+
+    @Test
+    public void unsignedIntegers() {
+        Assert.assertTrue(Word256.fromUnsignedLong(Integer.MAX_VALUE).isUnsignedInteger());
+        Assert.assertFalse(Word256.fromUnsignedLong(0x80000000L).isUnsignedInteger());
+        Assert.assertEquals(42, Word256.fromUnsignedLong(42).asUnsignedInteger());
+    }
+
+    @Test
+    public void compareSignedAndUnsigned() {
+        Word256 minusOne = new Word256().not();
+        Word256 one = Word256.fromUnsignedLong(1);
+
+        Assert.assertTrue(minusOne.compareTo(one) > 0);
+        Assert.assertTrue(minusOne.compareToSigned(one) < 0);
+        Assert.assertTrue(one.compareToSigned(minusOne) > 0);
+        Assert.assertEquals(0, one.compareToSigned(Word256.fromUnsignedLong(1)));
+    }
+
+    @Test
+    public void operationsMatchDataWord() {
+        Random random = new Random(42);
+
+        for (int k = 0; k < 1000; k++) {
+            DataWord dataWord1 = createRandomDataWord(random);
+            DataWord dataWord2 = createRandomDataWord(random);
+
+            Word256 word1 = Word256.fromDataWord(dataWord1);
+            Word256 word2 = Word256.fromDataWord(dataWord2);
+
+            Assert.assertEquals(dataWord1.add(dataWord2), new Word256(word1).add(word2).toDataWord());
+            Assert.assertEquals(dataWord1.sub(dataWord2), new Word256(word1).sub(word2).toDataWord());
+            Assert.assertEquals(dataWord1.mul(dataWord2), new Word256(word1).mul(word2).toDataWord());
+            Assert.assertEquals(dataWord1.and(dataWord2), new Word256(word1).and(word2).toDataWord());
+            Assert.assertEquals(dataWord1.or(dataWord2), new Word256(word1).or(word2).toDataWord());
+            Assert.assertEquals(dataWord1.xor(dataWord2), new Word256(word1).xor(word2).toDataWord());
+            Assert.assertEquals(dataWord1.not(), new Word256(word1).not().toDataWord());
+            Assert.assertEquals(dataWord1.negate(), new Word256(word1).negate().toDataWord());
+            Assert.assertEquals(Integer.signum(dataWord1.compareTo(dataWord2)), Integer.signum(word1.compareTo(word2)));
+            Assert.assertEquals(Integer.signum(dataWord1.compareToSigned(dataWord2)), Integer.signum(word1.compareToSigned(word2)));
+
+            if (!dataWord2.isZero()) {
+                Assert.assertEquals(dataWord1.div(dataWord2), new Word256(word1).div(word2).toDataWord());
+                Assert.assertEquals(dataWord1.mod(dataWord2), new Word256(word1).mod(word2).toDataWord());
+                Assert.assertEquals(dataWord1.sdiv(dataWord2), new Word256(word1).sdiv(word2).toDataWord());
+                Assert.assertEquals(dataWord1.smod(dataWord2), new Word256(word1).smod(word2).toDataWord());
+            }
+
+            DataWord shift = DataWord.fromUnsignedInteger(random.nextInt(300));
+            Word256 wshift = Word256.fromDataWord(shift);
+
+            Assert.assertEquals(dataWord1.shiftLeft(shift), new Word256(word1).shiftLeft(wshift).toDataWord());
+            Assert.assertEquals(dataWord1.shiftRight(shift), new Word256(word1).shiftRight(wshift).toDataWord());
+            Assert.assertEquals(dataWord1.shiftArithmeticRight(shift), new Word256(word1).shiftArithmeticRight(wshift).toDataWord());
+
+            DataWord exponent = DataWord.fromUnsignedInteger(random.nextInt(1000));
+
+            Assert.assertEquals(dataWord1.exp(exponent), new Word256(word1).exp(Word256.fromDataWord(exponent)).toDataWord());
+        }
+    }
+
+    // random length, so small values and values with zero longs are also covered
+    private static DataWord createRandomDataWord(Random random) {
+        byte[] bytes = new byte[1 + random.nextInt(Word256.WORD_BYTES)];
+        random.nextBytes(bytes);
+
+        return new DataWord(bytes);
+    }
+}